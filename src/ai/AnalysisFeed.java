@@ -0,0 +1,137 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class carries engine analysis from the thread that reads it to any
+ * number of subscribers, such as an evaluation bar, without letting a fast
+ * engine flood them.
+ *
+ * Publishing only overwrites the latest line for its MultiPV index, so the
+ * feed holds at most one line per index however fast lines arrive, and the
+ * publisher never waits. A daemon thread hands subscribers the current lines
+ * at most a fixed number of times per second, and only when something has
+ * changed.
+ */
+public class AnalysisFeed implements AutoCloseable {
+	/** The most MultiPV lines the feed keeps. */
+	public static final int MAX_LINES = 8;
+
+	private final InfoLine[] latest = new InfoLine[MAX_LINES];
+	private final List<Consumer<List<InfoLine>>> subscribers = new CopyOnWriteArrayList<>();
+	private final ScheduledExecutorService publisher;
+	private boolean changed;
+
+	/**
+	 * Constructs a feed and starts delivering updates.
+	 *
+	 * @param updatesPerSecond The most times per second subscribers are called.
+	 * @throws IllegalArgumentException if the rate is not positive.
+	 */
+	public AnalysisFeed(int updatesPerSecond) {
+		if (updatesPerSecond < 1) {
+			throw new IllegalArgumentException("Update rate must be at least 1: " + updatesPerSecond);
+		}
+		this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "analysis-feed");
+			thread.setDaemon(true); // The feed must not keep the game running after the window closes
+			return thread;
+		});
+		long period = 1000 / updatesPerSecond;
+		publisher.scheduleAtFixedRate(this::deliver, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Records a line of analysis, replacing the previous line with the same
+	 * MultiPV index. Lines without a principal variation, such as "info string"
+	 * or current-move reports, are ignored. It may be called from any thread
+	 * and never blocks on subscribers.
+	 *
+	 * @param line The line reported by the engine.
+	 */
+	public void publish(InfoLine line) {
+		int index = line.getMultiPv() - 1;
+		if (line.getPv().isEmpty() || index < 0 || index >= MAX_LINES) {
+			return;
+		}
+		synchronized (latest) {
+			latest[index] = line;
+			changed = true;
+		}
+	}
+
+	/**
+	 * Forgets all lines, for example when the position being analysed changes.
+	 * Subscribers are sent the empty list on the next update.
+	 */
+	public void clear() {
+		synchronized (latest) {
+			for (int i = 0; i < MAX_LINES; i++) {
+				latest[i] = null;
+			}
+			changed = true;
+		}
+	}
+
+	/**
+	 * Adds a subscriber. It is called on the feed's thread with the current
+	 * lines, ordered by MultiPV index, so Swing subscribers must hand the update
+	 * to the event dispatch thread themselves.
+	 *
+	 * @param subscriber The subscriber.
+	 */
+	public void subscribe(Consumer<List<InfoLine>> subscriber) {
+		subscribers.add(subscriber);
+	}
+
+	/**
+	 * Removes a subscriber.
+	 *
+	 * @param subscriber The subscriber.
+	 */
+	public void unsubscribe(Consumer<List<InfoLine>> subscriber) {
+		subscribers.remove(subscriber);
+	}
+
+	/**
+	 * Sends the current lines to every subscriber if they changed since the
+	 * last delivery.
+	 */
+	private void deliver() {
+		List<InfoLine> lines = new ArrayList<>();
+		synchronized (latest) {
+			if (!changed) {
+				return;
+			}
+			changed = false;
+			for (InfoLine line : latest) {
+				if (line != null) {
+					lines.add(line);
+				}
+			}
+		}
+		List<InfoLine> snapshot = Collections.unmodifiableList(lines);
+		for (Consumer<List<InfoLine>> subscriber : subscribers) {
+			try {
+				subscriber.accept(snapshot);
+			} catch (RuntimeException e) {
+				e.printStackTrace(); // A failing subscriber must not cancel the schedule
+			}
+		}
+	}
+
+	/**
+	 * Stops delivering updates.
+	 */
+	@Override
+	public void close() {
+		publisher.shutdownNow();
+	}
+}
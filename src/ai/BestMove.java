@@ -0,0 +1,57 @@
+package ai;
+
+/**
+ * This class is an engine's answer to a search: the move it plays and,
+ * optionally, the reply it expects and would like to ponder on.
+ */
+public final class BestMove {
+	private final String move;
+	private final String ponder;
+
+	/**
+	 * Constructs a new BestMove.
+	 *
+	 * @param move   The move in UCI format, or null if there is none.
+	 * @param ponder The expected reply in UCI format, or null.
+	 */
+	public BestMove(String move, String ponder) {
+		this.move = move;
+		this.ponder = ponder;
+	}
+
+	/**
+	 * Parses a UCI "bestmove" line, such as "bestmove e2e4 ponder e7e5".
+	 *
+	 * @param line The line sent by the engine.
+	 * @return The parsed answer; the move is null for "bestmove (none)".
+	 */
+	public static BestMove parse(String line) {
+		String[] parts = line.trim().split("\\s+");
+		String move = parts.length > 1 && !parts[1].equals("(none)") ? parts[1] : null;
+		String ponder = parts.length > 3 && parts[2].equals("ponder") ? parts[3] : null;
+		return new BestMove(move, ponder);
+	}
+
+	/**
+	 * Retrieves the move to play.
+	 *
+	 * @return The move in UCI format, or null if the engine has no move.
+	 */
+	public String getMove() {
+		return move;
+	}
+
+	/**
+	 * Retrieves the reply the engine expects.
+	 *
+	 * @return The move in UCI format, or null if the engine did not name one.
+	 */
+	public String getPonder() {
+		return ponder;
+	}
+
+	@Override
+	public String toString() {
+		return "bestmove " + (move != null ? move : "(none)") + (ponder != null ? " ponder " + ponder : "");
+	}
+}
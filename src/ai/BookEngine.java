@@ -0,0 +1,119 @@
+package ai;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * This class answers from an {@link OpeningBook} while the game is in book
+ * and asks another engine once it leaves. Book moves take microseconds, so
+ * the engine's time is spent only on positions the book does not cover.
+ */
+public class BookEngine implements ChessEngine {
+	private final ChessEngine engine;
+	private final OpeningBook book;
+	private final PositionTracker tracker = new PositionTracker(); // Finds each position asked about
+
+	/**
+	 * Constructs an engine that consults a book first.
+	 *
+	 * @param engine The engine that answers positions out of book.
+	 * @param book   The opening book.
+	 */
+	public BookEngine(ChessEngine engine, OpeningBook book) {
+		this.engine = engine;
+		this.book = book;
+	}
+
+	/**
+	 * Gets a book move for a given move list, or the engine's best move if the
+	 * book has none.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @return The move in UCI format, or null if there is none.
+	 * @throws IOException if the engine cannot be reached.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	@Override
+	public String getBestMove(String moveList) throws IOException {
+		long start = System.nanoTime();
+		String move = book.probe(tracker.update(moveList));
+		if (move != null) {
+			engine.setExpectedReply(null); // The book predicts no reply, and the engine's last guess is stale
+			System.out.println("Book move " + move + " in " + (System.nanoTime() - start) / 1000 + " us ("
+					+ book.getHits() + " hits, " + book.getMisses() + " misses)");
+			return move;
+		}
+		return engine.getBestMove(moveList);
+	}
+
+	/**
+	 * Sets how long the engine may think about each move out of book.
+	 *
+	 * @param limits The search limits.
+	 */
+	@Override
+	public void setLimits(SearchLimits limits) {
+		engine.setLimits(limits);
+	}
+
+	/**
+	 * Sets the listener that receives the engine's progress reports.
+	 *
+	 * @param infoListener The listener, or null for none.
+	 */
+	@Override
+	public void setInfoListener(Consumer<InfoLine> infoListener) {
+		engine.setInfoListener(infoListener);
+	}
+
+	/**
+	 * Passes pondering on to the engine.
+	 *
+	 * @param moveList The moves so far, ending with the engine's own last move.
+	 */
+	@Override
+	public void startPondering(String moveList) {
+		engine.startPondering(moveList);
+	}
+
+	/**
+	 * Passes the expected reply on to the engine.
+	 *
+	 * @param reply The expected reply in UCI format, or null for none.
+	 */
+	@Override
+	public void setExpectedReply(String reply) {
+		engine.setExpectedReply(reply);
+	}
+
+	/**
+	 * Starts the engine's analysis; the book is not consulted.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @param lines    The number of best lines to report.
+	 * @throws IOException if the engine cannot be reached.
+	 */
+	@Override
+	public void startAnalysis(String moveList, int lines) throws IOException {
+		engine.startAnalysis(moveList, lines);
+	}
+
+	/**
+	 * Stops the engine's analysis.
+	 */
+	@Override
+	public void stopAnalysis() {
+		engine.stopAnalysis();
+	}
+
+	/**
+	 * Closes the engine. The book's mapping is released when the book is no
+	 * longer referenced.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		engine.close();
+	}
+}
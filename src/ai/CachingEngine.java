@@ -0,0 +1,221 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import board.MoveGenerator;
+import board.MoveList;
+import board.PackedMove;
+import board.Position;
+
+/**
+ * This class puts a {@link ReplyCache} in front of another engine. A position
+ * the engine has already answered under the same limits is answered from the
+ * cache in microseconds; anything else is passed on and the answer remembered.
+ * Single-player games from the starting position repeat the same openings, so
+ * most early moves become cache hits after a few games.
+ *
+ * Searches under clock limits are neither cached nor served, as their answer
+ * depends on the time left. A cached move that is not legal in the position,
+ * as after a key collision or a damaged file, is dropped and the engine asked
+ * instead. The cache is loaded when the engine is created and
+ * saved when it is closed.
+ */
+public class CachingEngine implements ChessEngine {
+	private final ChessEngine engine;
+	private final String name;
+	private final ReplyCache cache;
+	private final Path file;
+	private final PositionTracker tracker = new PositionTracker(); // Finds the key of each position asked about
+	private volatile SearchLimits limits = SearchLimits.moveTime(StockfishEngine.MOVE_TIME);
+	private volatile Consumer<InfoLine> infoListener;
+	private volatile InfoLine lastLine; // The engine's latest report of a best line
+
+	/**
+	 * Constructs a caching engine, loading the cache file if there is one.
+	 *
+	 * @param engine The engine that answers cache misses.
+	 * @param name   A name for the engine, kept with each entry so answers from
+	 *               different engines sharing a file are not mixed.
+	 * @param cache  The cache.
+	 * @param file   The file the cache is loaded from and saved to, or null to
+	 *               keep it in memory only.
+	 */
+	public CachingEngine(ChessEngine engine, String name, ReplyCache cache, Path file) {
+		this.engine = engine;
+		this.name = name;
+		this.cache = cache;
+		this.file = file;
+		engine.setInfoListener(this::recordLine);
+		if (file != null && Files.exists(file)) {
+			try {
+				cache.load(file);
+				System.out.println("Loaded " + cache.size() + " cached engine replies from " + file);
+			} catch (IOException e) {
+				e.printStackTrace(); // An unreadable cache only costs the time to rebuild it
+			}
+		}
+	}
+
+	/**
+	 * Gets the best move for a given move list, from the cache if it has an
+	 * answer for the position and limits, and from the engine otherwise.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @return The best move in UCI format, or null if there is none.
+	 * @throws IOException if the engine cannot be reached.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	@Override
+	public String getBestMove(String moveList) throws IOException {
+		SearchLimits current = limits;
+		if (current.hasClock()) {
+			return engine.getBestMove(moveList);
+		}
+		long start = System.nanoTime();
+		Position position = tracker.update(moveList);
+		long key = position.getKey();
+		String settings = name + " " + current.toUciArguments();
+		ReplyCache.Entry entry = cache.get(key, settings);
+		if (entry != null && !isLegal(position, entry.getMove())) {
+			System.out.println("Dropped cached reply " + entry.getMove() + ", not legal in " + position.toFen());
+			cache.remove(key, settings);
+			entry = null;
+		}
+		if (entry != null) {
+			engine.setExpectedReply(entry.getPonder()); // Replaces the prediction from the engine's last search
+			System.out.println("Cached reply " + entry.getMove() + " in " + (System.nanoTime() - start) / 1000
+					+ " us (depth " + entry.getLine().getDepth() + ", hit rate "
+					+ Math.round(cache.getHitRate() * 100) + "%)");
+			return entry.getMove();
+		}
+
+		lastLine = null;
+		String bestMove = engine.getBestMove(moveList);
+		InfoLine line = lastLine;
+		if (bestMove != null && line != null && line.getPv().get(0).equals(bestMove)) {
+			cache.put(key, settings, line); // Lines left over from analysis or pondering do not match the move
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Checks whether a move in UCI format is legal in a position.
+	 */
+	private static boolean isLegal(Position position, String move) {
+		MoveList legalMoves = new MoveList();
+		MoveGenerator.generateLegal(position, legalMoves);
+		for (int i = 0; i < legalMoves.size(); i++) {
+			if (PackedMove.toUCI(legalMoves.get(i)).equals(move)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Keeps the engine's latest best line and passes it on to the listener.
+	 */
+	private void recordLine(InfoLine line) {
+		if (line.getMultiPv() == 1 && !line.getPv().isEmpty()) {
+			lastLine = line;
+		}
+		Consumer<InfoLine> listener = infoListener;
+		if (listener != null) {
+			listener.accept(line);
+		}
+	}
+
+	/**
+	 * Sets how long the engine may think about each move. Answers found under
+	 * other limits are not served.
+	 *
+	 * @param limits The search limits.
+	 */
+	@Override
+	public void setLimits(SearchLimits limits) {
+		this.limits = limits;
+		engine.setLimits(limits);
+	}
+
+	/**
+	 * Sets the listener that receives the engine's progress reports.
+	 *
+	 * @param infoListener The listener, or null for none.
+	 */
+	@Override
+	public void setInfoListener(Consumer<InfoLine> infoListener) {
+		this.infoListener = infoListener;
+	}
+
+	/**
+	 * Passes pondering on to the engine; a cache hit leaves it running until
+	 * the next search replaces it.
+	 *
+	 * @param moveList The moves so far, ending with the engine's own last move.
+	 */
+	@Override
+	public void startPondering(String moveList) {
+		engine.startPondering(moveList);
+	}
+
+	/**
+	 * Passes the expected reply on to the engine.
+	 *
+	 * @param reply The expected reply in UCI format, or null for none.
+	 */
+	@Override
+	public void setExpectedReply(String reply) {
+		engine.setExpectedReply(reply);
+	}
+
+	/**
+	 * Starts the engine's analysis; analysis is never cached.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @param lines    The number of best lines to report.
+	 * @throws IOException if the engine cannot be reached.
+	 */
+	@Override
+	public void startAnalysis(String moveList, int lines) throws IOException {
+		engine.startAnalysis(moveList, lines);
+	}
+
+	/**
+	 * Stops the engine's analysis.
+	 */
+	@Override
+	public void stopAnalysis() {
+		engine.stopAnalysis();
+	}
+
+	/**
+	 * Retrieves the cache in front of the engine.
+	 *
+	 * @return The cache.
+	 */
+	public ReplyCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Saves the cache and closes the engine.
+	 *
+	 * @throws IOException if the engine cannot be closed. A cache that cannot
+	 *                     be saved is reported but does not stop the engine
+	 *                     closing.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (file != null) {
+			try {
+				cache.save(file);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		engine.close();
+	}
+}
@@ -0,0 +1,88 @@
+package ai;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * This interface is the contract the game controller uses to ask a chess
+ * engine for moves, whether the engine runs in an external process or inside
+ * the JVM.
+ */
+public interface ChessEngine {
+
+	/**
+	 * Gets the best move for the position reached from the starting position by
+	 * a list of moves.
+	 *
+	 * @param moveList The space-separated list of moves in UCI format.
+	 * @return The best move in UCI format, or null if there is none.
+	 * @throws IOException if the engine cannot be reached.
+	 */
+	String getBestMove(String moveList) throws IOException;
+
+	/**
+	 * Sets how long the engine may think about each move.
+	 *
+	 * @param limits The search limits.
+	 */
+	void setLimits(SearchLimits limits);
+
+	/**
+	 * Starts thinking on the opponent's time about the reply the engine expects.
+	 * If the opponent plays that reply, the next call to getBestMove can answer
+	 * at once. Engines that cannot ponder ignore this.
+	 *
+	 * @param moveList The moves so far, ending with the engine's own last move.
+	 */
+	default void startPondering(String moveList) {
+	}
+
+	/**
+	 * Sets the opponent's reply the engine expects after a move it did not
+	 * search for itself, such as one answered from a cache or a book, so the
+	 * next {@link #startPondering} thinks about the right line. Engines that
+	 * cannot ponder ignore this.
+	 *
+	 * @param reply The expected reply in UCI format, or null for none.
+	 */
+	default void setExpectedReply(String reply) {
+	}
+
+	/**
+	 * Sets the listener that receives the engine's progress reports while it
+	 * searches or analyses. It may be called on an engine thread. Engines that
+	 * do not report ignore this.
+	 *
+	 * @param infoListener The listener, or null for none.
+	 */
+	default void setInfoListener(Consumer<InfoLine> infoListener) {
+	}
+
+	/**
+	 * Starts analysing a position until {@link #stopAnalysis()} is called,
+	 * reporting through the info listener. Starting again replaces the running
+	 * analysis, and asking for a move stops it.
+	 *
+	 * @param moveList The space-separated list of moves in UCI format.
+	 * @param lines    The number of best lines to report (MultiPV). Engines
+	 *                 may report fewer.
+	 * @throws IOException if the engine cannot be reached.
+	 * @throws UnsupportedOperationException if the engine cannot analyse.
+	 */
+	default void startAnalysis(String moveList, int lines) throws IOException {
+		throw new UnsupportedOperationException("This engine does not support analysis");
+	}
+
+	/**
+	 * Stops a running analysis. It does nothing if none is running.
+	 */
+	default void stopAnalysis() {
+	}
+
+	/**
+	 * Shuts the engine down and releases its resources.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	void close() throws IOException;
+}
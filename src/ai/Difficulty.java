@@ -0,0 +1,35 @@
+package ai;
+
+/**
+ * This enum lists the playing strengths offered to the player. Each maps to a
+ * depth or node budget rather than a time, so the engine plays the same
+ * strength on any machine and weak levels cost almost no CPU.
+ */
+public enum Difficulty {
+	BEGINNER("Beginner", SearchLimits.depth(1)),
+	EASY("Easy", SearchLimits.depth(3)),
+	MEDIUM("Medium", SearchLimits.nodes(100_000)),
+	HARD("Hard", SearchLimits.nodes(1_000_000));
+
+	private final String label;
+	private final SearchLimits limits;
+
+	Difficulty(String label, SearchLimits limits) {
+		this.label = label;
+		this.limits = limits;
+	}
+
+	/**
+	 * Retrieves the search budget of this level.
+	 *
+	 * @return The search limits.
+	 */
+	public SearchLimits getLimits() {
+		return limits;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
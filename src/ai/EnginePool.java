@@ -0,0 +1,292 @@
+package ai;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a bounded pool of warmed-up engine processes shared by many
+ * games. A game leases a process for one search and gives it back; between
+ * leases the process is told to start a new game and checked for readiness,
+ * and a process that crashed or stopped answering is replaced. A process that
+ * cannot be replaced keeps its slot and is tried again on a later lease, so
+ * the pool never shrinks. The pool is a ChessEngine itself, so a controller
+ * can use it like a single engine.
+ */
+public class EnginePool implements ChessEngine {
+	/** How long a search waits for a free process by default. */
+	public static final long DEFAULT_LEASE_TIMEOUT = 30_000;
+
+	private final String[] command;
+	private final int threadsPerEngine;
+	private final int hashPerEngine;
+	private final BlockingQueue<StockfishEngine> idle;
+	private final Set<StockfishEngine> engines = ConcurrentHashMap.newKeySet(); // One per slot, idle or leased
+	private final long leaseTimeout;
+	private final AtomicLong leases = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong restarts = new AtomicLong();
+	private volatile boolean closed;
+	private volatile SearchLimits limits = SearchLimits.moveTime(StockfishEngine.MOVE_TIME);
+
+	/**
+	 * Constructs a pool and starts every process in it.
+	 *
+	 * @param size             The number of engine processes.
+	 * @param threadsPerEngine The UCI Threads option of each process.
+	 * @param hashPerEngine    The UCI Hash option of each process, in megabytes.
+	 * @param command          The engine's command line.
+	 * @throws IOException if a process cannot be started.
+	 */
+	public EnginePool(int size, int threadsPerEngine, int hashPerEngine, String... command) throws IOException {
+		this(size, threadsPerEngine, hashPerEngine, DEFAULT_LEASE_TIMEOUT, command);
+	}
+
+	/**
+	 * Constructs a pool and starts every process in it.
+	 *
+	 * @param size             The number of engine processes.
+	 * @param threadsPerEngine The UCI Threads option of each process.
+	 * @param hashPerEngine    The UCI Hash option of each process, in megabytes.
+	 * @param leaseTimeout     How long a search waits for a free process, in
+	 *                         milliseconds.
+	 * @param command          The engine's command line.
+	 * @throws IOException if a process cannot be started.
+	 * @throws IllegalArgumentException if the size is not positive.
+	 */
+	public EnginePool(int size, int threadsPerEngine, int hashPerEngine, long leaseTimeout, String... command)
+			throws IOException {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Pool size must be positive: " + size);
+		}
+		this.command = command.clone();
+		this.threadsPerEngine = threadsPerEngine;
+		this.hashPerEngine = hashPerEngine;
+		this.leaseTimeout = leaseTimeout;
+		this.idle = new ArrayBlockingQueue<>(size);
+		try {
+			for (int i = 0; i < size; i++) {
+				StockfishEngine engine = startEngine();
+				engines.add(engine);
+				idle.add(engine);
+			}
+		} catch (IOException e) {
+			close(); // Do not leak the processes that did start
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts one engine process and applies the per-engine options.
+	 */
+	private StockfishEngine startEngine() throws IOException {
+		StockfishEngine engine = new StockfishEngine(command);
+		engine.setOption("Threads", threadsPerEngine);
+		engine.setOption("Hash", hashPerEngine);
+		engine.newGame(); // Waits until the options are applied
+		return engine;
+	}
+
+	/**
+	 * Leases a process, waiting for one to become free.
+	 *
+	 * @return A ready engine, which must be given back with {@link #release}.
+	 * @throws IOException if no process becomes free in time, the pool is closed
+	 *                     or no crashed process free in time can be restarted.
+	 */
+	public StockfishEngine acquire() throws IOException {
+		if (closed) {
+			throw new IOException("Engine pool is closed");
+		}
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(leaseTimeout);
+		for (int attempt = 1;; attempt++) {
+			StockfishEngine engine;
+			try {
+				engine = idle.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for an engine");
+			}
+			if (engine == null) {
+				throw new IOException("No engine became free within " + leaseTimeout + " ms");
+			}
+			if (!engine.isAlive()) {
+				try {
+					engine = restart(engine); // Crashed while idle, or a restart failed before
+				} catch (IOException e) {
+					idle.offer(engine); // Keeps the slot for the next lease to retry
+					if (attempt >= engines.size()) {
+						throw e; // Every slot tried once
+					}
+					continue;
+				}
+			}
+			long waited = System.nanoTime() - start;
+			leases.incrementAndGet();
+			totalWaitNanos.addAndGet(waited);
+			maxWaitNanos.accumulateAndGet(waited, Math::max);
+			engine.setLimits(limits);
+			return engine;
+		}
+	}
+
+	/**
+	 * Gives a leased process back. It is reset for the next game, or replaced if
+	 * it no longer answers. A process that cannot be replaced goes back dead and
+	 * is restarted by a later lease.
+	 *
+	 * @param engine The engine returned by {@link #acquire}.
+	 */
+	public void release(StockfishEngine engine) {
+		try {
+			if (engine.isAlive()) {
+				engine.newGame();
+			} else {
+				engine = restart(engine);
+			}
+		} catch (IOException e) {
+			try {
+				engine = restart(engine); // Not ready in time: treat it as hung
+			} catch (IOException restartFailure) {
+				restartFailure.printStackTrace(); // The slot is kept; acquire never hands out a dead process
+			}
+		}
+		if (closed || !idle.offer(engine)) {
+			closeQuietly(engine);
+		}
+	}
+
+	/**
+	 * Replaces a crashed or hung process with a new one. If the new one cannot
+	 * be started, the old one is left closed in its slot.
+	 */
+	private StockfishEngine restart(StockfishEngine engine) throws IOException {
+		closeQuietly(engine);
+		StockfishEngine replacement = startEngine();
+		engines.remove(engine);
+		engines.add(replacement);
+		restarts.incrementAndGet();
+		return replacement;
+	}
+
+	/**
+	 * Sets how long the pool's engines may think about each move. It applies
+	 * from the next lease.
+	 *
+	 * @param limits The search limits.
+	 */
+	@Override
+	public void setLimits(SearchLimits limits) {
+		this.limits = limits;
+	}
+
+	/**
+	 * Gets the best move for a given move list, leasing a process for the search.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @return The best move in UCI format.
+	 * @throws IOException if no process is free in time or the search fails.
+	 */
+	@Override
+	public String getBestMove(String moveList) throws IOException {
+		StockfishEngine engine = acquire();
+		try {
+			return engine.getBestMove(moveList);
+		} finally {
+			release(engine);
+		}
+	}
+
+	/**
+	 * Retrieves the number of leases granted.
+	 *
+	 * @return The lease count.
+	 */
+	public long getLeaseCount() {
+		return leases.get();
+	}
+
+	/**
+	 * Retrieves the average time a search waited for a free process.
+	 *
+	 * @return The average wait in milliseconds.
+	 */
+	public double getAverageWaitMillis() {
+		long count = leases.get();
+		return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+	}
+
+	/**
+	 * Retrieves the longest time a search waited for a free process.
+	 *
+	 * @return The longest wait in milliseconds.
+	 */
+	public double getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1e6;
+	}
+
+	/**
+	 * Retrieves the number of processes restarted after crashing or hanging.
+	 *
+	 * @return The restart count.
+	 */
+	public long getRestartCount() {
+		return restarts.get();
+	}
+
+	/**
+	 * Retrieves the number of processes running, idle or leased. It is below the
+	 * pool size while crashed processes wait to be restarted.
+	 *
+	 * @return The live process count.
+	 */
+	public int getLiveCount() {
+		int live = 0;
+		for (StockfishEngine engine : engines) {
+			if (engine.isAlive()) {
+				live++;
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * Retrieves the number of processes free right now.
+	 *
+	 * @return The idle count.
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * Shuts down the idle processes. Leased processes are shut down when they
+	 * are given back.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		List<StockfishEngine> engines = new ArrayList<>();
+		idle.drainTo(engines);
+		for (StockfishEngine engine : engines) {
+			closeQuietly(engine);
+		}
+	}
+
+	private static void closeQuietly(StockfishEngine engine) {
+		try {
+			engine.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package ai;
+
+import board.Position;
+
+/**
+ * This class scores positions for the built-in search. The score is material
+ * plus piece-square bonuses, with the king table blended between the
+ * middlegame and the endgame according to the material left on the board.
+ * Scores are in centipawns from the point of view of the side to move.
+ */
+public final class Evaluation {
+	private static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 0 };
+	private static final int[] PHASE_WEIGHTS = { 0, 1, 1, 2, 4, 0 };
+	private static final int TOTAL_PHASE = 24;
+
+	// Piece-square tables from White's point of view, listed from a8 to h1
+	private static final int[] PAWN_TABLE = {
+			0, 0, 0, 0, 0, 0, 0, 0,
+			50, 50, 50, 50, 50, 50, 50, 50,
+			10, 10, 20, 30, 30, 20, 10, 10,
+			5, 5, 10, 25, 25, 10, 5, 5,
+			0, 0, 0, 20, 20, 0, 0, 0,
+			5, -5, -10, 0, 0, -10, -5, 5,
+			5, 10, 10, -20, -20, 10, 10, 5,
+			0, 0, 0, 0, 0, 0, 0, 0 };
+	private static final int[] KNIGHT_TABLE = {
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20, 0, 0, 0, 0, -20, -40,
+			-30, 0, 10, 15, 15, 10, 0, -30,
+			-30, 5, 15, 20, 20, 15, 5, -30,
+			-30, 0, 15, 20, 20, 15, 0, -30,
+			-30, 5, 10, 15, 15, 10, 5, -30,
+			-40, -20, 0, 5, 5, 0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50 };
+	private static final int[] BISHOP_TABLE = {
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 10, 10, 5, 0, -10,
+			-10, 5, 5, 10, 10, 5, 5, -10,
+			-10, 0, 10, 10, 10, 10, 0, -10,
+			-10, 10, 10, 10, 10, 10, 10, -10,
+			-10, 5, 0, 0, 0, 0, 5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20 };
+	private static final int[] ROOK_TABLE = {
+			0, 0, 0, 0, 0, 0, 0, 0,
+			5, 10, 10, 10, 10, 10, 10, 5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			0, 0, 0, 5, 5, 0, 0, 0 };
+	private static final int[] QUEEN_TABLE = {
+			-20, -10, -10, -5, -5, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 5, 5, 5, 0, -10,
+			-5, 0, 5, 5, 5, 5, 0, -5,
+			0, 0, 5, 5, 5, 5, 0, -5,
+			-10, 5, 5, 5, 5, 5, 0, -10,
+			-10, 0, 5, 0, 0, 0, 0, -10,
+			-20, -10, -10, -5, -5, -10, -10, -20 };
+	private static final int[] KING_MIDDLEGAME_TABLE = {
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-20, -30, -30, -40, -40, -30, -30, -20,
+			-10, -20, -20, -20, -20, -20, -20, -10,
+			20, 20, 0, 0, 0, 0, 20, 20,
+			20, 30, 10, 0, 0, 10, 30, 20 };
+	private static final int[] KING_ENDGAME_TABLE = {
+			-50, -40, -30, -20, -20, -30, -40, -50,
+			-30, -20, -10, 0, 0, -10, -20, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -30, 0, 0, 0, 0, -30, -30,
+			-50, -30, -30, -30, -30, -30, -30, -50 };
+
+	private static final int[][] TABLES = { PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE };
+
+	private Evaluation() {
+	}
+
+	/**
+	 * Retrieves the material value of a piece type.
+	 *
+	 * @param type The piece type.
+	 * @return The value in centipawns (0 for the king).
+	 */
+	public static int pieceValue(int type) {
+		return PIECE_VALUES[type];
+	}
+
+	/**
+	 * Scores a position.
+	 *
+	 * @param position The position to score.
+	 * @return The score in centipawns for the side to move.
+	 */
+	public static int evaluate(Position position) {
+		int score = 0;
+		int phase = 0;
+
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			int sign = color == Position.WHITE ? 1 : -1;
+			int flip = color == Position.WHITE ? 56 : 0; // Maps a square onto the tables' a8-first layout
+			for (int type = Position.PAWN; type < Position.KING; type++) {
+				long bits = position.getPieces(color, type);
+				int[] table = TABLES[type];
+				while (bits != 0) {
+					int sq = Long.numberOfTrailingZeros(bits);
+					score += sign * (PIECE_VALUES[type] + table[sq ^ flip]);
+					phase += PHASE_WEIGHTS[type];
+					bits &= bits - 1;
+				}
+			}
+		}
+
+		// Blend the king tables: full middlegame with all pieces on, full endgame with none
+		phase = Math.min(phase, TOTAL_PHASE);
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			long king = position.getPieces(color, Position.KING);
+			if (king == 0) {
+				continue;
+			}
+			int sq = Long.numberOfTrailingZeros(king) ^ (color == Position.WHITE ? 56 : 0);
+			int kingScore = (KING_MIDDLEGAME_TABLE[sq] * phase + KING_ENDGAME_TABLE[sq] * (TOTAL_PHASE - phase))
+					/ TOTAL_PHASE;
+			score += color == Position.WHITE ? kingScore : -kingScore;
+		}
+
+		return position.getSideToMove() == Position.WHITE ? score : -score;
+	}
+}
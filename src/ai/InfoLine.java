@@ -0,0 +1,173 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is one "info" line of engine output, reporting the progress of a
+ * search. Fields the engine did not send are -1 (or empty for the principal
+ * variation).
+ */
+public final class InfoLine {
+	private final int depth;
+	private final int multiPv;
+	private final int score;
+	private final boolean mate;
+	private final long nodes;
+	private final long nps;
+	private final long time;
+	private final List<String> pv;
+
+	/**
+	 * Constructs a new InfoLine.
+	 *
+	 * @param depth   The search depth in plies.
+	 * @param multiPv The index of the line when several are searched, starting at 1.
+	 * @param score   The score in centipawns, or in moves to mate when mate is set.
+	 * @param mate    Whether the score is a mate distance.
+	 * @param nodes   The nodes searched.
+	 * @param nps     The nodes searched per second.
+	 * @param time    The time searched in milliseconds.
+	 * @param pv      The principal variation in UCI format.
+	 */
+	public InfoLine(int depth, int multiPv, int score, boolean mate, long nodes, long nps, long time,
+			List<String> pv) {
+		this.depth = depth;
+		this.multiPv = multiPv;
+		this.score = score;
+		this.mate = mate;
+		this.nodes = nodes;
+		this.nps = nps;
+		this.time = time;
+		this.pv = Collections.unmodifiableList(new ArrayList<>(pv));
+	}
+
+	/**
+	 * Parses a UCI "info" line. Unknown fields are skipped.
+	 *
+	 * @param line The line sent by the engine.
+	 * @return The parsed line.
+	 */
+	public static InfoLine parse(String line) {
+		String[] tokens = line.trim().split("\\s+");
+		int depth = -1;
+		int multiPv = 1;
+		int score = 0;
+		boolean mate = false;
+		long nodes = -1;
+		long nps = -1;
+		long time = -1;
+		List<String> pv = new ArrayList<>();
+		try {
+			for (int i = 1; i < tokens.length; i++) {
+				switch (tokens[i]) {
+				case "depth":
+					depth = Integer.parseInt(tokens[++i]);
+					break;
+				case "multipv":
+					multiPv = Integer.parseInt(tokens[++i]);
+					break;
+				case "score":
+					mate = tokens[++i].equals("mate");
+					score = Integer.parseInt(tokens[++i]);
+					break;
+				case "nodes":
+					nodes = Long.parseLong(tokens[++i]);
+					break;
+				case "nps":
+					nps = Long.parseLong(tokens[++i]);
+					break;
+				case "time":
+					time = Long.parseLong(tokens[++i]);
+					break;
+				case "pv":
+					for (i++; i < tokens.length; i++) {
+						pv.add(tokens[i]); // The variation runs to the end of the line
+					}
+					break;
+				case "string":
+					i = tokens.length; // Free text follows
+					break;
+				default:
+					break; // Fields such as seldepth, hashfull or lowerbound are not used
+				}
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			// Keep whatever was read before the malformed field
+		}
+		return new InfoLine(depth, multiPv, score, mate, nodes, nps, time, pv);
+	}
+
+	/**
+	 * Retrieves the search depth.
+	 *
+	 * @return The depth in plies, or -1.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Retrieves the index of the line when several are searched.
+	 *
+	 * @return The line index, starting at 1.
+	 */
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+	/**
+	 * Retrieves the score from the point of view of the side to move.
+	 *
+	 * @return The score in centipawns, or moves to mate if {@link #isMate()}.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Checks if the score is a mate distance.
+	 *
+	 * @return true if the score counts moves to mate, false if it is centipawns.
+	 */
+	public boolean isMate() {
+		return mate;
+	}
+
+	/**
+	 * Retrieves the nodes searched.
+	 *
+	 * @return The node count, or -1.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Retrieves the search speed.
+	 *
+	 * @return The nodes per second, or -1.
+	 */
+	public long getNodesPerSecond() {
+		return nps;
+	}
+
+	/**
+	 * Retrieves the time searched.
+	 *
+	 * @return The time in milliseconds, or -1.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Retrieves the principal variation.
+	 *
+	 * @return The moves of the expected line in UCI format.
+	 */
+	public List<String> getPv() {
+		return pv;
+	}
+}
@@ -0,0 +1,215 @@
+package ai;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import board.MoveGenerator;
+import board.MoveList;
+import board.PackedMove;
+import board.Position;
+
+/**
+ * This class is a chess engine that runs entirely inside the JVM. It answers
+ * the same "best move for this move list" question as {@link StockfishEngine}
+ * with the built-in {@link Search}, so it needs no external process, no pipe
+ * I/O and nothing platform-specific. By default it searches with one thread
+ * per available processor (see {@link ParallelSearch}).
+ *
+ * Analysis runs the same search without a limit on a background thread and
+ * reports each completed iteration to the info listener. The search keeps a
+ * single principal variation, so only one line is reported whatever MultiPV
+ * count is asked for.
+ */
+public class NativeEngine implements ChessEngine {
+	/** The time spent per move, matching the Stockfish default. */
+	public static final long DEFAULT_MOVE_TIME = 750;
+
+	private volatile SearchLimits limits;
+	private volatile TimeManager timeManager = new StandardTimeManager();
+	private final TranspositionTable table;
+	private final ParallelSearch search;
+	private final PositionTracker tracker = new PositionTracker(); // Replays only the moves added since last time
+	private final ExecutorService analyst = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "native-analysis");
+		thread.setDaemon(true); // Analysis must not keep the game running after the window closes
+		return thread;
+	});
+	private Future<?> analysis; // The running analysis, or null
+
+	/**
+	 * Constructs a new NativeEngine with the default time per move.
+	 */
+	public NativeEngine() {
+		this(DEFAULT_MOVE_TIME);
+	}
+
+	/**
+	 * Constructs a new NativeEngine.
+	 *
+	 * @param moveTime The time to spend per move in milliseconds.
+	 */
+	public NativeEngine(long moveTime) {
+		this(moveTime, TranspositionTable.DEFAULT_SIZE_MB);
+	}
+
+	/**
+	 * Constructs a new NativeEngine.
+	 *
+	 * @param moveTime The time to spend per move in milliseconds.
+	 * @param hashMb   The transposition table size in megabytes.
+	 */
+	public NativeEngine(long moveTime, int hashMb) {
+		this(moveTime, hashMb, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a new NativeEngine.
+	 *
+	 * @param moveTime The time to spend per move in milliseconds.
+	 * @param hashMb   The transposition table size in megabytes.
+	 * @param threads  The number of search threads.
+	 */
+	public NativeEngine(long moveTime, int hashMb, int threads) {
+		this.limits = SearchLimits.moveTime(moveTime);
+		this.table = new TranspositionTable(hashMb, TranspositionTable.Replacement.DEPTH_PREFERRED);
+		this.search = new ParallelSearch(table, threads);
+	}
+
+	/**
+	 * Sets how long the engine may think about each move.
+	 *
+	 * @param limits The search limits.
+	 */
+	@Override
+	public void setLimits(SearchLimits limits) {
+		this.limits = limits;
+	}
+
+	/**
+	 * Sets the policy that turns clock limits into a time budget per move.
+	 *
+	 * @param timeManager The time manager.
+	 */
+	public void setTimeManager(TimeManager timeManager) {
+		this.timeManager = timeManager;
+	}
+
+	/**
+	 * Gets the best move for a given move list. A move that is the only legal
+	 * one is returned without searching.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @return The best move in UCI format, or null if the side to move has no
+	 *         legal move.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	@Override
+	public String getBestMove(String moveList) {
+		stopAnalysis();
+		Position position = tracker.update(moveList);
+		MoveList legalMoves = new MoveList();
+		MoveGenerator.generateLegal(position, legalMoves);
+		if (legalMoves.size() <= 1) {
+			return legalMoves.size() == 1 ? PackedMove.toUCI(legalMoves.get(0)) : null; // Nothing to think about
+		}
+
+		SearchLimits current = limits;
+		long budget = timeManager.allocate(current, position.getSideToMove());
+		int maxDepth = current.getDepth() > 0 ? current.getDepth() : Search.MAX_PLY;
+		table.newSearch(); // Entries from earlier moves stay usable but are replaced first
+		int bestMove = search.think(position, maxDepth, budget, current.getNodes());
+		System.out.println("Native engine used " + search.getElapsedMillis() + " ms of "
+				+ (budget > 0 ? budget + " ms" : current) + ", searched " + search.getNodes() + " nodes on "
+				+ search.getThreads() + " threads (" + search.getNodesPerSecond() + " nps, hashfull "
+				+ table.getHashFull() + ", hit rate " + Math.round(table.getHitRate() * 100) + "%)");
+		return bestMove != PackedMove.NONE ? PackedMove.toUCI(bestMove) : null;
+	}
+
+	/**
+	 * Sets the listener that receives each completed iteration of a search or
+	 * analysis. It is called on the searching thread.
+	 *
+	 * @param infoListener The listener, or null for none.
+	 */
+	@Override
+	public void setInfoListener(Consumer<InfoLine> infoListener) {
+		search.setInfoListener(infoListener);
+	}
+
+	/**
+	 * Starts analysing a position on a background thread until
+	 * {@link #stopAnalysis()} is called, the search reaches its deepest
+	 * iteration or it finds a forced mate.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @param lines    The number of lines asked for; only the best is reported.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	@Override
+	public void startAnalysis(String moveList, int lines) {
+		stopAnalysis();
+		Position position = new Position(tracker.update(moveList)); // The tracker's copy changes with the game
+		table.newSearch();
+		analysis = analyst.submit(() -> {
+			search.setReporting(false); // The listener gets every iteration; the console would be flooded
+			try {
+				search.think(position, Search.MAX_PLY, 0);
+			} finally {
+				search.setReporting(true);
+			}
+		});
+	}
+
+	/**
+	 * Stops a running analysis and waits for its thread to finish, so the
+	 * search is free for the next move.
+	 */
+	@Override
+	public void stopAnalysis() {
+		Future<?> running = analysis;
+		if (running == null) {
+			return;
+		}
+		analysis = null;
+		while (!running.isDone()) {
+			search.stop(); // Repeated in case the search had not started yet
+			try {
+				running.get(10, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Still running; stop it again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				e.printStackTrace(); // A failed analysis leaves nothing to stop
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the combined speed of the last search, to check how throughput
+	 * scales with the thread count.
+	 *
+	 * @return The nodes visited per second across all threads.
+	 */
+	public long getNodesPerSecond() {
+		return search.getNodesPerSecond();
+	}
+
+	/**
+	 * Stops the helper threads and releases the transposition table's contents;
+	 * the engine holds no external resources.
+	 */
+	@Override
+	public void close() {
+		stopAnalysis();
+		analyst.shutdownNow();
+		search.close();
+		table.clear();
+	}
+}
@@ -0,0 +1,199 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import board.MoveGenerator;
+import board.MoveList;
+import board.PackedMove;
+import board.Position;
+
+/**
+ * This class reads an opening book in Polyglot's .bin format. The file is a
+ * list of 16-byte big-endian entries sorted by position key:
+ *
+ * <pre>
+ * long   Polyglot key of the position
+ * short  move: to file (bits 0-2), to rank (3-5), from file (6-8),
+ *        from rank (9-11), promotion piece (12-14; 1 knight to 4 queen)
+ * short  weight, proportional to how often the move should be played
+ * int    learning data, unused
+ * </pre>
+ *
+ * The file is memory-mapped rather than read, so the book costs no heap and
+ * opens instantly whatever its size, and a lookup is a binary search over the
+ * mapping. Castling is stored as the king taking its own rook (e1h1) and is
+ * turned into the usual king move (e1g1).
+ */
+public class OpeningBook {
+	private static final int ENTRY_SIZE = 16;
+
+	private final MappedByteBuffer entries;
+	private final int count;
+	private final PolyglotKey keys;
+	private final Random random;
+	private final MoveList legalMoves = new MoveList();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Maps an opening book keyed with Polyglot's standard table, as books made
+	 * by other tools are.
+	 *
+	 * @param file The book file.
+	 * @throws IOException if the file cannot be mapped or is not a whole number
+	 *                     of entries.
+	 */
+	public OpeningBook(Path file) throws IOException {
+		this(file, PolyglotKey.standard());
+	}
+
+	/**
+	 * Maps an opening book.
+	 *
+	 * @param file The book file.
+	 * @param keys The hasher matching the one the book was built with.
+	 * @throws IOException if the file cannot be mapped or is not a whole number
+	 *                     of entries.
+	 */
+	public OpeningBook(Path file, PolyglotKey keys) throws IOException {
+		this(file, keys, new Random());
+	}
+
+	/**
+	 * Maps an opening book.
+	 *
+	 * @param file   The book file.
+	 * @param keys   The hasher matching the one the book was built with.
+	 * @param random The source of the weighted choice between book moves.
+	 * @throws IOException if the file cannot be mapped or is not a whole number
+	 *                     of entries.
+	 */
+	public OpeningBook(Path file, PolyglotKey keys, Random random) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size % ENTRY_SIZE != 0 || size > Integer.MAX_VALUE) {
+				throw new IOException("Not a Polyglot book of a supported size: " + file);
+			}
+			this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); // Stays valid after the channel closes
+			this.count = (int) (size / ENTRY_SIZE);
+		}
+		this.keys = keys;
+		this.random = random;
+	}
+
+	/**
+	 * Chooses a book move for a position, at random in proportion to the
+	 * weights. Entries whose move is not legal in the position, which can only
+	 * come from a key collision, are ignored.
+	 *
+	 * @param position The position.
+	 * @return The move in UCI format, or null if the book has no move for it.
+	 */
+	public synchronized String probe(Position position) {
+		long key = keys.of(position);
+		int first = firstIndex(key);
+		legalMoves.clear();
+		MoveGenerator.generateLegal(position, legalMoves);
+
+		long total = 0;
+		for (int i = first; i < count && keyAt(i) == key; i++) {
+			if (legalMove(position, i) != PackedMove.NONE) {
+				total += weightAt(i);
+			}
+		}
+		if (total == 0) {
+			misses.increment();
+			return null;
+		}
+
+		long pick = (long) (random.nextDouble() * total); // Falls in exactly one entry's share of the total
+		for (int i = first;; i++) {
+			int move = legalMove(position, i);
+			if (move != PackedMove.NONE) {
+				pick -= weightAt(i);
+				if (pick < 0) {
+					hits.increment();
+					return PackedMove.toUCI(move);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the first entry with a key, or where it would be.
+	 */
+	private int firstIndex(long key) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(keyAt(middle), key) < 0) { // Books are sorted as unsigned keys
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private long keyAt(int index) {
+		return entries.getLong(index * ENTRY_SIZE);
+	}
+
+	private int weightAt(int index) {
+		return entries.getShort(index * ENTRY_SIZE + 10) & 0xFFFF;
+	}
+
+	/**
+	 * Decodes an entry's move for the position.
+	 *
+	 * @return The packed move, or PackedMove.NONE if it is not legal.
+	 */
+	private int legalMove(Position position, int index) {
+		int raw = entries.getShort(index * ENTRY_SIZE + 8) & 0xFFFF;
+		int to = raw & 63; // Rank and file together make the square index
+		int from = (raw >>> 6) & 63;
+		int promotion = (raw >>> 12) & 7;
+		if (position.pieceAt(from) == Position.NO_PIECE) {
+			return PackedMove.NONE;
+		}
+		if (position.pieceAt(from) % 6 == Position.KING && Math.abs((from & 7) - (to & 7)) > 1) {
+			to = (to & 7) > (from & 7) ? from + 2 : from - 2; // King takes rook means castling
+		}
+		int move = position.encodeMove(from, to, promotion);
+		return legalMoves.contains(move) ? move : PackedMove.NONE;
+	}
+
+	/**
+	 * Retrieves the number of entries in the book.
+	 *
+	 * @return The entry count.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Retrieves the number of probes that found a book move.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Retrieves the number of probes that found no book move.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+}
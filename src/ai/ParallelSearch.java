@@ -0,0 +1,199 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import board.Position;
+
+/**
+ * This class runs a Lazy SMP search: the calling thread and a number of helper
+ * threads all search the same root position, each on its own copy of the
+ * position, and share results only through the transposition table. Helpers
+ * start at staggered depths so they fill the table with entries the main
+ * search can reuse. The main search's move is the one played.
+ */
+public class ParallelSearch {
+	private final TranspositionTable table;
+	private final int threads;
+	private final ExecutorService helpers;
+
+	private volatile Consumer<InfoLine> infoListener;
+	private volatile boolean reporting = true;
+	private volatile Search main; // The running main search, or null
+
+	private long nodes;
+	private long elapsed;
+
+	/**
+	 * Constructs a parallel search with one thread per available processor.
+	 *
+	 * @param table The transposition table shared by every thread.
+	 */
+	public ParallelSearch(TranspositionTable table) {
+		this(table, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a parallel search.
+	 *
+	 * @param table   The transposition table shared by every thread.
+	 * @param threads The total number of search threads, including the caller.
+	 * @throws IllegalArgumentException if the thread count is below one.
+	 */
+	public ParallelSearch(TranspositionTable table, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+		}
+		this.table = table;
+		this.threads = threads;
+		this.helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+			Thread thread = new Thread(runnable, "search-helper");
+			thread.setDaemon(true); // Helpers must not keep the game running after the window closes
+			return thread;
+		}) : null;
+	}
+
+	/**
+	 * Searches a position with every thread until the main search finishes.
+	 *
+	 * @param position        The position to search; it is not modified.
+	 * @param maxDepth        The deepest iteration to run.
+	 * @param timeLimitMillis The time budget in milliseconds, or 0 for none.
+	 * @return The best packed move, or PackedMove.NONE if there is no legal move.
+	 */
+	public int think(Position position, int maxDepth, long timeLimitMillis) {
+		return think(position, maxDepth, timeLimitMillis, 0);
+	}
+
+	/**
+	 * Searches a position with every thread until the main search finishes.
+	 *
+	 * @param position        The position to search; it is not modified.
+	 * @param maxDepth        The deepest iteration to run.
+	 * @param timeLimitMillis The time budget in milliseconds, or 0 for none.
+	 * @param nodeLimit       The node budget of all threads together, or 0 for
+	 *                        none.
+	 * @return The best packed move, or PackedMove.NONE if there is no legal move.
+	 */
+	public int think(Position position, int maxDepth, long timeLimitMillis, long nodeLimit) {
+		long start = System.currentTimeMillis();
+		AtomicLong sharedNodes = new AtomicLong(); // Every thread stops once the budget is spent
+		List<Search> helperSearches = new ArrayList<>();
+		List<Future<?>> helperResults = new ArrayList<>();
+		for (int i = 1; i < threads; i++) {
+			Search helper = new Search(new Position(position), table);
+			helper.setFirstDepth(1 + (i & 1)); // Every other helper runs one ply ahead
+			helper.setReporting(false);
+			helper.setNodeLimit(nodeLimit);
+			helper.setSharedNodeCounter(sharedNodes);
+			helperSearches.add(helper);
+			helperResults.add(helpers.submit(() -> helper.think(maxDepth, timeLimitMillis)));
+		}
+
+		Search main = new Search(new Position(position), table);
+		main.setNodeLimit(nodeLimit);
+		main.setSharedNodeCounter(sharedNodes);
+		main.setReporting(reporting);
+		main.setInfoListener(infoListener);
+		this.main = main;
+		int bestMove = main.think(maxDepth, timeLimitMillis);
+		this.main = null;
+
+		for (Search helper : helperSearches) {
+			helper.stop();
+		}
+		nodes = main.getNodes();
+		for (int i = 0; i < helperResults.size(); i++) {
+			try {
+				helperResults.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				e.printStackTrace(); // A failed helper only costs throughput
+			}
+			nodes += helperSearches.get(i).getNodes();
+		}
+		elapsed = Math.max(1, System.currentTimeMillis() - start);
+		return bestMove;
+	}
+
+	/**
+	 * Ends the running search early. It returns the best move of the last
+	 * completed iteration. A stop that arrives between searches is ignored.
+	 */
+	public void stop() {
+		Search running = main;
+		if (running != null) {
+			running.stop();
+		}
+	}
+
+	/**
+	 * Sets whether the main search prints its iterations as UCI info lines.
+	 *
+	 * @param reporting true to print info lines, false to search silently.
+	 */
+	public void setReporting(boolean reporting) {
+		this.reporting = reporting;
+	}
+
+	/**
+	 * Sets the listener that receives the main search's completed iterations.
+	 *
+	 * @param infoListener The listener, or null for none.
+	 */
+	public void setInfoListener(Consumer<InfoLine> infoListener) {
+		this.infoListener = infoListener;
+	}
+
+	/**
+	 * Retrieves the number of search threads.
+	 *
+	 * @return The thread count, including the caller.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Retrieves the nodes visited by all threads in the last search.
+	 *
+	 * @return The node count.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Retrieves the wall-clock time of the last search.
+	 *
+	 * @return The time in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return elapsed;
+	}
+
+	/**
+	 * Retrieves the combined search speed of the last search.
+	 *
+	 * @return The nodes visited per second across all threads.
+	 */
+	public long getNodesPerSecond() {
+		return nodes * 1000 / Math.max(1, elapsed);
+	}
+
+	/**
+	 * Stops the helper threads.
+	 */
+	public void close() {
+		if (helpers != null) {
+			helpers.shutdownNow();
+		}
+	}
+}
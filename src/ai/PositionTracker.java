@@ -0,0 +1,126 @@
+package ai;
+
+import board.PackedMove;
+import board.Position;
+
+/**
+ * This class follows a game as its move list grows, so an engine wrapper does
+ * not have to replay or resend the whole game every turn. When a new move list
+ * extends the previous one, only the new moves are parsed and played on a
+ * mirror position.
+ *
+ * For the UCI "position" command the game is described as a FEN snapshot plus
+ * the moves played since. The snapshot is only moved forward at a capture or
+ * pawn move once enough moves have piled up, because no position before such
+ * a move can occur again. The engine therefore still sees every position that
+ * matters for repetition, and the command stays short however long the game
+ * gets.
+ */
+public final class PositionTracker {
+	/** The number of moves after which the snapshot is moved forward. */
+	public static final int SNAPSHOT_INTERVAL = 16;
+
+	private Position position;
+	private String moveList;
+	private String snapshotFen;
+	private final StringBuilder movesSinceSnapshot = new StringBuilder();
+	private int snapshotMoveCount;
+	private final StringBuilder command = new StringBuilder();
+
+	/**
+	 * Constructs a tracker at the starting position.
+	 */
+	public PositionTracker() {
+		reset();
+	}
+
+	/**
+	 * Brings the mirror position up to date with a move list.
+	 *
+	 * @param newMoveList The space-separated list of moves in UCI format, from the
+	 *                    starting position.
+	 * @return The position after the moves. It stays owned by the tracker.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	public Position update(String newMoveList) {
+		newMoveList = newMoveList == null ? "" : newMoveList.trim();
+		int start;
+		if (newMoveList.startsWith(moveList) && (moveList.isEmpty() || newMoveList.length() == moveList.length()
+				|| newMoveList.charAt(moveList.length()) == ' ')) {
+			start = moveList.length(); // Only the moves added since the last call are new
+		} else {
+			reset(); // Moves were taken back or a different game was loaded
+			start = 0;
+		}
+
+		try {
+			while (start < newMoveList.length()) {
+				if (newMoveList.charAt(start) == ' ') {
+					start++;
+					continue;
+				}
+				int end = newMoveList.indexOf(' ', start);
+				if (end < 0) {
+					end = newMoveList.length();
+				}
+				play(newMoveList.substring(start, end));
+				start = end;
+			}
+		} catch (IllegalArgumentException e) {
+			reset(); // Do not leave the mirror halfway through a bad list
+			throw e;
+		}
+		moveList = newMoveList;
+		return position;
+	}
+
+	/**
+	 * Builds the UCI command describing the current position. The returned text
+	 * is reused by the next call.
+	 *
+	 * @return The "position" command.
+	 */
+	public CharSequence positionCommand() {
+		command.setLength(0);
+		if (snapshotFen == null) {
+			command.append("position startpos");
+		} else {
+			command.append("position fen ").append(snapshotFen);
+		}
+		if (movesSinceSnapshot.length() > 0) {
+			command.append(" moves").append(movesSinceSnapshot);
+		}
+		return command;
+	}
+
+	/**
+	 * Plays one move on the mirror and moves the snapshot forward when it may.
+	 */
+	private void play(String uci) {
+		int move = position.parseUCIMove(uci);
+		if (move == PackedMove.NONE) {
+			throw new IllegalArgumentException("Move does not fit the position: " + uci);
+		}
+		position.makeMove(move);
+		snapshotMoveCount++;
+		if (snapshotMoveCount >= SNAPSHOT_INTERVAL && position.getHalfmoveClock() == 0) {
+			snapshotFen = position.toFen(); // Earlier positions cannot repeat after this move
+			movesSinceSnapshot.setLength(0);
+			snapshotMoveCount = 0;
+		} else {
+			movesSinceSnapshot.append(' ');
+			PackedMove.appendUCI(movesSinceSnapshot, move); // Normalized, so promotions always carry their piece
+		}
+	}
+
+	/**
+	 * Returns to the starting position.
+	 */
+	private void reset() {
+		position = Position.fromFen(Position.START_FEN);
+		moveList = "";
+		snapshotFen = null;
+		movesSinceSnapshot.setLength(0);
+		snapshotMoveCount = 0;
+	}
+}
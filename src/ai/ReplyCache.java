@@ -0,0 +1,299 @@
+package ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class remembers engine answers by position, so a position met again
+ * under the same search settings is answered without searching. Positions are
+ * identified by their Zobrist key, and each answer keeps the engine's last
+ * report for it: the score, depth and principal variation.
+ *
+ * The cache holds a fixed number of entries and drops the least recently used
+ * one when full. An entry is not served once it is older than the maximum age
+ * or if it was searched less deeply than the minimum depth.
+ *
+ * The cache can be saved to and loaded from a file:
+ *
+ * <pre>
+ * int     magic "FCRC"
+ * int     format version (1)
+ * int     entry count
+ * entries, least recently used first:
+ *   long  position key
+ *   UTF   search settings, such as "stockfish movetime 750"
+ *   int   depth
+ *   int   score
+ *   byte  1 if the score is a mate distance, 0 otherwise
+ *   UTF   principal variation, space-separated, starting with the best move
+ *   long  time the entry was stored, in milliseconds since the epoch
+ * </pre>
+ */
+public class ReplyCache {
+	/** The number of entries kept by default. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final int MAGIC = 0x46435243; // "FCRC"
+	private static final int VERSION = 1;
+
+	private final int capacity;
+	private final long maxAgeMillis;
+	private final int minDepth;
+	private final LinkedHashMap<Key, Entry> entries;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructs an empty cache that never expires entries.
+	 *
+	 * @param capacity The most entries kept.
+	 */
+	public ReplyCache(int capacity) {
+		this(capacity, 0, 0);
+	}
+
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param capacity     The most entries kept.
+	 * @param maxAgeMillis How long an entry may be served, in milliseconds, or 0
+	 *                     for ever.
+	 * @param minDepth     The shallowest search depth that is served.
+	 * @throws IllegalArgumentException if the capacity is not positive.
+	 */
+	public ReplyCache(int capacity, long maxAgeMillis, int minDepth) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		}
+		this.capacity = capacity;
+		this.maxAgeMillis = maxAgeMillis;
+		this.minDepth = minDepth;
+		this.entries = new LinkedHashMap<Key, Entry>(capacity * 4 / 3 + 1, 0.75f, true) { // Access order
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > ReplyCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Looks up an answer. Entries that are too old are removed.
+	 *
+	 * @param positionKey The Zobrist key of the position.
+	 * @param settings    The engine and search limits the answer was found with.
+	 * @return The answer, or null if none may be served.
+	 */
+	public synchronized Entry get(long positionKey, String settings) {
+		Key key = new Key(positionKey, settings);
+		Entry entry = entries.get(key);
+		if (entry != null && maxAgeMillis > 0 && System.currentTimeMillis() - entry.created > maxAgeMillis) {
+			entries.remove(key); // Stale; a fresh search will replace it
+			entry = null;
+		}
+		if (entry == null || entry.line.getDepth() < minDepth) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry;
+	}
+
+	/**
+	 * Stores an answer, replacing any earlier one for the same position and
+	 * settings.
+	 *
+	 * @param positionKey The Zobrist key of the position.
+	 * @param settings    The engine and search limits the answer was found with.
+	 * @param line        The engine's last report, whose variation starts with
+	 *                    the move played.
+	 * @throws IllegalArgumentException if the report has no variation.
+	 */
+	public void put(long positionKey, String settings, InfoLine line) {
+		put(positionKey, settings, line, System.currentTimeMillis());
+	}
+
+	private synchronized void put(long positionKey, String settings, InfoLine line, long created) {
+		if (line.getPv().isEmpty()) {
+			throw new IllegalArgumentException("An answer needs a principal variation");
+		}
+		entries.put(new Key(positionKey, settings), new Entry(line, created));
+	}
+
+	/**
+	 * Removes an answer, such as one that turned out not to fit its position.
+	 *
+	 * @param positionKey The Zobrist key of the position.
+	 * @param settings    The engine and search limits the answer was found with.
+	 */
+	public synchronized void remove(long positionKey, String settings) {
+		entries.remove(new Key(positionKey, settings));
+	}
+
+	/**
+	 * Retrieves the number of entries.
+	 *
+	 * @return The entry count.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Retrieves the share of lookups that were answered.
+	 *
+	 * @return The hit rate between 0 and 1.
+	 */
+	public synchronized double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	/**
+	 * Saves the cache to a file, replacing it only once the new contents are
+	 * fully written.
+	 *
+	 * @param file The file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public synchronized void save(Path file) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+			for (Map.Entry<Key, Entry> mapping : entries.entrySet()) { // Least recently used first
+				Key key = mapping.getKey();
+				InfoLine line = mapping.getValue().line;
+				out.writeLong(key.position);
+				out.writeUTF(key.settings);
+				out.writeInt(line.getDepth());
+				out.writeInt(line.getScore());
+				out.writeBoolean(line.isMate());
+				out.writeUTF(String.join(" ", line.getPv()));
+				out.writeLong(mapping.getValue().created);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Adds the entries saved in a file, keeping their order of use. Entries
+	 * already too old are skipped.
+	 *
+	 * @param file The file to read.
+	 * @throws IOException if the file cannot be read or is not a cache file.
+	 */
+	public synchronized void load(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a reply cache file: " + file);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported reply cache version " + version + ": " + file);
+			}
+			int count = in.readInt();
+			long now = System.currentTimeMillis();
+			for (int i = 0; i < count; i++) {
+				long position = in.readLong();
+				String settings = in.readUTF();
+				int depth = in.readInt();
+				int score = in.readInt();
+				boolean mate = in.readBoolean();
+				String pv = in.readUTF();
+				long created = in.readLong();
+				if ((maxAgeMillis > 0 && now - created > maxAgeMillis) || pv.isEmpty()) {
+					continue;
+				}
+				InfoLine line = new InfoLine(depth, 1, score, mate, -1, -1, -1, Arrays.asList(pv.split(" ")));
+				put(position, settings, line, created);
+			}
+		}
+	}
+
+	/**
+	 * This class is a cached answer.
+	 */
+	public static final class Entry {
+		private final InfoLine line;
+		private final long created;
+
+		private Entry(InfoLine line, long created) {
+			this.line = line;
+			this.created = created;
+		}
+
+		/**
+		 * Retrieves the move the engine played.
+		 *
+		 * @return The move in UCI format.
+		 */
+		public String getMove() {
+			return line.getPv().get(0);
+		}
+
+		/**
+		 * Retrieves the reply the engine expected to its move.
+		 *
+		 * @return The reply in UCI format, or null if the line ends at the move.
+		 */
+		public String getPonder() {
+			return line.getPv().size() > 1 ? line.getPv().get(1) : null;
+		}
+
+		/**
+		 * Retrieves the engine's last report for the position.
+		 *
+		 * @return The report, with the score, depth and principal variation.
+		 */
+		public InfoLine getLine() {
+			return line;
+		}
+
+		/**
+		 * Retrieves when the answer was stored.
+		 *
+		 * @return The time in milliseconds since the epoch.
+		 */
+		public long getCreated() {
+			return created;
+		}
+	}
+
+	/**
+	 * Identifies a position searched with particular settings.
+	 */
+	private static final class Key {
+		private final long position;
+		private final String settings;
+
+		private Key(long position, String settings) {
+			this.position = position;
+			this.settings = settings;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return position == key.position && settings.equals(key.settings);
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(position) * 31 + settings.hashCode();
+		}
+	}
+}
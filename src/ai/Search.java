@@ -0,0 +1,562 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import board.MoveGenerator;
+import board.MoveList;
+import board.PackedMove;
+import board.Position;
+
+/**
+ * This class is the built-in game-tree search. It runs iterative deepening
+ * over a principal variation search (alpha-beta with null windows on all but
+ * the first move), extends checks, prunes with null moves and late-move
+ * reductions, and resolves captures with a quiescence search.
+ *
+ * Results are shared through a {@link TranspositionTable}, which cuts off
+ * positions already searched deeply enough and supplies the first move to try.
+ * Other moves are ordered with captures by most
+ * valuable victim / least valuable attacker, then killer moves and the history
+ * heuristic. All working storage is allocated once per search object, so the
+ * search itself does not allocate.
+ */
+public class Search {
+	public static final int INFINITY = 32000;
+	public static final int MATE = 31000;
+	public static final int MAX_PLY = 100;
+	/** Scores beyond this bound are mate scores. */
+	public static final int MATE_BOUND = MATE - MAX_PLY;
+
+	private static final int BEST_MOVE_SCORE = 1_000_000;
+	private static final int CAPTURE_SCORE = 100_000;
+	private static final int PROMOTION_SCORE = 90_000;
+	private static final int KILLER_SCORE = 80_000;
+	private static final int HISTORY_LIMIT = 60_000;
+	private static final int CHECK_INTERVAL = 2048; // Nodes between checks of the limits, a power of two
+
+	private final Position position;
+	private final TranspositionTable table;
+	private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+	private final int[][] moveScores = new int[MAX_PLY + 1][MoveList.CAPACITY];
+	private final int[][] killers = new int[MAX_PLY + 1][2];
+	private final int[][] history = new int[12][64]; // Indexed by piece code and destination
+	private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private final int[] pvLength = new int[MAX_PLY + 1];
+
+	private long nodes;
+	private long deadline;
+	private long nodeLimit;
+	private AtomicLong sharedNodes; // The nodes of every thread searching together, or null
+	private boolean stopped;
+	private volatile boolean stopRequested;
+	private int firstDepth = 1;
+	private boolean reporting = true;
+	private Consumer<InfoLine> infoListener;
+	private int rootBestMove;
+	private int bestMove;
+	private int bestScore;
+	private int completedDepth;
+	private int[] principalVariation = new int[0];
+
+	/**
+	 * Constructs a search over a position with a private transposition table.
+	 *
+	 * @param position The position to search.
+	 */
+	public Search(Position position) {
+		this(position, new TranspositionTable());
+	}
+
+	/**
+	 * Constructs a search over a position. The position is modified during the
+	 * search and restored when it finishes.
+	 *
+	 * @param position The position to search.
+	 * @param table    The transposition table, which may be shared with other
+	 *                 searches.
+	 */
+	public Search(Position position, TranspositionTable table) {
+		this.position = position;
+		this.table = table;
+		for (int i = 0; i <= MAX_PLY; i++) {
+			moveLists[i] = new MoveList();
+		}
+	}
+
+	/**
+	 * Searches for the best move, deepening one ply at a time until the depth or
+	 * time limit is reached. Positions with a single legal move return it
+	 * immediately.
+	 *
+	 * @param maxDepth        The deepest iteration to run.
+	 * @param timeLimitMillis The time budget in milliseconds, or 0 for none.
+	 * @return The best packed move, or PackedMove.NONE if there is no legal move.
+	 */
+	public int think(int maxDepth, long timeLimitMillis) {
+		long start = System.currentTimeMillis();
+		deadline = timeLimitMillis > 0 ? start + timeLimitMillis : Long.MAX_VALUE;
+		nodes = 0;
+		stopped = stopRequested; // A stop that arrives before the search starts still counts
+		completedDepth = 0;
+		bestScore = 0;
+		principalVariation = new int[0];
+
+		MoveList rootMoves = moveLists[0];
+		rootMoves.clear();
+		MoveGenerator.generateLegal(position, rootMoves);
+		if (rootMoves.size() == 0) {
+			bestMove = PackedMove.NONE;
+			return bestMove;
+		}
+		bestMove = rootMoves.get(0);
+		if (rootMoves.size() == 1) {
+			return bestMove; // Nothing to think about
+		}
+
+		rootBestMove = PackedMove.NONE;
+		for (int depth = Math.min(firstDepth, maxDepth); depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+			int score = alphaBeta(depth, 0, -INFINITY, INFINITY, false);
+			if (stopped) {
+				break; // An interrupted iteration is not trusted
+			}
+			bestMove = pvTable[0][0];
+			rootBestMove = bestMove;
+			bestScore = score;
+			completedDepth = depth;
+			principalVariation = Arrays.copyOf(pvTable[0], pvLength[0]);
+
+			long elapsed = System.currentTimeMillis() - start;
+			if (reporting || infoListener != null) {
+				String info = "info depth " + depth + " score " + formatScore(score) + " nodes " + nodes + " nps "
+						+ nodes * 1000 / Math.max(1, elapsed) + " time " + elapsed + " pv " + formatPv();
+				if (reporting) {
+					System.out.println(info);
+				}
+				if (infoListener != null) {
+					infoListener.accept(InfoLine.parse(info)); // Listeners get the same report as the console
+				}
+			}
+
+			if (Math.abs(score) >= MATE_BOUND) {
+				break; // A forced mate will not get any better
+			}
+			if (timeLimitMillis > 0 && elapsed * 2 > timeLimitMillis) {
+				break; // The next iteration would not finish in time
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Limits the number of nodes the search may visit.
+	 *
+	 * @param nodeLimit The node budget, or 0 for none.
+	 */
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * Makes the node budget count the nodes of other searches sharing the same
+	 * counter, so threads searching together stop once they have spent it
+	 * between them.
+	 *
+	 * @param sharedNodes The counter shared by the searches, or null to count
+	 *                    this search's nodes only.
+	 */
+	public void setSharedNodeCounter(AtomicLong sharedNodes) {
+		this.sharedNodes = sharedNodes;
+	}
+
+	/**
+	 * Sets the depth of the first iteration. Helper threads of a parallel search
+	 * start at different depths so they spread out over the tree.
+	 *
+	 * @param firstDepth The depth to start deepening from.
+	 */
+	public void setFirstDepth(int firstDepth) {
+		this.firstDepth = Math.max(1, firstDepth);
+	}
+
+	/**
+	 * Sets whether each completed iteration is printed as a UCI info line.
+	 *
+	 * @param reporting true to print info lines, false to search silently.
+	 */
+	public void setReporting(boolean reporting) {
+		this.reporting = reporting;
+	}
+
+	/**
+	 * Sets the listener that receives each completed iteration as an info line.
+	 * It is called on the searching thread, whether or not reporting is on.
+	 *
+	 * @param infoListener The listener, or null for none.
+	 */
+	public void setInfoListener(Consumer<InfoLine> infoListener) {
+		this.infoListener = infoListener;
+	}
+
+	/**
+	 * Asks a running search to stop as soon as possible. Safe to call from any
+	 * thread, including before the search starts.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * The principal variation search.
+	 *
+	 * @param depth     The remaining depth in plies.
+	 * @param ply       The distance from the root.
+	 * @param alpha     The lower bound of the window.
+	 * @param beta      The upper bound of the window.
+	 * @param allowNull Whether a null move may be tried at this node.
+	 * @return The score of the node for the side to move.
+	 */
+	private int alphaBeta(int depth, int ply, int alpha, int beta, boolean allowNull) {
+		pvLength[ply] = ply;
+		if ((++nodes & (CHECK_INTERVAL - 1)) == 0) {
+			checkTime();
+		}
+		if (stopped) {
+			return 0;
+		}
+
+		if (ply > 0) {
+			if (position.getHalfmoveClock() >= 100 || position.isRepetition()) {
+				return 0;
+			}
+			// A mate found closer to the root cannot be improved on here
+			alpha = Math.max(alpha, -MATE + ply);
+			beta = Math.min(beta, MATE - ply - 1);
+			if (alpha >= beta) {
+				return alpha;
+			}
+		}
+
+		int us = position.getSideToMove();
+		boolean inCheck = position.isInCheck(us);
+		if (inCheck) {
+			depth++; // Check extension
+		}
+		if (depth <= 0) {
+			return quiescence(ply, alpha, beta);
+		}
+		if (ply >= MAX_PLY - 1) {
+			return Evaluation.evaluate(position);
+		}
+
+		boolean pvNode = beta - alpha > 1;
+		long key = position.getKey();
+		long entry = table.probe(key);
+		int hashMove = TranspositionTable.move(entry);
+		if (entry != 0 && !pvNode && TranspositionTable.depth(entry) >= depth) {
+			int score = TranspositionTable.scoreFromTable(TranspositionTable.score(entry), ply);
+			int bound = TranspositionTable.bound(entry);
+			if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+					|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+				return score;
+			}
+		}
+
+		if (allowNull && !pvNode && !inCheck && depth >= 3 && hasPiecesBesidesPawns(us)
+				&& Evaluation.evaluate(position) >= beta) {
+			position.makeNullMove();
+			int score = -alphaBeta(depth - 3, ply + 1, -beta, -beta + 1, false);
+			position.unmakeNullMove();
+			if (stopped) {
+				return 0;
+			}
+			if (score >= beta) {
+				return beta;
+			}
+		}
+
+		MoveList moves = moveLists[ply];
+		moves.clear();
+		MoveGenerator.generate(position, us, moves);
+		scoreMoves(moves, ply, ply == 0 && rootBestMove != PackedMove.NONE ? rootBestMove : hashMove);
+
+		int alphaOriginal = alpha;
+		int legal = 0;
+		int best = -INFINITY;
+		int bestNodeMove = PackedMove.NONE;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = pickNext(moves, ply, i);
+			position.makeMove(move);
+			if (position.isInCheck(us)) {
+				position.unmakeMove(move);
+				continue;
+			}
+			legal++;
+
+			int score;
+			if (legal == 1) {
+				score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, true);
+			} else {
+				boolean quiet = !PackedMove.isCapture(move) && PackedMove.promotion(move) == 0;
+				int reduction = 0;
+				if (depth >= 3 && legal > 3 && quiet && !inCheck && !position.isInCheck(us ^ 1)) {
+					reduction = legal > 8 ? 2 : 1; // Late quiet moves are searched shallower first
+				}
+				score = -alphaBeta(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+				if (score > alpha && reduction > 0) {
+					score = -alphaBeta(depth - 1, ply + 1, -alpha - 1, -alpha, true);
+				}
+				if (score > alpha && score < beta) {
+					score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, true);
+				}
+			}
+			position.unmakeMove(move);
+			if (stopped) {
+				return 0;
+			}
+
+			if (score > best) {
+				best = score;
+				bestNodeMove = move;
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if (score >= beta) {
+						if (!PackedMove.isCapture(move)) {
+							recordQuietCutoff(move, ply, depth);
+						}
+						break;
+					}
+				}
+			}
+		}
+
+		if (legal == 0) {
+			return inCheck ? -MATE + ply : 0; // Checkmate or stalemate
+		}
+
+		int bound = best >= beta ? TranspositionTable.LOWER
+				: best > alphaOriginal ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(key, bound == TranspositionTable.UPPER ? PackedMove.NONE : bestNodeMove, depth, bound,
+				TranspositionTable.scoreToTable(best, ply));
+		return best;
+	}
+
+	/**
+	 * Searches captures until the position is quiet, so the evaluation is never
+	 * taken in the middle of an exchange.
+	 */
+	private int quiescence(int ply, int alpha, int beta) {
+		pvLength[ply] = ply;
+		if ((++nodes & (CHECK_INTERVAL - 1)) == 0) {
+			checkTime();
+		}
+		if (stopped) {
+			return 0;
+		}
+
+		int standPat = Evaluation.evaluate(position);
+		if (ply >= MAX_PLY - 1 || standPat >= beta) {
+			return standPat;
+		}
+		if (standPat > alpha) {
+			alpha = standPat;
+		}
+
+		int us = position.getSideToMove();
+		MoveList moves = moveLists[ply];
+		moves.clear();
+		MoveGenerator.generateCaptures(position, us, moves);
+		scoreMoves(moves, ply, PackedMove.NONE);
+
+		int best = standPat;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = pickNext(moves, ply, i);
+			position.makeMove(move);
+			if (position.isInCheck(us)) {
+				position.unmakeMove(move);
+				continue;
+			}
+			int score = -quiescence(ply + 1, -beta, -alpha);
+			position.unmakeMove(move);
+			if (stopped) {
+				return 0;
+			}
+			if (score > best) {
+				best = score;
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if (score >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Assigns an ordering score to every move in a list.
+	 */
+	private void scoreMoves(MoveList moves, int ply, int bestFirst) {
+		int[] scores = moveScores[ply];
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			int to = PackedMove.to(move);
+			int attacker = position.pieceAt(PackedMove.from(move));
+			if (move == bestFirst) {
+				scores[i] = BEST_MOVE_SCORE;
+			} else if (PackedMove.isCapture(move)) {
+				int victim = (move & PackedMove.EN_PASSANT) != 0 ? Position.PAWN
+						: Position.typeOf(position.pieceAt(to));
+				scores[i] = CAPTURE_SCORE + Evaluation.pieceValue(victim) * 10 - Position.typeOf(attacker);
+			} else if (PackedMove.promotion(move) == Position.QUEEN) {
+				scores[i] = PROMOTION_SCORE;
+			} else if (move == killers[ply][0]) {
+				scores[i] = KILLER_SCORE;
+			} else if (move == killers[ply][1]) {
+				scores[i] = KILLER_SCORE - 1;
+			} else {
+				scores[i] = history[attacker][to];
+			}
+		}
+	}
+
+	/**
+	 * Moves the highest-scored remaining move to an index and returns it.
+	 */
+	private int pickNext(MoveList moves, int ply, int index) {
+		int[] scores = moveScores[ply];
+		int bestIndex = index;
+		for (int i = index + 1; i < moves.size(); i++) {
+			if (scores[i] > scores[bestIndex]) {
+				bestIndex = i;
+			}
+		}
+		if (bestIndex != index) {
+			moves.swap(index, bestIndex);
+			int tmp = scores[index];
+			scores[index] = scores[bestIndex];
+			scores[bestIndex] = tmp;
+		}
+		return moves.get(index);
+	}
+
+	/**
+	 * Remembers a quiet move that caused a cutoff as a killer and in the history
+	 * table.
+	 */
+	private void recordQuietCutoff(int move, int ply, int depth) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int[] row = history[position.pieceAt(PackedMove.from(move))];
+		int to = PackedMove.to(move);
+		row[to] += depth * depth;
+		if (row[to] > HISTORY_LIMIT) {
+			for (int[] counts : history) {
+				for (int sq = 0; sq < 64; sq++) {
+					counts[sq] >>= 1; // Age every entry so recent cutoffs dominate
+				}
+			}
+		}
+	}
+
+	/**
+	 * Extends the principal variation of a ply with a new best move.
+	 */
+	private void updatePv(int ply, int move) {
+		pvTable[ply][ply] = move;
+		for (int i = ply + 1; i < pvLength[ply + 1]; i++) {
+			pvTable[ply][i] = pvTable[ply + 1][i];
+		}
+		pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+	}
+
+	/**
+	 * Checks if a color has a knight, bishop, rook or queen, which makes a null
+	 * move safe from zugzwang in practice.
+	 */
+	private boolean hasPiecesBesidesPawns(int color) {
+		return (position.getOccupancy(color) & ~position.getPieces(color, Position.PAWN)
+				& ~position.getPieces(color, Position.KING)) != 0;
+	}
+
+	/**
+	 * Stops the search once the deadline passes, the node budget is spent or a
+	 * stop was requested.
+	 */
+	private void checkTime() {
+		long spent = sharedNodes != null ? sharedNodes.addAndGet(CHECK_INTERVAL) : nodes;
+		if (stopRequested || System.currentTimeMillis() >= deadline || (nodeLimit > 0 && spent >= nodeLimit)) {
+			stopped = true;
+		}
+	}
+
+	/**
+	 * Formats a score the way UCI engines report it.
+	 *
+	 * @param score The score in centipawns or a mate score.
+	 * @return "cp N" or "mate N" in moves.
+	 */
+	public static String formatScore(int score) {
+		if (score >= MATE_BOUND) {
+			return "mate " + (MATE - score + 1) / 2;
+		}
+		if (score <= -MATE_BOUND) {
+			return "mate -" + (MATE + score) / 2;
+		}
+		return "cp " + score;
+	}
+
+	/**
+	 * Formats the principal variation of the last completed iteration.
+	 */
+	private String formatPv() {
+		StringBuilder pv = new StringBuilder();
+		for (int move : principalVariation) {
+			PackedMove.appendUCI(pv, move);
+			pv.append(' ');
+		}
+		return pv.toString().trim();
+	}
+
+	/**
+	 * Retrieves the number of nodes visited by the last search.
+	 *
+	 * @return The node count.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Retrieves the score of the last completed iteration.
+	 *
+	 * @return The score in centipawns for the side to move, or a mate score.
+	 */
+	public int getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Retrieves the depth of the last completed iteration.
+	 *
+	 * @return The depth in plies.
+	 */
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * Retrieves the principal variation of the last completed iteration.
+	 *
+	 * @return The packed moves of the expected line.
+	 */
+	public int[] getPrincipalVariation() {
+		return principalVariation.clone();
+	}
+}
@@ -0,0 +1,168 @@
+package ai;
+
+import board.Position;
+
+/**
+ * This class describes how long an engine may think about a move, in the
+ * terms of the UCI "go" command: a fixed time per move, a depth or node
+ * budget, or the players' clocks with their increments.
+ */
+public final class SearchLimits {
+	private final long moveTime;
+	private final int depth;
+	private final long nodes;
+	private final boolean clock;
+	private final long whiteTime;
+	private final long blackTime;
+	private final long whiteIncrement;
+	private final long blackIncrement;
+	private final int movesToGo;
+
+	private SearchLimits(long moveTime, int depth, long nodes, boolean clock, long whiteTime, long blackTime,
+			long whiteIncrement, long blackIncrement, int movesToGo) {
+		this.moveTime = moveTime;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.clock = clock;
+		this.whiteTime = whiteTime;
+		this.blackTime = blackTime;
+		this.whiteIncrement = whiteIncrement;
+		this.blackIncrement = blackIncrement;
+		this.movesToGo = movesToGo;
+	}
+
+	/**
+	 * Creates limits that search for a fixed time.
+	 *
+	 * @param millis The time per move in milliseconds.
+	 * @return The limits.
+	 */
+	public static SearchLimits moveTime(long millis) {
+		return new SearchLimits(millis, 0, 0, false, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Creates limits that search to a fixed depth.
+	 *
+	 * @param depth The depth in plies.
+	 * @return The limits.
+	 */
+	public static SearchLimits depth(int depth) {
+		return new SearchLimits(0, depth, 0, false, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Creates limits that search a fixed number of nodes.
+	 *
+	 * @param nodes The node budget.
+	 * @return The limits.
+	 */
+	public static SearchLimits nodes(long nodes) {
+		return new SearchLimits(0, 0, nodes, false, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Creates limits from the players' clocks.
+	 *
+	 * @param whiteTime      White's remaining time in milliseconds.
+	 * @param blackTime      Black's remaining time in milliseconds.
+	 * @param whiteIncrement White's increment per move in milliseconds.
+	 * @param blackIncrement Black's increment per move in milliseconds.
+	 * @param movesToGo      The moves until the next time control, or 0 if the
+	 *                       remaining time covers the whole game.
+	 * @return The limits.
+	 */
+	public static SearchLimits clock(long whiteTime, long blackTime, long whiteIncrement, long blackIncrement,
+			int movesToGo) {
+		return new SearchLimits(0, 0, 0, true, whiteTime, blackTime, whiteIncrement, blackIncrement, movesToGo);
+	}
+
+	/**
+	 * Retrieves the fixed time per move.
+	 *
+	 * @return The time in milliseconds, or 0 if not limited this way.
+	 */
+	public long getMoveTime() {
+		return moveTime;
+	}
+
+	/**
+	 * Retrieves the depth budget.
+	 *
+	 * @return The depth in plies, or 0 if not limited this way.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Retrieves the node budget.
+	 *
+	 * @return The node count, or 0 if not limited this way.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Checks if the limits come from the players' clocks.
+	 *
+	 * @return true for clock limits, false otherwise.
+	 */
+	public boolean hasClock() {
+		return clock;
+	}
+
+	/**
+	 * Retrieves a side's remaining time.
+	 *
+	 * @param color The color index (Position.WHITE or Position.BLACK).
+	 * @return The time in milliseconds.
+	 */
+	public long getTime(int color) {
+		return color == Position.WHITE ? whiteTime : blackTime;
+	}
+
+	/**
+	 * Retrieves a side's increment per move.
+	 *
+	 * @param color The color index (Position.WHITE or Position.BLACK).
+	 * @return The increment in milliseconds.
+	 */
+	public long getIncrement(int color) {
+		return color == Position.WHITE ? whiteIncrement : blackIncrement;
+	}
+
+	/**
+	 * Retrieves the moves until the next time control.
+	 *
+	 * @return The move count, or 0 if the remaining time covers the whole game.
+	 */
+	public int getMovesToGo() {
+		return movesToGo;
+	}
+
+	/**
+	 * Formats the limits as the arguments of a UCI "go" command.
+	 *
+	 * @return The arguments, such as "movetime 750" or "wtime 60000 btime 60000".
+	 */
+	public String toUciArguments() {
+		if (clock) {
+			return "wtime " + whiteTime + " btime " + blackTime + " winc " + whiteIncrement + " binc " + blackIncrement
+					+ (movesToGo > 0 ? " movestogo " + movesToGo : "");
+		}
+		if (depth > 0) {
+			return "depth " + depth;
+		}
+		if (nodes > 0) {
+			return "nodes " + nodes;
+		}
+		return "movetime " + moveTime;
+	}
+
+	@Override
+	public String toString() {
+		return toUciArguments();
+	}
+}
@@ -0,0 +1,27 @@
+package ai;
+
+/**
+ * This class spends the clock evenly over the moves expected before the next
+ * time control, plus most of the increment, and always keeps a safety margin
+ * for the time it takes to report the move.
+ */
+public class StandardTimeManager implements TimeManager {
+	/** The number of moves assumed to remain when there is no time control. */
+	public static final int EXPECTED_MOVES = 30;
+	/** The time kept back for communication and scheduling delays. */
+	public static final long MOVE_OVERHEAD = 50;
+
+	@Override
+	public long allocate(SearchLimits limits, int sideToMove) {
+		if (limits.getMoveTime() > 0) {
+			return limits.getMoveTime();
+		}
+		if (!limits.hasClock()) {
+			return 0; // Depth and node budgets are not timed
+		}
+		long remaining = limits.getTime(sideToMove);
+		int moves = limits.getMovesToGo() > 0 ? limits.getMovesToGo() : EXPECTED_MOVES;
+		long budget = remaining / moves + limits.getIncrement(sideToMove) * 3 / 4;
+		return Math.max(1, Math.min(budget, remaining - MOVE_OVERHEAD));
+	}
+}
@@ -3,47 +3,114 @@ package ai;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import board.MoveGenerator;
+import board.MoveList;
+import board.PackedMove;
+import board.Position;
 
 /**
  * This class represents an interface to the Stockfish chess engine. It handles
  * communication with the Stockfish process to get chess moves.
+ *
+ * A dedicated reader thread parses everything the engine prints into typed
+ * events: "info" lines go to an optional listener, and "readyok" and
+ * "bestmove" complete the futures returned by {@link #isReady()} and
+ * {@link #search}. Callers are never blocked on the engine's output stream,
+ * and every wait has a deadline, so a hung engine cannot freeze the game.
+ * After a search times out, the next search first checks the engine answers
+ * "isready", and restarts the process if it does not.
  */
 
-public class StockfishEngine {
+public class StockfishEngine implements ChessEngine {
+	/** The path to the Stockfish executable shipped with the game. */
+	public static final String DEFAULT_PATH = "./stockfish/stockfish/stockfish-windows-x86-64-sse41-popcnt.exe";
+	/** The time Stockfish searches per move unless other limits are set. */
+	public static final long MOVE_TIME = 750;
+	/** How long the engine may take to acknowledge a command or overrun its search time. */
+	public static final long RESPONSE_TIMEOUT = 5000;
+	/** How long a depth- or node-limited search may take before it is considered hung. */
+	public static final long UNTIMED_SEARCH_TIMEOUT = 60_000;
 
+	private final String[] command; // The command line the process is started, and restarted, with
 	private Process stockfishProcess;
 	private BufferedReader reader;
 	private PrintWriter writer;
-	private ExecutorService executor;
+	private Thread readerThread;
+	private final PositionTracker tracker = new PositionTracker(); // The game as last sent to the engine
+	private final Map<String, Object> options = new LinkedHashMap<>(); // Options sent, replayed after a restart
+	private volatile CompletableFuture<Void> uciOk;
+	private final Queue<CompletableFuture<Void>> pendingReady = new ConcurrentLinkedQueue<>();
+	private final Queue<CompletableFuture<BestMove>> pendingSearches = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger staleAnswers = new AtomicInteger(); // Late answers to timed-out searches, dropped
+	private boolean outOfSync; // Whether a search timed out since the engine last answered "isready"
+	private int restartCount; // How many times a hung engine was replaced
+	private volatile Consumer<InfoLine> infoListener;
+	private SearchLimits limits = SearchLimits.moveTime(MOVE_TIME); // How long to think per move
+	private boolean ponderEnabled; // Whether to think on the opponent's time
+	private String expectedReply; // The opponent's reply predicted by the last search
+	private String ponderMoveList; // The move list being pondered on, or null
+	private CompletableFuture<BestMove> ponderSearch; // The running ponder search, or null
+	private CompletableFuture<BestMove> analysis; // The running infinite analysis, or null
+	private int analysisLines = 1; // The MultiPV option last sent to the engine
 
 	/**
 	 * Constructs a new StockfishEngine.
 	 *
-	 * @param stockfishPath The path to the Stockfish executable.
-	 * @throws IOException if an I/O error occurs.
+	 * @param command The path to the Stockfish executable, optionally followed by
+	 *                arguments, or the command line of any other UCI engine.
+	 * @throws IOException if an I/O error occurs or the engine does not answer.
+	 */
+	public StockfishEngine(String... command) throws IOException {
+		this.command = command.clone();
+		startProcess();
+	}
+
+	/**
+	 * Starts the engine process and its reader thread, and waits until the
+	 * engine is ready.
+	 *
+	 * @throws IOException if the process cannot be started or does not answer.
 	 */
-	public StockfishEngine(String stockfishPath) throws IOException {
-		ProcessBuilder processBuilder = new ProcessBuilder(stockfishPath);
+	private void startProcess() throws IOException {
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
 		stockfishProcess = processBuilder.start();
-		reader = new BufferedReader(new InputStreamReader(stockfishProcess.getInputStream()));
+		BufferedReader in = new BufferedReader(new InputStreamReader(stockfishProcess.getInputStream()));
+		reader = in;
 		writer = new PrintWriter(stockfishProcess.getOutputStream());
-		executor = Executors.newSingleThreadExecutor();
-		initializeEngine();
+		uciOk = new CompletableFuture<>();
+		readerThread = new Thread(() -> readOutput(in), "stockfish-reader");
+		readerThread.setDaemon(true); // Never keep the game running on the engine's account
+		readerThread.start();
+		try {
+			initializeEngine();
+		} catch (IOException e) {
+			stockfishProcess.destroyForcibly(); // Not left running when the caller gets no engine to close
+			throw e;
+		}
 	}
 
 	/**
 	 * Initializes the Stockfish engine by sending necessary commands.
 	 *
-	 * @throws IOException if an I/O error occurs.
+	 * @throws IOException if an I/O error occurs or the engine does not answer.
 	 */
 	private void initializeEngine() throws IOException {
 		sendCommand("uci"); // Send UCI (Universal Chess Interface) command
-		waitFor("uciok"); // Wait for the engine to acknowledge UCI
-		sendCommand("isready"); // Check if the engine is ready
-		waitFor("readyok"); // Wait for the engine to be ready
+		await(uciOk, RESPONSE_TIMEOUT); // Wait for the engine to acknowledge UCI
+		await(isReady(), RESPONSE_TIMEOUT); // Wait for the engine to be ready
 		sendCommand("ucinewgame"); // Initialize a new game
 	}
 
@@ -52,86 +119,485 @@ public class StockfishEngine {
 	 *
 	 * @param command The command to send.
 	 */
-	public void sendCommand(String command) {
+	public synchronized void sendCommand(CharSequence command) {
 		System.out.println("Sending command to Stockfish: " + command);
-		writer.println(command);
+		writer.append(command).println();
 		writer.flush();
 	}
 
 	/**
-	 * Gets the best move from the Stockfish engine for a given move list.
+	 * Sets a UCI option, such as Threads or Hash. Options take effect once the
+	 * engine is ready again.
 	 *
-	 * @param moveList The list of moves in UCI format.
-	 * @return The best move in UCI format.
-	 * @throws IOException if an I/O error occurs.
+	 * @param name  The option name.
+	 * @param value The option value.
 	 */
-	public String getBestMove(String moveList) throws IOException {
-		sendCommand("position startpos moves " + moveList); // Set up the position with the given move list
-		sendCommand("go movetime 750"); // Search for the best move with a time limit //**[ADJUST THIS FOR DIFFICULTY!!!]**//
-		return waitForBestMove(); // Wait for and return the best move
+	public synchronized void setOption(String name, Object value) {
+		options.put(name, value);
+		sendCommand("setoption name " + name + " value " + value);
 	}
 
 	/**
-	 * Reads a line of output from the Stockfish engine.
+	 * Starts a new game on the engine, clearing what it learned from the last
+	 * one, and waits until it is ready.
 	 *
-	 * @return The line of output.
-	 * @throws IOException if an I/O error occurs.
+	 * @throws IOException if the engine does not answer in time.
 	 */
-	private String readLine() throws IOException {
-		String line = reader.readLine();
-		System.out.println("Read line: " + line);
-		return line;
+	public void newGame() throws IOException {
+		sendCommand("ucinewgame");
+		await(isReady(), RESPONSE_TIMEOUT);
 	}
 
 	/**
-	 * Waits for a specific keyword in the output from the Stockfish engine.
+	 * Sets how long the engine may think about each move.
 	 *
-	 * @param keyword The keyword to wait for.
-	 * @throws IOException if an I/O error occurs.
+	 * @param limits The search limits, passed to the engine's "go" command.
+	 */
+	@Override
+	public synchronized void setLimits(SearchLimits limits) {
+		this.limits = limits;
+	}
+
+	/**
+	 * Turns pondering on or off. While it is on, {@link #startPondering} makes
+	 * the engine think on the opponent's time.
+	 *
+	 * @param ponderEnabled true to ponder, false otherwise.
+	 */
+	public synchronized void setPondering(boolean ponderEnabled) {
+		this.ponderEnabled = ponderEnabled;
+		setOption("Ponder", ponderEnabled);
+		if (!ponderEnabled) {
+			cancelPondering();
+		}
+	}
+
+	/**
+	 * Checks if the engine process is still running.
+	 *
+	 * @return true if the process is alive, false if it exited or crashed.
+	 */
+	public boolean isAlive() {
+		return stockfishProcess.isAlive() && readerThread.isAlive();
+	}
+
+	/**
+	 * Gets how many times the engine was restarted because it stopped answering.
+	 *
+	 * @return The number of restarts.
+	 */
+	public synchronized int getRestartCount() {
+		return restartCount;
+	}
+
+	/**
+	 * Sets the listener that receives the engine's "info" lines. It is called on
+	 * the reader thread.
+	 *
+	 * @param infoListener The listener, or null for none.
+	 */
+	@Override
+	public void setInfoListener(Consumer<InfoLine> infoListener) {
+		this.infoListener = infoListener;
+	}
+
+	/**
+	 * Asks the engine whether it is ready for more commands.
+	 *
+	 * @return A future completed when the engine answers "readyok".
+	 */
+	public synchronized CompletableFuture<Void> isReady() {
+		CompletableFuture<Void> ready = new CompletableFuture<>();
+		pendingReady.add(ready);
+		sendCommand("isready");
+		return ready;
+	}
+
+	/**
+	 * Starts a search without waiting for it. Searches may be queued; each
+	 * "bestmove" the engine sends completes the oldest one. The future fails
+	 * with a TimeoutException if the engine overruns the move time by more than
+	 * {@link #RESPONSE_TIMEOUT}, and cancelling it stops the search.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @param moveTime The time to search in milliseconds.
+	 * @return A future completed with the engine's answer.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	public CompletableFuture<BestMove> search(String moveList, long moveTime) {
+		return search(moveList, SearchLimits.moveTime(moveTime));
+	}
+
+	/**
+	 * Starts a search without waiting for it, as {@link #search(String, long)}
+	 * does, with any limits. Clock limits time out after the side to move's
+	 * remaining time, and depth or node limits after
+	 * {@link #UNTIMED_SEARCH_TIMEOUT}.
+	 *
+	 * @param moveList     The list of moves in UCI format.
+	 * @param searchLimits The limits of the search.
+	 * @return A future completed with the engine's answer.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	public synchronized CompletableFuture<BestMove> search(String moveList, SearchLimits searchLimits) {
+		cancelPondering();
+		stopAnalysis();
+		int sideToMove = tracker.update(moveList).getSideToMove();
+		CompletableFuture<BestMove> result = startSearch(moveList, "go " + searchLimits.toUciArguments());
+		return withDeadline(result, timeAllowed(searchLimits, sideToMove));
+	}
+
+	/**
+	 * Works out the longest a search under some limits can legitimately take.
 	 */
-	private void waitFor(String keyword) throws IOException {
-		String line;
-		while ((line = readLine()) != null) {
-			if (line.contains(keyword)) {
-				break; // Exit loop when the keyword is found
+	private static long timeAllowed(SearchLimits searchLimits, int sideToMove) {
+		if (searchLimits.hasClock()) {
+			return searchLimits.getTime(sideToMove) + searchLimits.getIncrement(sideToMove);
+		}
+		return searchLimits.getMoveTime() > 0 ? searchLimits.getMoveTime() : UNTIMED_SEARCH_TIMEOUT;
+	}
+
+	/**
+	 * Sends a position and a go command, and queues the future its "bestmove"
+	 * will complete.
+	 */
+	private CompletableFuture<BestMove> startSearch(String moveList, String goCommand) {
+		tracker.update(moveList);
+		CompletableFuture<BestMove> result = new CompletableFuture<>();
+		if (outOfSync) {
+			try {
+				resync();
+			} catch (IOException e) {
+				result.completeExceptionally(e);
+				return result;
 			}
 		}
+		pendingSearches.add(result);
+		sendCommand(tracker.positionCommand()); // Set up the position with the given move list
+		sendCommand(goCommand); // Search for the best move
+		return result;
+	}
+
+	/**
+	 * Fails a search future that the engine does not answer within the move time
+	 * plus {@link #RESPONSE_TIMEOUT}, and stops the search if the future fails or
+	 * is cancelled.
+	 */
+	private CompletableFuture<BestMove> withDeadline(CompletableFuture<BestMove> result, long moveTime) {
+		result.orTimeout(moveTime + RESPONSE_TIMEOUT, TimeUnit.MILLISECONDS).whenComplete((move, failure) -> {
+			if (failure instanceof TimeoutException) {
+				abandon(result);
+			} else if (failure != null) {
+				stop(); // Cancelled; the engine's answer completes the abandoned future
+			}
+		});
+		return result;
 	}
 
 	/**
-	 * Waits for the best move from the Stockfish engine.
+	 * Takes a timed-out search off the queue, so a late answer to it is dropped
+	 * instead of completing the next search, and has the next search check the
+	 * engine first.
+	 */
+	private synchronized void abandon(CompletableFuture<BestMove> result) {
+		if (pendingSearches.remove(result)) {
+			staleAnswers.incrementAndGet();
+		}
+		outOfSync = true;
+		stop();
+	}
+
+	/**
+	 * Checks that an engine that overran a search answers "isready", and
+	 * restarts the process if it does not.
 	 *
+	 * @throws IOException if the process cannot be restarted.
+	 */
+	private void resync() throws IOException {
+		try {
+			await(isReady(), RESPONSE_TIMEOUT);
+		} catch (IOException e) {
+			System.out.println("Stockfish is not responding; restarting it");
+			restart();
+		}
+		outOfSync = false;
+	}
+
+	/**
+	 * Kills the engine process and starts a new one with the same command and
+	 * options. Whatever was waiting on the old process fails.
+	 *
+	 * @throws IOException if the new process cannot be started.
+	 */
+	private void restart() throws IOException {
+		stockfishProcess.destroyForcibly();
+		try {
+			readerThread.join(RESPONSE_TIMEOUT); // Its exit fails the futures still queued
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while restarting Stockfish");
+		}
+		staleAnswers.set(0);
+		restartCount++;
+		ponderSearch = null;
+		ponderMoveList = null;
+		analysis = null;
+		startProcess();
+		for (Map.Entry<String, Object> option : options.entrySet()) {
+			sendCommand("setoption name " + option.getKey() + " value " + option.getValue());
+		}
+	}
+
+	/**
+	 * Starts a ponder search on the opponent's reply predicted by the last
+	 * search. It runs until {@link #getBestMove} is called with the opponent's
+	 * actual move.
+	 *
+	 * @param moveList The moves so far, ending with this engine's last move.
+	 */
+	@Override
+	public synchronized void startPondering(String moveList) {
+		cancelPondering();
+		stopAnalysis();
+		if (!ponderEnabled || expectedReply == null) {
+			return;
+		}
+		String predicted = (moveList.trim() + " " + expectedReply).trim();
+		try {
+			ponderSearch = startSearch(predicted, "go ponder " + limits.toUciArguments());
+			ponderMoveList = predicted;
+		} catch (IllegalArgumentException e) {
+			System.out.println("Not pondering on " + expectedReply + ": " + e.getMessage()); // Stale prediction
+		}
+	}
+
+	/**
+	 * Sets the reply to ponder on after a move that was answered without this
+	 * engine, and stops pondering on the previous prediction.
+	 *
+	 * @param reply The expected reply in UCI format, or null for none.
+	 */
+	@Override
+	public synchronized void setExpectedReply(String reply) {
+		cancelPondering();
+		expectedReply = reply;
+	}
+
+	/**
+	 * Stops a running ponder search; its answer is discarded.
+	 */
+	private void cancelPondering() {
+		if (ponderSearch != null) {
+			stop(); // The engine still answers with a bestmove, which completes the abandoned future
+			ponderSearch = null;
+			ponderMoveList = null;
+		}
+	}
+
+	/**
+	 * Starts an infinite analysis of a position, reporting through the info
+	 * listener until {@link #stopAnalysis()} is called or a move is asked for.
+	 * The engine's console output of info lines is suppressed, since a
+	 * listener sees all of them.
+	 *
+	 * @param moveList The list of moves in UCI format.
+	 * @param lines    The number of best lines to report, set as the MultiPV
+	 *                 option.
+	 * @throws IllegalArgumentException if a move does not fit the position.
+	 */
+	@Override
+	public synchronized void startAnalysis(String moveList, int lines) {
+		cancelPondering();
+		stopAnalysis();
+		setMultiPv(Math.max(1, lines)); // The engine applies it once the stopped search has ended
+		analysis = startSearch(moveList, "go infinite");
+	}
+
+	/**
+	 * Stops a running analysis and restores a single line for normal searches.
+	 * The engine's final answer is discarded.
+	 */
+	@Override
+	public synchronized void stopAnalysis() {
+		if (analysis != null) {
+			stop(); // The engine still answers with a bestmove, which completes the abandoned future
+			analysis = null;
+			setMultiPv(1);
+		}
+	}
+
+	/**
+	 * Sets the MultiPV option if it differs from the value last sent.
+	 */
+	private void setMultiPv(int lines) {
+		if (lines != analysisLines) {
+			setOption("MultiPV", lines);
+			analysisLines = lines;
+		}
+	}
+
+	/**
+	 * Tells the engine to end the current search. It answers with its best move
+	 * so far, which completes the search's future.
+	 */
+	public void stop() {
+		sendCommand("stop");
+	}
+
+	/**
+	 * Gets the best move from the Stockfish engine for a given move list. Only
+	 * the moves added since the previous call are replayed, and the position is
+	 * sent as a recent FEN snapshot plus the moves since, so the command does
+	 * not grow with the length of the game. If the engine has been pondering on
+	 * exactly this move list, it is told the prediction came true and answers
+	 * from the search already under way. A move that is the only legal one is
+	 * returned without asking the engine.
+	 *
+	 * @param moveList The list of moves in UCI format.
 	 * @return The best move in UCI format.
-	 * @throws IOException if an I/O error occurs.
+	 * @throws IOException if an I/O error occurs or the engine does not answer in
+	 *                     time.
+	 * @throws IllegalArgumentException if a move does not fit the position.
 	 */
-	private String waitForBestMove() throws IOException {
-		String line;
-		String bestMove = null;
-		while ((line = readLine()) != null) {
-			System.out.println("Stockfish Output: " + line);
-			if (line.startsWith("bestmove")) {
-				String[] parts = line.split(" ");
-				if (parts.length > 1) {
-					bestMove = parts[1]; // Extract the best move
+	@Override
+	public String getBestMove(String moveList) throws IOException {
+		long start = System.currentTimeMillis();
+		CompletableFuture<BestMove> answer;
+		SearchLimits searchLimits;
+		synchronized (this) {
+			searchLimits = limits;
+			Position position = tracker.update(moveList);
+			if (ponderSearch != null && moveList.trim().equals(ponderMoveList)) {
+				sendCommand("ponderhit"); // The search switches to normal time control
+				answer = withDeadline(ponderSearch, timeAllowed(searchLimits, position.getSideToMove()));
+				ponderSearch = null;
+				ponderMoveList = null;
+			} else {
+				MoveList legalMoves = new MoveList();
+				MoveGenerator.generateLegal(position, legalMoves);
+				if (legalMoves.size() == 1) {
+					cancelPondering();
+					stopAnalysis();
+					expectedReply = null;
+					return PackedMove.toUCI(legalMoves.get(0)); // Nothing to think about
 				}
-				break; // Exit loop after finding the best move
+				answer = search(moveList, searchLimits); // Abandons a ponder search on the wrong move
 			}
 		}
-		if (bestMove == null) {
+		BestMove bestMove = await(answer, 0); // The search future has its own deadline
+		synchronized (this) {
+			expectedReply = bestMove.getPonder();
+		}
+		System.out.println("Stockfish answered in " + (System.currentTimeMillis() - start) + " ms (go "
+				+ searchLimits.toUciArguments() + ")");
+		if (bestMove.getMove() == null) {
 			System.out.println("No best move found by Stockfish.");
 		}
-		return bestMove;
+		return bestMove.getMove();
+	}
+
+	/**
+	 * Waits for a future, turning its failures into IOExceptions.
+	 *
+	 * @param future  The future to wait for.
+	 * @param timeout The most time to wait in milliseconds, or 0 to rely on the
+	 *                future's own deadline.
+	 * @return The future's value.
+	 * @throws IOException if the future fails, times out or the wait is
+	 *                     interrupted.
+	 */
+	private static <T> T await(CompletableFuture<T> future, long timeout) throws IOException {
+		try {
+			return timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for Stockfish");
+		} catch (TimeoutException e) {
+			throw new IOException("Stockfish did not answer in time", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Stockfish did not answer in time", e.getCause());
+		}
+	}
+
+	/**
+	 * Reads the engine's output until it exits, dispatching each line. Runs on
+	 * the reader thread.
+	 */
+	private void readOutput(BufferedReader in) {
+		CompletableFuture<Void> handshake = uciOk; // Set before the thread starts
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!line.startsWith("info")) {
+					System.out.println("Read line: " + line); // Info lines are many and go to the listener
+				}
+				dispatch(line);
+			}
+		} catch (IOException e) {
+			// The stream was closed; fail whatever is still waiting below
+		}
+		IOException exited = new IOException("Stockfish exited");
+		handshake.completeExceptionally(exited);
+		for (CompletableFuture<Void> ready; (ready = pendingReady.poll()) != null;) {
+			ready.completeExceptionally(exited);
+		}
+		for (CompletableFuture<BestMove> search; (search = pendingSearches.poll()) != null;) {
+			search.completeExceptionally(exited);
+		}
 	}
 
 	/**
-	 * Closes the Stockfish engine and releases resources.
+	 * Turns one line of engine output into an event.
+	 *
+	 * @param line The line of output.
+	 */
+	private void dispatch(String line) {
+		if (line.startsWith("info")) {
+			Consumer<InfoLine> listener = infoListener;
+			if (listener != null) {
+				listener.accept(InfoLine.parse(line));
+			}
+		} else if (line.startsWith("bestmove")) {
+			if (staleAnswers.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+				return; // Answers a search that already timed out
+			}
+			CompletableFuture<BestMove> search = pendingSearches.poll();
+			if (search != null) {
+				search.complete(BestMove.parse(line)); // Does nothing if the caller gave up on it
+			}
+		} else if (line.equals("readyok")) {
+			CompletableFuture<Void> ready = pendingReady.poll();
+			if (ready != null) {
+				ready.complete(null);
+			}
+		} else if (line.equals("uciok")) {
+			uciOk.complete(null);
+		}
+	}
+
+	/**
+	 * Closes the Stockfish engine and releases resources. An engine that does
+	 * not quit promptly is killed.
 	 *
 	 * @throws IOException if an I/O error occurs.
 	 */
+	@Override
 	public void close() throws IOException {
 		sendCommand("quit"); // Send quit command to Stockfish
-		reader.close();
 		writer.close();
-		executor.shutdown(); // Shut down the executor service
+		try {
+			if (!stockfishProcess.waitFor(RESPONSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				stockfishProcess.destroyForcibly();
+			}
+			readerThread.join(RESPONSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			stockfishProcess.destroyForcibly();
+			Thread.currentThread().interrupt();
+		}
+		reader.close();
 	}
 }
@@ -0,0 +1,17 @@
+package ai;
+
+/**
+ * This interface decides how much of the clock to spend on one move.
+ */
+public interface TimeManager {
+
+	/**
+	 * Allocates thinking time for a move.
+	 *
+	 * @param limits     The search limits of the move.
+	 * @param sideToMove The color index of the side to move.
+	 * @return The time budget in milliseconds, or 0 if the search is not limited
+	 *         by time.
+	 */
+	long allocate(SearchLimits limits, int sideToMove);
+}
@@ -0,0 +1,266 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a fixed-size hash table of search results shared by every
+ * search thread. Each entry is two longs: the packed data and the position key
+ * XOR-ed with that data. Threads read and write without locks; a torn write
+ * from a racing thread leaves a pair whose XOR no longer matches the probed
+ * key, so it is simply treated as a miss.
+ *
+ * Entry data layout, from the lowest bit:
+ *
+ * <pre>
+ * bits  0-18  best move (packed)
+ * bits 19-34  score, offset by 32768
+ * bits 35-42  depth
+ * bits 43-44  bound
+ * bits 45-52  generation
+ * </pre>
+ */
+public class TranspositionTable {
+	/** The score is exact. */
+	public static final int EXACT = 1;
+	/** The score is a lower bound (the search failed high). */
+	public static final int LOWER = 2;
+	/** The score is an upper bound (the search failed low). */
+	public static final int UPPER = 3;
+
+	/** The table size used when none is given, matching Stockfish's Hash default. */
+	public static final int DEFAULT_SIZE_MB = 16;
+
+	private static final int ENTRY_BYTES = 16;
+	private static final int SCORE_SHIFT = 19;
+	private static final int DEPTH_SHIFT = 35;
+	private static final int BOUND_SHIFT = 43;
+	private static final int GENERATION_SHIFT = 45;
+	private static final int SCORE_OFFSET = 32768;
+
+	/**
+	 * This enum lists the rules for overwriting an entry that holds a different
+	 * position.
+	 */
+	public enum Replacement {
+		/** Always keep the newest result. */
+		ALWAYS,
+		/** Keep deeper results from the current search; results of older searches are always replaced. */
+		DEPTH_PREFERRED
+	}
+
+	private final long[] table;
+	private final int mask;
+	private final Replacement replacement;
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private volatile int generation;
+
+	/**
+	 * Constructs a table of the default size with depth-preferred replacement.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_SIZE_MB, Replacement.DEPTH_PREFERRED);
+	}
+
+	/**
+	 * Constructs a table. The entry count is rounded down to a power of two so a
+	 * slot can be found by masking the key.
+	 *
+	 * @param sizeMb      The memory to use in megabytes.
+	 * @param replacement The replacement policy.
+	 * @throws IllegalArgumentException if the size is not positive.
+	 */
+	public TranspositionTable(int sizeMb, Replacement replacement) {
+		if (sizeMb <= 0) {
+			throw new IllegalArgumentException("Hash size must be positive: " + sizeMb);
+		}
+		long entries = Long.highestOneBit(sizeMb * 1024L * 1024L / ENTRY_BYTES);
+		entries = Math.min(entries, 1 << 29); // Keep the backing array within Java's index range
+		this.table = new long[(int) entries * 2];
+		this.mask = (int) entries - 1;
+		this.replacement = replacement;
+	}
+
+	/**
+	 * Marks the start of a new search so entries left by earlier searches can be
+	 * told apart and replaced first.
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param key The Zobrist key of the position.
+	 * @return The packed entry data, or 0 if the position is not stored.
+	 */
+	public long probe(long key) {
+		probes.increment();
+		int index = ((int) key & mask) << 1;
+		long data = table[index + 1];
+		if ((table[index] ^ data) != key || data == 0) {
+			return 0;
+		}
+		hits.increment();
+		return data;
+	}
+
+	/**
+	 * Stores a search result, subject to the replacement policy.
+	 *
+	 * @param key   The Zobrist key of the position.
+	 * @param move  The best packed move, or PackedMove.NONE.
+	 * @param depth The depth searched.
+	 * @param bound EXACT, LOWER or UPPER.
+	 * @param score The score, already adjusted with {@link #scoreToTable}.
+	 */
+	public void store(long key, int move, int depth, int bound, int score) {
+		int index = ((int) key & mask) << 1;
+		long oldData = table[index + 1];
+		boolean samePosition = (table[index] ^ oldData) == key;
+
+		if (!samePosition && replacement == Replacement.DEPTH_PREFERRED && oldData != 0
+				&& generation(oldData) == generation && depth(oldData) > depth) {
+			return; // A deeper result from this search is worth more
+		}
+		if (samePosition && move == 0) {
+			move = move(oldData); // Keep the old best move for ordering
+		}
+
+		long data = (move & 0x7FFFFL)
+				| (long) (score + SCORE_OFFSET) << SCORE_SHIFT
+				| (long) Math.max(0, Math.min(depth, 0xFF)) << DEPTH_SHIFT
+				| (long) bound << BOUND_SHIFT
+				| (long) generation << GENERATION_SHIFT;
+		table[index] = key ^ data;
+		table[index + 1] = data;
+	}
+
+	/**
+	 * Retrieves the best move of an entry.
+	 *
+	 * @param data The packed entry data.
+	 * @return The packed move, or PackedMove.NONE.
+	 */
+	public static int move(long data) {
+		return (int) (data & 0x7FFFF);
+	}
+
+	/**
+	 * Retrieves the score of an entry.
+	 *
+	 * @param data The packed entry data.
+	 * @return The score as stored; see {@link #scoreFromTable}.
+	 */
+	public static int score(long data) {
+		return (int) ((data >>> SCORE_SHIFT) & 0xFFFF) - SCORE_OFFSET;
+	}
+
+	/**
+	 * Retrieves the depth of an entry.
+	 *
+	 * @param data The packed entry data.
+	 * @return The depth in plies.
+	 */
+	public static int depth(long data) {
+		return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+	}
+
+	/**
+	 * Retrieves the bound type of an entry.
+	 *
+	 * @param data The packed entry data.
+	 * @return EXACT, LOWER or UPPER.
+	 */
+	public static int bound(long data) {
+		return (int) ((data >>> BOUND_SHIFT) & 0x3);
+	}
+
+	private static int generation(long data) {
+		return (int) ((data >>> GENERATION_SHIFT) & 0xFF);
+	}
+
+	/**
+	 * Converts a mate score from distance-to-root to distance-to-node, so the
+	 * entry stays correct when the position is reached at another ply.
+	 *
+	 * @param score The search score.
+	 * @param ply   The distance of the node from the root.
+	 * @return The score to store.
+	 */
+	public static int scoreToTable(int score, int ply) {
+		if (score >= Search.MATE_BOUND) {
+			return score + ply;
+		}
+		if (score <= -Search.MATE_BOUND) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Converts a stored mate score back to distance-to-root.
+	 *
+	 * @param score The stored score.
+	 * @param ply   The distance of the node from the root.
+	 * @return The search score.
+	 */
+	public static int scoreFromTable(int score, int ply) {
+		if (score >= Search.MATE_BOUND) {
+			return score - ply;
+		}
+		if (score <= -Search.MATE_BOUND) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Empties the table and resets its statistics.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0L);
+		probes.reset();
+		hits.reset();
+		generation = 0;
+	}
+
+	/**
+	 * Retrieves the number of entries the table can hold.
+	 *
+	 * @return The capacity.
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Retrieves the share of probes that found their position.
+	 *
+	 * @return The hit rate between 0 and 1.
+	 */
+	public double getHitRate() {
+		long total = probes.sum();
+		return total == 0 ? 0 : (double) hits.sum() / total;
+	}
+
+	/**
+	 * Estimates how full the table is, sampling the first thousand entries the
+	 * way the UCI "hashfull" field is reported.
+	 *
+	 * @return The fill in permille of entries written by the current search.
+	 */
+	public int getHashFull() {
+		int sample = Math.min(1000, capacity());
+		int used = 0;
+		for (int i = 0; i < sample; i++) {
+			long data = table[(i << 1) + 1];
+			if (data != 0 && generation(data) == generation) {
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+}
@@ -0,0 +1,219 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.StockfishEngine;
+import board.Board;
+import board.GameFile;
+import board.Move;
+import board.Perft;
+import board.Position;
+import store.GameStore;
+import store.GameStoreWriter;
+import store.PositionIndex;
+import store.PositionIndexWriter;
+import store.StoredGame;
+
+/**
+ * This class runs the benchmark suite for the game model, the save format and
+ * engine I/O, so performance changes can be judged on comparable numbers. Run
+ * it headless with {@code java bench.Benchmarks [--warmup N] [--iterations N]
+ * [--time MILLIS]}.
+ */
+public class Benchmarks {
+	// A short opening used wherever a game in progress is needed
+	private static final String OPENING = "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 e1g1 f8e7 f1e1 b7b5 a4b3 d7d6 "
+			+ "c2c3 e8g8 h2h3 c6a5 b3c2 c7c5";
+
+	private static final int ARCHIVE_GAMES = 10000; // Games written per archive benchmark run
+
+	private static int moveIndex;
+
+	public static void main(String[] args) throws Exception {
+		int warmup = 3;
+		int iterations = 5;
+		long time = 1000;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--warmup":
+				warmup = Integer.parseInt(args[++i]);
+				break;
+			case "--iterations":
+				iterations = Integer.parseInt(args[++i]);
+				break;
+			case "--time":
+				time = Long.parseLong(args[++i]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+
+		Harness harness = new Harness(warmup, iterations, time); // Reports to the console captured here
+		PrintStream console = System.out;
+
+		harness.run("Board construction", Board::new);
+
+		Board midgame = new Board();
+		midgame.loadFen(Perft.KIWIPETE);
+		harness.run("getAllPossibleMoves (kiwipete)", () -> midgame.getAllPossibleMoves("White"));
+
+		List<Move> moves = midgame.getAllPossibleMoves("White");
+		harness.run("applyMove + undoMove (kiwipete)", () -> {
+			Move move = moves.get(moveIndex++ % moves.size());
+			midgame.applyMove(move);
+			midgame.undoMove(move);
+			return midgame.getZobristKey();
+		});
+
+		// The controller's isGameOver is exactly this check; the controller itself needs a window
+		harness.run("isGameOver check", () -> !midgame.hasKing("White") || !midgame.hasKing("Black"));
+
+		List<Move> history = playOpening();
+		Path saveFile = Files.createTempFile("bench", ".sav");
+		try {
+			GameFile game = new GameFile(null, history);
+			harness.run("save move history", () -> {
+				game.write(saveFile);
+				return saveFile;
+			});
+			harness.run("load move history and replay", () -> replay(GameFile.read(saveFile)));
+			System.out.println("save file: " + Files.size(saveFile) + " bytes, legacy serialization: "
+					+ serialize(history).length + " bytes");
+		} finally {
+			Files.deleteIfExists(saveFile);
+		}
+		byte[] saved = serialize(history);
+		harness.run("save move history (legacy serialization)", () -> serialize(history).length);
+		harness.run("load move history and replay (legacy serialization)", () -> replay(saved));
+
+		short[] encoded = new short[history.size()];
+		for (int i = 0; i < encoded.length; i++) {
+			encoded[i] = StoredGame.encode(history.get(i));
+		}
+		Path archive = Files.createTempDirectory("bench-archive");
+		try {
+			// Starts a new archive each time, so the figure includes opening, closing and forcing to disk
+			harness.run("append " + ARCHIVE_GAMES + " games to a new archive", () -> {
+				deleteArchive(archive);
+				try (GameStoreWriter writer = new GameStoreWriter(archive)) {
+					for (int i = 0; i < ARCHIVE_GAMES; i++) {
+						writer.append(encoded, encoded.length, StoredGame.DRAW);
+					}
+					return writer.size();
+				}
+			});
+			try (GameStore store = new GameStore(archive)) {
+				StoredGame view = new StoredGame();
+				harness.run("read archived game by id", () -> store.read(moveIndex++ % store.size(), view).getMove(0));
+				harness.run("scan " + ARCHIVE_GAMES + " archived games", () -> {
+					long[] plies = new long[1];
+					store.scan(game -> plies[0] += game.getPlyCount());
+					return plies[0];
+				});
+				harness.run("index " + ARCHIVE_GAMES + " archived games", () -> {
+					Files.deleteIfExists(archive.resolve("positions.idx")); // Makes the next writer start over
+					try (PositionIndexWriter writer = new PositionIndexWriter(archive)) {
+						return writer.update(store);
+					}
+				});
+				PositionIndex index = new PositionIndex(archive);
+				Position position = Position.fromFen(Position.START_FEN);
+				harness.run("explore archived position", () -> index.explore(position));
+			}
+		} finally {
+			deleteArchive(archive);
+			Files.deleteIfExists(archive);
+		}
+
+		String javaCommand = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		// StockfishEngine logs every line it exchanges; keep that out of the results
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		StockfishEngine engine = new StockfishEngine(javaCommand, "-cp", System.getProperty("java.class.path"),
+				StubEngine.class.getName());
+		try {
+			harness.run("StockfishEngine round trip (stub)", () -> engine.getBestMove(OPENING));
+		} finally {
+			engine.close();
+			System.setOut(console);
+		}
+	}
+
+	/**
+	 * Deletes the files of a game archive and its position index, leaving the
+	 * directory.
+	 */
+	private static void deleteArchive(Path archive) throws Exception {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(archive)) {
+			for (Path file : files) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	/**
+	 * Plays the opening on a new board the way the controller records it.
+	 */
+	private static List<Move> playOpening() {
+		Board board = new Board();
+		List<Move> history = new ArrayList<>();
+		for (String uci : OPENING.split(" ")) {
+			Move move = board.parseUCIMove(uci);
+			board.applyMove(move);
+			history.add(move);
+		}
+		return history;
+	}
+
+	/**
+	 * Replays a saved game on a new board.
+	 */
+	private static Board replay(GameFile game) {
+		Board board = new Board();
+		for (int i = 0; i < game.getMoveCount(); i++) {
+			board.makeMove(board.encodeMove(game.getFrom(i), game.getTo(i), game.getPromotion(i)));
+		}
+		return board;
+	}
+
+	/**
+	 * Writes a move history with Java serialization, as saves were before the
+	 * binary format.
+	 */
+	private static byte[] serialize(List<Move> history) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(history);
+			out.writeObject("White");
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads a move history written with Java serialization and replays it on a
+	 * new board.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Board replay(byte[] saved) throws Exception {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(saved))) {
+			List<Move> history = (List<Move>) in.readObject();
+			in.readObject();
+			Board board = new Board();
+			for (Move move : history) {
+				board.applyMove(move);
+			}
+			return board;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package bench;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * This class runs micro-benchmarks the way JMH does in miniature: timed warmup
+ * iterations to let the JIT settle, then timed measurement iterations whose
+ * throughput is averaged. Allocation per operation comes from the JVM's
+ * per-thread allocation counter, and every result is fed to a sink so the JIT
+ * cannot discard the work being measured.
+ */
+public final class Harness {
+
+	/**
+	 * This interface is one benchmarked operation.
+	 */
+	@FunctionalInterface
+	public interface Operation {
+		/**
+		 * Runs the operation once.
+		 *
+		 * @return A value derived from the work, consumed by the harness.
+		 * @throws Exception if the operation fails.
+		 */
+		Object run() throws Exception;
+	}
+
+	private final int warmupIterations;
+	private final int measurementIterations;
+	private final long iterationMillis;
+	private final com.sun.management.ThreadMXBean threads;
+	private final PrintStream out;
+	private int sink;
+
+	/**
+	 * Constructs a harness that reports to the current standard output.
+	 *
+	 * @param warmupIterations      The number of untimed iterations.
+	 * @param measurementIterations The number of timed iterations.
+	 * @param iterationMillis       The length of each iteration in milliseconds.
+	 */
+	public Harness(int warmupIterations, int measurementIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationMillis = iterationMillis;
+		this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		this.out = System.out;
+	}
+
+	/**
+	 * Benchmarks an operation and prints one result line.
+	 *
+	 * @param name      The benchmark name.
+	 * @param operation The operation to run repeatedly.
+	 * @throws Exception if the operation fails.
+	 */
+	public void run(String name, Operation operation) throws Exception {
+		for (int i = 0; i < warmupIterations; i++) {
+			iterate(operation);
+		}
+
+		double[] throughput = new double[measurementIterations];
+		long totalOps = 0;
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < measurementIterations; i++) {
+			long start = System.nanoTime();
+			long ops = iterate(operation);
+			throughput[i] = ops * 1e9 / (System.nanoTime() - start);
+			totalOps += ops;
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		double mean = 0;
+		for (double t : throughput) {
+			mean += t;
+		}
+		mean /= throughput.length;
+		double variance = 0;
+		for (double t : throughput) {
+			variance += (t - mean) * (t - mean);
+		}
+		double error = Math.sqrt(variance / Math.max(1, throughput.length - 1));
+
+		out.println(String.format(Locale.ROOT, "%-34s %14.1f +- %10.1f ops/s %12.1f B/op", name, mean, error,
+				(double) allocated / totalOps));
+	}
+
+	/**
+	 * Runs an operation for one iteration.
+	 *
+	 * @return The number of operations completed.
+	 */
+	private long iterate(Operation operation) throws Exception {
+		long deadline = System.nanoTime() + iterationMillis * 1_000_000;
+		long ops = 0;
+		do {
+			Object result = operation.run();
+			sink += result == null ? 0 : result.hashCode();
+			ops++;
+		} while (System.nanoTime() < deadline);
+		return ops;
+	}
+
+	/**
+	 * Retrieves the accumulated results, so the work cannot be optimized away.
+	 *
+	 * @return The sink value.
+	 */
+	public int getSink() {
+		return sink;
+	}
+}
@@ -0,0 +1,99 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is a stand-in UCI engine that answers instantly with a fixed
+ * move. Benchmarking StockfishEngine against it measures only the process
+ * pipe round trip and protocol handling, not the engine's thinking time.
+ *
+ * Tests drive it with options that follow the class name:
+ *
+ * <pre>
+ * --log FILE           append every command received to FILE
+ * --hang-once MARKER   if MARKER does not exist, create it and stop answering
+ *                      anything after the first go, as a hung engine would
+ * --late-once MARKER   if MARKER does not exist, create it and answer the first
+ *                      go with a7a6 only after LATE_MILLIS
+ * </pre>
+ *
+ * The markers make only the first process misbehave, so a restarted one
+ * answers normally.
+ */
+public class StubEngine {
+	/** How long the first search waits with --late-once, longer than any test deadline. */
+	public static final long LATE_MILLIS = 6000;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		PrintWriter log = null;
+		boolean hang = false;
+		boolean late = false;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("--log")) {
+				log = new PrintWriter(Files.newBufferedWriter(Paths.get(args[i + 1]), StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND), true);
+			} else if (args[i].equals("--hang-once")) {
+				hang = claim(Paths.get(args[i + 1]));
+			} else if (args[i].equals("--late-once")) {
+				late = claim(Paths.get(args[i + 1]));
+			}
+		}
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		boolean waiting = false;
+		boolean hung = false;
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (log != null) {
+				log.println(line);
+			}
+			if (hung) {
+				continue; // Reads, so the pipe never blocks, but never answers
+			}
+			if (line.equals("uci")) {
+				System.out.println("id name StubEngine");
+				System.out.println("uciok");
+			} else if (line.equals("isready")) {
+				System.out.println("readyok");
+			} else if (line.startsWith("go ponder") || line.equals("go infinite")) {
+				waiting = true; // Ponder and infinite searches only answer after ponderhit or stop
+				System.out.println("info depth 1 score cp 0 nodes 1 pv e7e5 g1f3");
+			} else if (line.startsWith("go") && hang) {
+				hang = false;
+				hung = true;
+			} else if (line.startsWith("go") && late) {
+				late = false;
+				Thread.sleep(LATE_MILLIS); // Commands sent meanwhile are answered afterwards, in order
+				System.out.println("bestmove a7a6");
+			} else if (line.startsWith("go") || (waiting && (line.equals("ponderhit") || line.equals("stop")))) {
+				waiting = false;
+				System.out.println("info depth 1 score cp 0 nodes 1 pv e7e5 g1f3");
+				System.out.println("bestmove e7e5 ponder g1f3");
+			} else if (line.equals("quit")) {
+				break;
+			}
+			System.out.flush();
+		}
+	}
+
+	/**
+	 * Creates a marker file.
+	 *
+	 * @return true if this process created it, false if it already existed.
+	 */
+	private static boolean claim(Path marker) throws IOException {
+		try {
+			Files.createFile(marker);
+			return true;
+		} catch (java.nio.file.FileAlreadyExistsException e) {
+			return false;
+		}
+	}
+}
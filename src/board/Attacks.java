@@ -0,0 +1,174 @@
+package board;
+
+/**
+ * This class provides attack sets as bitboards. Knight, king and pawn attacks
+ * are precomputed per square when the class is loaded; rook, bishop and queen
+ * attacks are looked up in the magic tables of {@link Magics}.
+ */
+public final class Attacks {
+	private static final long[] KNIGHT_ATTACKS = new long[64];
+	private static final long[] KING_ATTACKS = new long[64];
+	private static final long[][] PAWN_ATTACKS = new long[2][64];
+	private static final long[][] BETWEEN = new long[64][64]; // Squares strictly between two aligned squares
+
+	// Direction offsets as {file step, rank step}
+	private static final int[][] KNIGHT_STEPS = { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 },
+			{ -2, 1 }, { -1, 2 } };
+	private static final int[][] KING_STEPS = { { 1, 0 }, { 1, 1 }, { 0, 1 }, { -1, 1 }, { -1, 0 }, { -1, -1 },
+			{ 0, -1 }, { 1, -1 } };
+	static final int[][] ROOK_STEPS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+	static final int[][] BISHOP_STEPS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
+	static {
+		for (int sq = 0; sq < 64; sq++) {
+			KNIGHT_ATTACKS[sq] = leaperAttacks(sq, KNIGHT_STEPS);
+			KING_ATTACKS[sq] = leaperAttacks(sq, KING_STEPS);
+			PAWN_ATTACKS[Position.WHITE][sq] = leaperAttacks(sq, new int[][] { { -1, 1 }, { 1, 1 } });
+			PAWN_ATTACKS[Position.BLACK][sq] = leaperAttacks(sq, new int[][] { { -1, -1 }, { 1, -1 } });
+		}
+		for (int from = 0; from < 64; from++) {
+			for (int[][] steps : new int[][][] { ROOK_STEPS, BISHOP_STEPS }) {
+				for (int[] step : steps) {
+					long path = 0L;
+					int f = (from & 7) + step[0];
+					int r = (from >>> 3) + step[1];
+					while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+						BETWEEN[from][r * 8 + f] = path;
+						path |= 1L << (r * 8 + f);
+						f += step[0];
+						r += step[1];
+					}
+				}
+			}
+		}
+	}
+
+	private Attacks() {
+	}
+
+	/**
+	 * Builds the attack set of a piece that jumps by fixed offsets.
+	 *
+	 * @param square The origin square index.
+	 * @param steps  The {file, rank} offsets the piece can jump by.
+	 * @return The bitboard of reachable squares.
+	 */
+	private static long leaperAttacks(int square, int[][] steps) {
+		long attacks = 0L;
+		int file = square & 7;
+		int rank = square >>> 3;
+		for (int[] step : steps) {
+			int f = file + step[0];
+			int r = rank + step[1];
+			if (f >= 0 && f < 8 && r >= 0 && r < 8) {
+				attacks |= 1L << (r * 8 + f);
+			}
+		}
+		return attacks;
+	}
+
+	/**
+	 * Walks the rays of a sliding piece, stopping on (and including) the first
+	 * occupied square in each direction. Used to build the magic tables.
+	 *
+	 * @param square   The origin square index.
+	 * @param occupied The bitboard of occupied squares.
+	 * @param steps    The {file, rank} directions of the rays.
+	 * @return The bitboard of reachable squares.
+	 */
+	static long slidingAttacks(int square, long occupied, int[][] steps) {
+		long attacks = 0L;
+		int file = square & 7;
+		int rank = square >>> 3;
+		for (int[] step : steps) {
+			int f = file + step[0];
+			int r = rank + step[1];
+			while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+				long bit = 1L << (r * 8 + f);
+				attacks |= bit;
+				if ((occupied & bit) != 0) {
+					break; // The ray is blocked beyond this square
+				}
+				f += step[0];
+				r += step[1];
+			}
+		}
+		return attacks;
+	}
+
+	/**
+	 * Retrieves the squares a knight attacks.
+	 *
+	 * @param square The origin square index.
+	 * @return The attack bitboard.
+	 */
+	public static long knight(int square) {
+		return KNIGHT_ATTACKS[square];
+	}
+
+	/**
+	 * Retrieves the squares a king attacks.
+	 *
+	 * @param square The origin square index.
+	 * @return The attack bitboard.
+	 */
+	public static long king(int square) {
+		return KING_ATTACKS[square];
+	}
+
+	/**
+	 * Retrieves the squares a pawn attacks diagonally.
+	 *
+	 * @param color  The color of the pawn.
+	 * @param square The origin square index.
+	 * @return The attack bitboard.
+	 */
+	public static long pawn(int color, int square) {
+		return PAWN_ATTACKS[color][square];
+	}
+
+	/**
+	 * Retrieves the squares a rook attacks given the board occupancy.
+	 *
+	 * @param square   The origin square index.
+	 * @param occupied The bitboard of occupied squares.
+	 * @return The attack bitboard.
+	 */
+	public static long rook(int square, long occupied) {
+		return Magics.rook(square, occupied);
+	}
+
+	/**
+	 * Retrieves the squares a bishop attacks given the board occupancy.
+	 *
+	 * @param square   The origin square index.
+	 * @param occupied The bitboard of occupied squares.
+	 * @return The attack bitboard.
+	 */
+	public static long bishop(int square, long occupied) {
+		return Magics.bishop(square, occupied);
+	}
+
+	/**
+	 * Retrieves the squares a queen attacks given the board occupancy.
+	 *
+	 * @param square   The origin square index.
+	 * @param occupied The bitboard of occupied squares.
+	 * @return The attack bitboard.
+	 */
+	public static long queen(int square, long occupied) {
+		return rook(square, occupied) | bishop(square, occupied);
+	}
+
+	/**
+	 * Retrieves the squares strictly between two squares that share a rank, file
+	 * or diagonal.
+	 *
+	 * @param from The first square index.
+	 * @param to   The second square index.
+	 * @return The bitboard of squares between them, or 0 if they are not aligned.
+	 */
+	public static long between(int from, int to) {
+		return BETWEEN[from][to];
+	}
+}
@@ -2,31 +2,82 @@ package board;
 
 import pieces.*;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * This class represents the chessboard and handles piece positions and
- * movements.
+ * movements. The authoritative state is a bitboard {@link Position}; the
+ * squares returned by {@link #getSquare(int, int)} are a compatibility view
+ * that writes through to the position whenever a piece is placed or removed.
+ *
+ * Every applied move is recorded on an undo stack together with the piece
+ * objects it displaced, so moves can be taken back in place in O(1).
  */
 public class Board implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private Square[][] squares;
+	private Position position;
+	private int[] appliedMoves; // Packed moves in the order they were applied
+	private Piece[] movedPieces; // The piece object that made each move
+	private Piece[] capturedPieces; // The piece object each move captured, or null
+	private int appliedCount; // Number of moves on the undo stack
 
 	/**
 	 * Constructs a new Board and initializes the squares and pieces.
 	 */
 	public Board() {
+		position = new Position();
+		appliedMoves = new int[64];
+		movedPieces = new Piece[64];
+		capturedPieces = new Piece[64];
 		squares = new Square[8][8];
 		for (int i = 0; i < 8; i++) {
 			for (int j = 0; j < 8; j++) {
 				squares[j][i] = new Square(j, i);
+				squares[j][i].attach(this);
 			}
 		}
 		initPieces();
 	}
 
+	/**
+	 * Retrieves the bitboard position backing this board.
+	 *
+	 * @return The position.
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * Retrieves the Zobrist key of the current position, which identifies it
+	 * without scanning the board.
+	 *
+	 * @return The 64-bit position key.
+	 */
+	public long getZobristKey() {
+		return position.getKey();
+	}
+
+	/**
+	 * Mirrors a change made through a square view into the position.
+	 *
+	 * @param square The square whose piece changed.
+	 */
+	void squareChanged(Square square) {
+		int index = Position.square(square.getX(), square.getY());
+		position.removePiece(index);
+		Piece piece = square.getPiece();
+		if (piece != null) {
+			position.putPiece(index, piece.getCode());
+		}
+	}
+
 	/**
 	 * Retrieves the square at the specified coordinates.
 	 *
@@ -41,6 +92,54 @@ public class Board implements Serializable {
 		return null;
 	}
 
+	/**
+	 * Checks if the square at the specified coordinates holds any piece.
+	 *
+	 * @param x The x-coordinate of the square.
+	 * @param y The y-coordinate of the square.
+	 * @return true if the square is occupied, false otherwise.
+	 */
+	public boolean isOccupied(int x, int y) {
+		return position.isOccupied(Position.square(x, y));
+	}
+
+	/**
+	 * Checks if the square at the specified coordinates holds a piece of the
+	 * given color.
+	 *
+	 * @param x     The x-coordinate of the square.
+	 * @param y     The y-coordinate of the square.
+	 * @param color The color index (Position.WHITE or Position.BLACK).
+	 * @return true if the square holds a piece of that color, false otherwise.
+	 */
+	public boolean isOccupiedBy(int x, int y, int color) {
+		return (position.getOccupancy(color) & (1L << Position.square(x, y))) != 0;
+	}
+
+	/**
+	 * Checks if every square strictly between two aligned squares is empty.
+	 * Squares that do not share a rank, file or diagonal have nothing between
+	 * them and are reported as clear.
+	 *
+	 * @param start The starting square.
+	 * @param end   The ending square.
+	 * @return true if nothing blocks the path, false otherwise.
+	 */
+	public boolean isPathClear(Square start, Square end) {
+		long path = Attacks.between(Position.square(start.getX(), start.getY()), Position.square(end.getX(), end.getY()));
+		return (path & position.getOccupied()) == 0;
+	}
+
+	/**
+	 * Checks if the king of the specified color is still on the board.
+	 *
+	 * @param color The color of the king ("White" or "Black").
+	 * @return true if the king is present, false otherwise.
+	 */
+	public boolean hasKing(String color) {
+		return position.hasKing(Position.colorIndex(color));
+	}
+
 	/**
 	 * Initializes the pieces on the chess board by placing pawns and major pieces for both colors.
 	 * Assumes a standard 8x8 chess board and that the board is initially empty.
@@ -80,6 +179,26 @@ public class Board implements Serializable {
 	    }
 	}
 
+	/**
+	 * Replaces the game with the position described by a FEN string. The undo
+	 * stack is cleared.
+	 *
+	 * @param fen The position in Forsyth-Edwards Notation.
+	 * @throws IllegalArgumentException if the FEN string is malformed.
+	 */
+	public void loadFen(String fen) {
+		position = Position.fromFen(fen);
+		Arrays.fill(movedPieces, null);
+		Arrays.fill(capturedPieces, null);
+		appliedCount = 0;
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				int code = position.pieceAt(Position.square(x, y));
+				squares[x][y].updatePiece(code != Position.NO_PIECE ? Piece.create(code) : null);
+			}
+		}
+	}
+
 	/**
 	 * Retrieves all possible moves for pieces of the specified color.
 	 *
@@ -87,83 +206,221 @@ public class Board implements Serializable {
 	 * @return A list of all possible moves for the specified color.
 	 */
 	public List<Move> getAllPossibleMoves(String color) {
-		List<Move> moves = new ArrayList<>();
-		List<Square> piecesOfColor = getAllSquaresWithColor(color);
+		MoveList packed = new MoveList();
+		MoveGenerator.generate(position, Position.colorIndex(color), packed);
 
-		for (Square start : piecesOfColor) {
-			Piece piece = start.getPiece();
-			List<Move> possibleMoves = getPossibleMovesForPiece(piece, start);
-			moves.addAll(possibleMoves);
+		List<Move> moves = new ArrayList<>(packed.size());
+		for (int i = 0; i < packed.size(); i++) {
+			moves.add(toMove(packed.get(i)));
 		}
-
 		return moves;
 	}
 
 	/**
-	 * Retrieves all squares that contain a piece of the specified color.
+	 * Decodes a packed move into a Move view over this board's squares.
 	 *
-	 * @param color The color of the pieces to find.
-	 * @return A list of squares containing pieces of the specified color.
+	 * @param packed The packed move.
+	 * @return The move view.
 	 */
-	private List<Square> getAllSquaresWithColor(String color) {
-		List<Square> squaresWithColor = new ArrayList<>();
-
-		for (int i = 0; i < 8; i++) {
-			for (int j = 0; j < 8; j++) {
-				Square square = squares[i][j];
-				Piece piece = square.getPiece();
-				if (piece != null && piece.getColor().equals(color)) {
-					squaresWithColor.add(square);
-				}
-			}
-		}
+	public Move toMove(int packed) {
+		int from = PackedMove.from(packed);
+		int to = PackedMove.to(packed);
+		return new Move(squares[Position.squareX(from)][Position.squareY(from)],
+				squares[Position.squareX(to)][Position.squareY(to)], packed);
+	}
 
-		return squaresWithColor;
+	/**
+	 * Packs a move given by its squares, deriving the capture, double push, en
+	 * passant and castling flags from the current position. A pawn reaching the
+	 * last rank without a promotion piece promotes to a queen.
+	 *
+	 * @param from      The origin square index.
+	 * @param to        The destination square index.
+	 * @param promotion The promotion piece type, or 0 for the default.
+	 * @return The packed move.
+	 */
+	public int encodeMove(int from, int to, int promotion) {
+		return position.encodeMove(from, to, promotion);
 	}
 
 	/**
-	 * Retrieves all possible moves for a given piece from its starting square.
+	 * Parses a move in UCI notation, such as e2e4 or e7e8q, against the current
+	 * position.
 	 *
-	 * @param piece The piece to move.
-	 * @param start The starting square of the piece.
-	 * @return A list of possible moves for the piece.
+	 * @param uci The UCI string of the move.
+	 * @return The move view, or null if the string is not a move on the board.
 	 */
-	private List<Move> getPossibleMovesForPiece(Piece piece, Square start) {
-		List<Move> moves = new ArrayList<>();
+	public Move parseUCIMove(String uci) {
+		int packed = position.parseUCIMove(uci);
+		return packed != PackedMove.NONE ? toMove(packed) : null;
+	}
 
-		for (int x = 0; x < 8; x++) {
-			for (int y = 0; y < 8; y++) {
-				Square end = squares[x][y];
-				if (piece.movePiece(start, end, this)) {
-					moves.add(new Move(start, end));
-				}
-			}
+	/**
+	 * Parses a move in standard algebraic notation, such as Nf3, exd5 or O-O,
+	 * against the current position.
+	 *
+	 * @param san The SAN string of the move.
+	 * @return The move view, or null if the string is not a legal move on the
+	 *         board.
+	 */
+	public Move parseSANMove(String san) {
+		try {
+			return toMove(new San().parse(position, san));
+		} catch (IllegalArgumentException e) {
+			return null;
 		}
+	}
 
-		return moves;
+	/**
+	 * Formats a legal move in standard algebraic notation, such as Nf3 or
+	 * exd8=Q+, against the current position.
+	 *
+	 * @param move The move, not yet applied.
+	 * @return The SAN string of the move.
+	 */
+	public String toSAN(Move move) {
+		int from = Position.square(move.getStartX(), move.getStartY());
+		int to = Position.square(move.getEndX(), move.getEndY());
+		return new San().format(position, position.encodeMove(from, to, move.getPromotion()));
 	}
 
 	/**
-	 * Applies a move on the board.
+	 * Applies a move on the board. Castling also moves the rook, en passant
+	 * removes the passed pawn and a promotion replaces the pawn.
 	 *
 	 * @param move The move to apply.
 	 */
 	public void applyMove(Move move) {
-		Square start = move.getStart();
-		Square end = move.getEnd();
-		end.setPiece(start.getPiece());
-		start.setPiece(null);
+		int from = Position.square(move.getStartX(), move.getStartY());
+		if (position.pieceAt(from) == Position.NO_PIECE) {
+			return;
+		}
+		int to = Position.square(move.getEndX(), move.getEndY());
+		makeMove(encodeMove(from, to, move.getPromotion()));
+	}
+
+	/**
+	 * Applies a packed move to the position and the square views and records it
+	 * on the undo stack.
+	 *
+	 * @param packed The packed move, which must be pseudo-legal in the position.
+	 */
+	public void makeMove(int packed) {
+		int from = PackedMove.from(packed);
+		int to = PackedMove.to(packed);
+		int flags = PackedMove.flags(packed);
+		Square start = squares[Position.squareX(from)][Position.squareY(from)];
+		Square end = squares[Position.squareX(to)][Position.squareY(to)];
+		Square captureSquare = (flags & PackedMove.EN_PASSANT) != 0 ? squares[end.getX()][start.getY()] : end;
+		Piece moved = start.getPiece();
+
+		if (appliedCount == appliedMoves.length) {
+			appliedMoves = Arrays.copyOf(appliedMoves, appliedCount * 2);
+			movedPieces = Arrays.copyOf(movedPieces, appliedCount * 2);
+			capturedPieces = Arrays.copyOf(capturedPieces, appliedCount * 2);
+		}
+		appliedMoves[appliedCount] = packed;
+		movedPieces[appliedCount] = moved;
+		capturedPieces[appliedCount] = captureSquare.getPiece();
+		appliedCount++;
+
+		position.makeMove(packed);
+
+		// Bring the square views in line with the position
+		captureSquare.updatePiece(null);
+		start.updatePiece(null);
+		end.updatePiece(PackedMove.promotion(packed) != 0 ? Piece.create(position.pieceAt(to)) : moved);
+		if ((flags & PackedMove.CASTLING) != 0) {
+			Square rookFrom = squares[to > from ? 7 : 0][start.getY()];
+			squares[to > from ? 5 : 3][start.getY()].updatePiece(rookFrom.getPiece());
+			rookFrom.updatePiece(null);
+		}
 	}
 
 	/**
-	 * Undoes a move on the board.
+	 * Takes back the most recently applied move, restoring any captured piece,
+	 * castling rights, en-passant square and halfmove clock.
+	 *
+	 * @return The packed move that was taken back, or PackedMove.NONE if no move
+	 *         has been applied.
+	 */
+	public int unmakeMove() {
+		if (appliedCount == 0) {
+			return PackedMove.NONE;
+		}
+		appliedCount--;
+		int packed = appliedMoves[appliedCount];
+		Piece moved = movedPieces[appliedCount];
+		Piece captured = capturedPieces[appliedCount];
+		movedPieces[appliedCount] = null;
+		capturedPieces[appliedCount] = null;
+
+		int from = PackedMove.from(packed);
+		int to = PackedMove.to(packed);
+		int flags = PackedMove.flags(packed);
+		Square start = squares[Position.squareX(from)][Position.squareY(from)];
+		Square end = squares[Position.squareX(to)][Position.squareY(to)];
+
+		position.unmakeMove(packed);
+
+		if ((flags & PackedMove.CASTLING) != 0) {
+			Square rookTo = squares[to > from ? 5 : 3][start.getY()];
+			squares[to > from ? 7 : 0][start.getY()].updatePiece(rookTo.getPiece());
+			rookTo.updatePiece(null);
+		}
+		end.updatePiece(null);
+		start.updatePiece(moved);
+		if ((flags & PackedMove.EN_PASSANT) != 0) {
+			squares[end.getX()][start.getY()].updatePiece(captured);
+		} else {
+			end.updatePiece(captured);
+		}
+		return packed;
+	}
+
+	/**
+	 * Undoes a move on the board. Only the most recently applied move can be
+	 * undone.
 	 *
 	 * @param move The move to undo.
+	 * @throws IllegalStateException if the move is not the last one applied.
 	 */
 	public void undoMove(Move move) {
-		Square start = move.getStart();
-		Square end = move.getEnd();
-		start.setPiece(end.getPiece());
-		end.setPiece(null);
+		int last = getLastMove();
+		if (last == PackedMove.NONE || PackedMove.from(last) != Position.square(move.getStartX(), move.getStartY())
+				|| PackedMove.to(last) != Position.square(move.getEndX(), move.getEndY())) {
+			throw new IllegalStateException("Only the most recent move can be undone: " + move.getUCIString());
+		}
+		unmakeMove();
+	}
+
+	/**
+	 * Retrieves the most recently applied move.
+	 *
+	 * @return The packed move, or PackedMove.NONE if no move has been applied.
+	 */
+	public int getLastMove() {
+		return appliedCount > 0 ? appliedMoves[appliedCount - 1] : PackedMove.NONE;
+	}
+
+	/**
+	 * Retrieves the number of moves that can be taken back.
+	 *
+	 * @return The number of applied moves.
+	 */
+	public int getAppliedMoveCount() {
+		return appliedCount;
+	}
+
+	/**
+	 * Restores the link between the squares and this board after deserialization.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (int i = 0; i < 8; i++) {
+			for (int j = 0; j < 8; j++) {
+				squares[j][i].attach(this);
+			}
+		}
 	}
 }
\ No newline at end of file
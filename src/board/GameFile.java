@@ -0,0 +1,375 @@
+package board;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * This class is a saved game in the compact binary save format. A move takes
+ * two bytes, so a long game fits in a few hundred bytes, and the file is read
+ * and written in one piece through a FileChannel with no reflection.
+ *
+ * <pre>
+ * int    magic "FCSV"
+ * byte   format version (2; version 1 files have no checkpoints)
+ * byte   flags: bit 0 set if a starting FEN follows
+ * short  length of the starting FEN in bytes, then the FEN in UTF-8 (if flagged)
+ * int    move count
+ * short  per move: from square (bits 0-5), to square (6-11), promotion type (12-14)
+ * int    checkpoint count (version 2)
+ *        per checkpoint: int ply, short FEN length, FEN in UTF-8
+ * int    CRC-32 of every byte before it
+ * </pre>
+ *
+ * Squares are numbered a1 = 0 to h8 = 63, and the game starts from the
+ * standard position unless a starting FEN is stored. Checkpoints record the
+ * position every {@link #CHECKPOINT_INTERVAL} plies or so, so any ply can be
+ * reached by loading the checkpoint before it and replaying only the moves
+ * since. They are placed just after a capture or pawn move, since no
+ * position before one can occur again, so repetitions are still detected
+ * after jumping to a checkpoint.
+ *
+ * Files written with Java serialization by earlier versions of the game are
+ * recognised and can be read with {@link #readLegacy(Path)} so they can be
+ * migrated.
+ */
+public final class GameFile {
+	private static final int MAGIC = 0x46435356; // "FCSV"
+	private static final int VERSION = 2;
+	private static final int FIRST_VERSION = 1;
+	private static final int FLAG_START_FEN = 1;
+	private static final short SERIALIZATION_MAGIC = (short) 0xACED; // How Java serialization streams begin
+
+	/** The least number of plies between two checkpoints. */
+	public static final int CHECKPOINT_INTERVAL = 16;
+
+	private final String startFen;
+	private final short[] moves;
+	private final int[] checkpointPlies; // Ascending
+	private final String[] checkpointFens;
+
+	/**
+	 * Constructs a saved game from a move history.
+	 *
+	 * @param startFen The starting position in FEN, or null for the standard one.
+	 * @param history  The moves played, in order.
+	 */
+	public GameFile(String startFen, List<Move> history) {
+		this.startFen = startFen;
+		this.moves = new short[history.size()];
+		for (int i = 0; i < moves.length; i++) {
+			Move move = history.get(i);
+			int from = Position.square(move.getStartX(), move.getStartY());
+			int to = Position.square(move.getEndX(), move.getEndY());
+			moves[i] = (short) (from | to << 6 | move.getPromotion() << 12);
+		}
+
+		// Play the game through once to find the checkpoints
+		List<Integer> plies = new ArrayList<>();
+		List<String> fens = new ArrayList<>();
+		Position position = Position.fromFen(getCheckpointFen(0));
+		int lastCheckpoint = 0;
+		for (int i = 0; i < moves.length; i++) {
+			if (position.pieceAt(getFrom(i)) == Position.NO_PIECE) {
+				break; // The history does not fit together; loading will report it
+			}
+			position.makeMove(position.encodeMove(getFrom(i), getTo(i), getPromotion(i)));
+			if (i + 1 - lastCheckpoint >= CHECKPOINT_INTERVAL && position.getHalfmoveClock() == 0) {
+				lastCheckpoint = i + 1;
+				plies.add(lastCheckpoint);
+				fens.add(position.toFen());
+			}
+		}
+		this.checkpointPlies = plies.stream().mapToInt(Integer::intValue).toArray();
+		this.checkpointFens = fens.toArray(new String[0]);
+	}
+
+	private GameFile(String startFen, short[] moves, int[] checkpointPlies, String[] checkpointFens) {
+		this.startFen = startFen;
+		this.moves = moves;
+		this.checkpointPlies = checkpointPlies;
+		this.checkpointFens = checkpointFens;
+	}
+
+	/**
+	 * Writes the game to a file, replacing it only once the new contents are
+	 * fully written.
+	 *
+	 * @param file The file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(Path file) throws IOException {
+		byte[] fen = startFen != null ? startFen.getBytes(StandardCharsets.UTF_8) : new byte[0];
+		byte[][] checkpoints = new byte[checkpointFens.length][];
+		int checkpointBytes = 0;
+		for (int i = 0; i < checkpoints.length; i++) {
+			checkpoints[i] = checkpointFens[i].getBytes(StandardCharsets.UTF_8);
+			checkpointBytes += 4 + 2 + checkpoints[i].length;
+		}
+		int header = 4 + 2 + (startFen != null ? 2 + fen.length : 0);
+		ByteBuffer buffer = ByteBuffer.allocate(header + 4 + 2 * moves.length + 4 + checkpointBytes + 4);
+		buffer.putInt(MAGIC).put((byte) VERSION).put((byte) (startFen != null ? FLAG_START_FEN : 0));
+		if (startFen != null) {
+			buffer.putShort((short) fen.length).put(fen);
+		}
+		buffer.putInt(moves.length);
+		for (short move : moves) {
+			buffer.putShort(move);
+		}
+		buffer.putInt(checkpoints.length);
+		for (int i = 0; i < checkpoints.length; i++) {
+			buffer.putInt(checkpointPlies[i]).putShort((short) checkpoints[i].length).put(checkpoints[i]);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		buffer.flip();
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING); // A crash mid-write leaves the old save
+	}
+
+	/**
+	 * Reads a game saved in the binary format.
+	 *
+	 * @param file The file to read.
+	 * @return The saved game.
+	 * @throws IOException if the file cannot be read, is not a save file, has an
+	 *                     unknown version or fails its checksum.
+	 */
+	public static GameFile read(Path file) throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Save file too large: " + file);
+			}
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Keep reading until the buffer is full
+			}
+		}
+		buffer.flip();
+		if (buffer.remaining() < 14 || buffer.getInt() != MAGIC) {
+			throw new IOException("Not a save file: " + file);
+		}
+		int version = buffer.get();
+		if (version < FIRST_VERSION || version > VERSION) {
+			throw new IOException("Unsupported save file version " + version + ": " + file);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.limit() - 4);
+		if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+			throw new IOException("Save file is damaged (checksum mismatch): " + file);
+		}
+
+		try {
+			int flags = buffer.get();
+			String startFen = (flags & FLAG_START_FEN) != 0 ? readFen(buffer) : null;
+			short[] moves = new short[buffer.getInt()];
+			for (int i = 0; i < moves.length; i++) {
+				moves[i] = buffer.getShort();
+			}
+			int checkpointCount = version >= 2 ? buffer.getInt() : 0; // Version 1 is replayed from the start
+			int[] checkpointPlies = new int[checkpointCount];
+			String[] checkpointFens = new String[checkpointCount];
+			for (int i = 0; i < checkpointCount; i++) {
+				checkpointPlies[i] = buffer.getInt();
+				checkpointFens[i] = readFen(buffer);
+				if (checkpointPlies[i] > moves.length || (i > 0 && checkpointPlies[i] <= checkpointPlies[i - 1])) {
+					throw new IOException("Save file has misplaced checkpoints: " + file);
+				}
+			}
+			return new GameFile(startFen, moves, checkpointPlies, checkpointFens);
+		} catch (RuntimeException e) {
+			throw new IOException("Save file is malformed: " + file, e); // Lengths that run past the end
+		}
+	}
+
+	/**
+	 * Reads a length-prefixed UTF-8 FEN string.
+	 */
+	private static String readFen(ByteBuffer buffer) {
+		byte[] fen = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(fen);
+		return new String(fen, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Checks if a file was written with Java serialization by an earlier version
+	 * of the game.
+	 *
+	 * @param file The file to check.
+	 * @return true if the file is a legacy save, false otherwise.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static boolean isLegacy(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			int high = in.read();
+			int low = in.read();
+			return low >= 0 && (short) (high << 8 | low) == SERIALIZATION_MAGIC;
+		}
+	}
+
+	/**
+	 * Reads a save written with Java serialization by an earlier version of the
+	 * game: a list of moves followed by the player to move. Only the classes
+	 * such a save can contain are allowed to be deserialized.
+	 *
+	 * @param file The file to read.
+	 * @return The saved game.
+	 * @throws IOException if the file cannot be read or holds anything else.
+	 */
+	@SuppressWarnings("unchecked")
+	public static GameFile readLegacy(Path file) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+			in.setObjectInputFilter(ObjectInputFilter.Config.createFilter(
+					"maxdepth=20;java.util.ArrayList;java.lang.Object;java.lang.String;board.*;pieces.*;!*"));
+			List<Move> history = (List<Move>) in.readObject();
+			in.readObject(); // The player to move follows from the moves
+			return new GameFile(null, history);
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Not a legacy save file: " + file, e);
+		}
+	}
+
+	/**
+	 * Retrieves the starting position.
+	 *
+	 * @return The starting position in FEN, or null for the standard one.
+	 */
+	public String getStartFen() {
+		return startFen;
+	}
+
+	/**
+	 * Finds the checkpoint to start from to reach a ply.
+	 *
+	 * @param ply The number of moves played, from 0 to the move count.
+	 * @return The ply of the last checkpoint at or before it, or 0 for the
+	 *         starting position.
+	 * @throws IllegalArgumentException if the ply is outside the game.
+	 */
+	public int getCheckpoint(int ply) {
+		if (ply < 0 || ply > moves.length) {
+			throw new IllegalArgumentException("Ply " + ply + " is outside a game of " + moves.length + " plies");
+		}
+		int index = Arrays.binarySearch(checkpointPlies, ply);
+		if (index < 0) {
+			index = -index - 2; // The checkpoint before the insertion point
+		}
+		return index >= 0 ? checkpointPlies[index] : 0;
+	}
+
+	/**
+	 * Retrieves the position at a checkpoint.
+	 *
+	 * @param checkpoint The ply of a checkpoint, as returned by
+	 *                   {@link #getCheckpoint(int)}, or 0.
+	 * @return The position in FEN.
+	 * @throws IllegalArgumentException if there is no checkpoint at that ply.
+	 */
+	public String getCheckpointFen(int checkpoint) {
+		if (checkpoint == 0) {
+			return startFen != null ? startFen : Position.START_FEN;
+		}
+		int index = Arrays.binarySearch(checkpointPlies, checkpoint);
+		if (index < 0) {
+			throw new IllegalArgumentException("No checkpoint at ply " + checkpoint);
+		}
+		return checkpointFens[index];
+	}
+
+	/**
+	 * Decodes a saved move against the position it is played from.
+	 *
+	 * @param index    The index of the move, from 0.
+	 * @param position The position before the move.
+	 * @return The packed move.
+	 * @throws IllegalStateException if the move is not legal in the position,
+	 *                               which means the save does not fit together.
+	 */
+	public int getLegalMove(int index, Position position) {
+		int move = position.encodeMove(getFrom(index), getTo(index), getPromotion(index));
+		MoveList legalMoves = new MoveList();
+		MoveGenerator.generateLegal(position, legalMoves);
+		if (position.pieceAt(getFrom(index)) == Position.NO_PIECE || !legalMoves.contains(move)) {
+			throw new IllegalStateException("Saved move " + (index + 1) + " is not legal in " + position.toFen());
+		}
+		return move;
+	}
+
+	/**
+	 * Reconstructs the position after a number of moves, replaying only the
+	 * moves since the checkpoint before it.
+	 *
+	 * @param ply The number of moves played, from 0 to the move count.
+	 * @return The position.
+	 * @throws IllegalArgumentException if the ply is outside the game.
+	 * @throws IllegalStateException    if a replayed move is not legal.
+	 */
+	public Position positionAt(int ply) {
+		int checkpoint = getCheckpoint(ply);
+		Position position = Position.fromFen(getCheckpointFen(checkpoint));
+		for (int i = checkpoint; i < ply; i++) {
+			position.makeMove(getLegalMove(i, position));
+		}
+		return position;
+	}
+
+	/**
+	 * Retrieves the number of moves saved.
+	 *
+	 * @return The move count.
+	 */
+	public int getMoveCount() {
+		return moves.length;
+	}
+
+	/**
+	 * Retrieves the origin square of a move.
+	 *
+	 * @param index The index of the move, from 0.
+	 * @return The square index.
+	 */
+	public int getFrom(int index) {
+		return moves[index] & 63;
+	}
+
+	/**
+	 * Retrieves the destination square of a move.
+	 *
+	 * @param index The index of the move, from 0.
+	 * @return The square index.
+	 */
+	public int getTo(int index) {
+		return (moves[index] >>> 6) & 63;
+	}
+
+	/**
+	 * Retrieves the promotion piece type of a move.
+	 *
+	 * @param index The index of the move, from 0.
+	 * @return The piece type, or 0 if the move is not a promotion.
+	 */
+	public int getPromotion(int index) {
+		return (moves[index] >>> 12) & 7;
+	}
+}
@@ -0,0 +1,142 @@
+package board;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class holds the magic-bitboard attack tables for rooks and bishops. For
+ * every square the relevant blockers are masked out of the occupancy,
+ * multiplied by a magic number and shifted down to index a table of
+ * precomputed attack sets, so a slider lookup is one multiply and one array
+ * read.
+ *
+ * The magic numbers are found with a seeded search when the class is loaded,
+ * which makes the tables identical on every run. They are never modified
+ * afterwards, so they are shared safely by every board and thread.
+ */
+final class Magics {
+	private static final long SEED = 0x5EED_F00D_CAFEL;
+
+	private static final Table ROOK = new Table(Attacks.ROOK_STEPS, new SplittableRandom(SEED));
+	private static final Table BISHOP = new Table(Attacks.BISHOP_STEPS, new SplittableRandom(SEED + 1));
+
+	private Magics() {
+	}
+
+	/**
+	 * Looks up the squares a rook attacks.
+	 *
+	 * @param square   The origin square index.
+	 * @param occupied The bitboard of occupied squares.
+	 * @return The attack bitboard.
+	 */
+	static long rook(int square, long occupied) {
+		return ROOK.attacks(square, occupied);
+	}
+
+	/**
+	 * Looks up the squares a bishop attacks.
+	 *
+	 * @param square   The origin square index.
+	 * @param occupied The bitboard of occupied squares.
+	 * @return The attack bitboard.
+	 */
+	static long bishop(int square, long occupied) {
+		return BISHOP.attacks(square, occupied);
+	}
+
+	/**
+	 * The magic attack table of one kind of slider.
+	 */
+	private static final class Table {
+		private final long[] masks = new long[64];
+		private final long[] magics = new long[64];
+		private final int[] shifts = new int[64];
+		private final long[][] attacks = new long[64][];
+
+		/**
+		 * Builds the table by searching a magic number for each square.
+		 *
+		 * @param steps  The {file, rank} directions of the slider's rays.
+		 * @param random The random source for magic candidates.
+		 */
+		Table(int[][] steps, SplittableRandom random) {
+			for (int sq = 0; sq < 64; sq++) {
+				long mask = relevantMask(sq, steps);
+				int bits = Long.bitCount(mask);
+				int size = 1 << bits;
+
+				// Enumerate every blocker subset of the mask with its true attack set
+				long[] occupancies = new long[size];
+				long[] reference = new long[size];
+				long subset = 0L;
+				for (int i = 0; i < size; i++) {
+					occupancies[i] = subset;
+					reference[i] = Attacks.slidingAttacks(sq, subset, steps);
+					subset = (subset - mask) & mask;
+				}
+
+				masks[sq] = mask;
+				shifts[sq] = 64 - bits;
+				attacks[sq] = new long[size];
+				magics[sq] = findMagic(mask, shifts[sq], occupancies, reference, attacks[sq], random);
+			}
+		}
+
+		/**
+		 * Searches for a multiplier that maps every blocker subset onto a table slot
+		 * without destructive collisions, filling the table as it goes.
+		 */
+		private static long findMagic(long mask, int shift, long[] occupancies, long[] reference, long[] table,
+				SplittableRandom random) {
+			int[] epoch = new int[table.length];
+			int attempt = 0;
+			while (true) {
+				long magic = random.nextLong() & random.nextLong() & random.nextLong(); // Sparse candidates work best
+				if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+					continue;
+				}
+				attempt++;
+				boolean failed = false;
+				for (int i = 0; i < occupancies.length && !failed; i++) {
+					int index = (int) ((occupancies[i] * magic) >>> shift);
+					if (epoch[index] < attempt) {
+						epoch[index] = attempt;
+						table[index] = reference[i];
+					} else if (table[index] != reference[i]) {
+						failed = true;
+					}
+				}
+				if (!failed) {
+					return magic;
+				}
+			}
+		}
+
+		/**
+		 * Builds the mask of squares whose occupancy affects a slider on a square:
+		 * every ray square except the last one before the edge.
+		 */
+		private static long relevantMask(int square, int[][] steps) {
+			long mask = 0L;
+			int file = square & 7;
+			int rank = square >>> 3;
+			for (int[] step : steps) {
+				int f = file + step[0];
+				int r = rank + step[1];
+				while (f + step[0] >= 0 && f + step[0] < 8 && r + step[1] >= 0 && r + step[1] < 8) {
+					mask |= 1L << (r * 8 + f);
+					f += step[0];
+					r += step[1];
+				}
+			}
+			return mask;
+		}
+
+		/**
+		 * Looks up the attack set of a square for a given occupancy.
+		 */
+		long attacks(int square, long occupied) {
+			return attacks[square][(int) (((occupied & masks[square]) * magics[square]) >>> shifts[square])];
+		}
+	}
+}
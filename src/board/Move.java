@@ -4,12 +4,15 @@ import java.io.Serializable;
 
 /**
  * This class controls a move in the game. It encapsulates the starting and
- * ending squares of the move.
+ * ending squares of the move. Moves produced by the board also carry their
+ * {@link PackedMove} encoding, making this class a decoded view of it for the
+ * UI and controller.
  */
 public class Move implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private final Square start;
 	private final Square end;
+	private final int packed; // The packed encoding, or PackedMove.NONE if unknown
 
 	/**
 	 * Constructs a new Move.
@@ -18,8 +21,39 @@ public class Move implements Serializable {
 	 * @param end   The ending square of the move.
 	 */
 	public Move(Square start, Square end) {
+		this(start, end, PackedMove.NONE);
+	}
+
+	/**
+	 * Constructs a new Move as a view of a packed move.
+	 *
+	 * @param start  The starting square of the move.
+	 * @param end    The ending square of the move.
+	 * @param packed The packed encoding of the move.
+	 */
+	public Move(Square start, Square end, int packed) {
 		this.start = start;
 		this.end = end;
+		this.packed = packed;
+	}
+
+	/**
+	 * Retrieves the packed encoding of the move.
+	 *
+	 * @return The packed move, or PackedMove.NONE if the move was built from
+	 *         squares alone.
+	 */
+	public int getPacked() {
+		return packed;
+	}
+
+	/**
+	 * Retrieves the piece type a pawn promotes to with this move.
+	 *
+	 * @return The promotion piece type, or 0 if the move is not a promotion.
+	 */
+	public int getPromotion() {
+		return PackedMove.promotion(packed);
 	}
 
 	/**
@@ -82,7 +116,9 @@ public class Move implements Serializable {
 	 * @return The UCI string of the move.
 	 */
 	public String getUCIString() {
-		return squareToUCI(start) + squareToUCI(end);
+		String uci = squareToUCI(start) + squareToUCI(end);
+		int promotion = getPromotion();
+		return promotion != 0 ? uci + "pnbrqk".charAt(promotion) : uci;
 	}
 
 	/**
@@ -0,0 +1,228 @@
+package board;
+
+/**
+ * This class enumerates moves directly from a piece's type and origin square
+ * using the attack sets in {@link Attacks}, instead of testing every square of
+ * the board against the piece's movement rules. Moves are written as packed
+ * ints into a caller-supplied {@link MoveList}.
+ *
+ * Generated moves are pseudo-legal: they follow the movement rules, including
+ * castling, en passant and promotion, but may leave the mover's own king in
+ * check.
+ */
+public final class MoveGenerator {
+	private static final long RANK_1 = 0x00000000000000FFL;
+	private static final long RANK_3 = 0x0000000000FF0000L;
+	private static final long RANK_6 = 0x0000FF0000000000L;
+	private static final long RANK_8 = 0xFF00000000000000L;
+
+	private MoveGenerator() {
+	}
+
+	/**
+	 * Appends every pseudo-legal move of a color to a move list.
+	 *
+	 * @param position The position to generate in.
+	 * @param color    The color to generate moves for.
+	 * @param moves    The list to append to.
+	 */
+	public static void generate(Position position, int color, MoveList moves) {
+		generatePieceMoves(position, color, ~position.getOccupancy(color), moves);
+		generatePawnMoves(position, color, false, moves);
+		long king = position.getPieces(color, Position.KING);
+		if (king != 0) {
+			generateCastling(position, color, Long.numberOfTrailingZeros(king), position.getOccupied(), moves);
+		}
+	}
+
+	/**
+	 * Appends the pseudo-legal captures and queen promotions of a color to a move
+	 * list, as searched by quiescence.
+	 *
+	 * @param position The position to generate in.
+	 * @param color    The color to generate moves for.
+	 * @param moves    The list to append to.
+	 */
+	public static void generateCaptures(Position position, int color, MoveList moves) {
+		generatePieceMoves(position, color, position.getOccupancy(color ^ 1), moves);
+		generatePawnMoves(position, color, true, moves);
+	}
+
+	/**
+	 * Appends the piece moves (everything except pawn moves and castling) that
+	 * land on a set of target squares.
+	 */
+	private static void generatePieceMoves(Position position, int color, long allowed, MoveList moves) {
+		long enemy = position.getOccupancy(color ^ 1);
+		long occupied = position.getOccupied();
+
+		long knights = position.getPieces(color, Position.KNIGHT);
+		while (knights != 0) {
+			int from = Long.numberOfTrailingZeros(knights);
+			addMoves(from, Attacks.knight(from) & allowed, enemy, moves);
+			knights &= knights - 1;
+		}
+		long bishops = position.getPieces(color, Position.BISHOP);
+		while (bishops != 0) {
+			int from = Long.numberOfTrailingZeros(bishops);
+			addMoves(from, Attacks.bishop(from, occupied) & allowed, enemy, moves);
+			bishops &= bishops - 1;
+		}
+		long rooks = position.getPieces(color, Position.ROOK);
+		while (rooks != 0) {
+			int from = Long.numberOfTrailingZeros(rooks);
+			addMoves(from, Attacks.rook(from, occupied) & allowed, enemy, moves);
+			rooks &= rooks - 1;
+		}
+		long queens = position.getPieces(color, Position.QUEEN);
+		while (queens != 0) {
+			int from = Long.numberOfTrailingZeros(queens);
+			addMoves(from, Attacks.queen(from, occupied) & allowed, enemy, moves);
+			queens &= queens - 1;
+		}
+		long king = position.getPieces(color, Position.KING);
+		if (king != 0) {
+			int from = Long.numberOfTrailingZeros(king);
+			addMoves(from, Attacks.king(from) & allowed, enemy, moves);
+		}
+	}
+
+	/**
+	 * Appends every legal move of the side to move to a move list: the
+	 * pseudo-legal moves that do not leave the mover's king in check.
+	 *
+	 * @param position The position to generate in. It is restored before
+	 *                 returning.
+	 * @param moves    The list to append to.
+	 */
+	public static void generateLegal(Position position, MoveList moves) {
+		int color = position.getSideToMove();
+		int first = moves.size();
+		generate(position, color, moves);
+
+		int kept = first;
+		for (int i = first; i < moves.size(); i++) {
+			int move = moves.get(i);
+			position.makeMove(move);
+			if (!position.isInCheck(color)) {
+				moves.set(kept++, move);
+			}
+			position.unmakeMove(move);
+		}
+		moves.truncate(kept);
+	}
+
+	/**
+	 * Appends a move to every destination in a bitboard, flagging captures.
+	 */
+	private static void addMoves(int from, long targets, long enemy, MoveList moves) {
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			moves.add(PackedMove.encode(from, to, 0, (enemy & (1L << to)) != 0 ? PackedMove.CAPTURE : 0));
+			targets &= targets - 1;
+		}
+	}
+
+	/**
+	 * Appends pawn pushes, captures, en-passant captures and promotions. With
+	 * capturesOnly set, quiet pushes are skipped and promotions are to a queen.
+	 */
+	private static void generatePawnMoves(Position position, int color, boolean capturesOnly, MoveList moves) {
+		long pawns = position.getPieces(color, Position.PAWN);
+		long enemy = position.getOccupancy(color ^ 1);
+		long empty = ~position.getOccupied();
+		int forward = color == Position.WHITE ? 8 : -8;
+		long lastRank = color == Position.WHITE ? RANK_8 : RANK_1;
+
+		long single;
+		long doubles;
+		if (color == Position.WHITE) {
+			single = (pawns << 8) & empty;
+			doubles = ((single & RANK_3) << 8) & empty;
+		} else {
+			single = (pawns >>> 8) & empty;
+			doubles = ((single & RANK_6) >>> 8) & empty;
+		}
+
+		if (capturesOnly) {
+			single &= lastRank;
+			doubles = 0L;
+		}
+
+		while (single != 0) {
+			int to = Long.numberOfTrailingZeros(single);
+			addPawnMove(to - forward, to, 0, lastRank, capturesOnly, moves);
+			single &= single - 1;
+		}
+		while (doubles != 0) {
+			int to = Long.numberOfTrailingZeros(doubles);
+			moves.add(PackedMove.encode(to - 2 * forward, to, 0, PackedMove.DOUBLE_PUSH));
+			doubles &= doubles - 1;
+		}
+
+		int enPassant = color == position.getSideToMove() ? position.getEnPassantSquare() : Position.NO_SQUARE;
+		while (pawns != 0) {
+			int from = Long.numberOfTrailingZeros(pawns);
+			long attacks = Attacks.pawn(color, from);
+			long captures = attacks & enemy;
+			while (captures != 0) {
+				int to = Long.numberOfTrailingZeros(captures);
+				addPawnMove(from, to, PackedMove.CAPTURE, lastRank, capturesOnly, moves);
+				captures &= captures - 1;
+			}
+			if (enPassant != Position.NO_SQUARE && (attacks & (1L << enPassant)) != 0) {
+				moves.add(PackedMove.encode(from, enPassant, 0, PackedMove.EN_PASSANT));
+			}
+			pawns &= pawns - 1;
+		}
+	}
+
+	/**
+	 * Appends a pawn move, expanding it into the four promotions when it reaches
+	 * the last rank (or only the queen promotion when queenOnly is set).
+	 */
+	private static void addPawnMove(int from, int to, int flags, long lastRank, boolean queenOnly, MoveList moves) {
+		if ((lastRank & (1L << to)) != 0) {
+			moves.add(PackedMove.encode(from, to, Position.QUEEN, flags));
+			if (queenOnly) {
+				return;
+			}
+			moves.add(PackedMove.encode(from, to, Position.KNIGHT, flags));
+			moves.add(PackedMove.encode(from, to, Position.ROOK, flags));
+			moves.add(PackedMove.encode(from, to, Position.BISHOP, flags));
+		} else {
+			moves.add(PackedMove.encode(from, to, 0, flags));
+		}
+	}
+
+	/**
+	 * Appends castling moves. The rights must remain, the squares between king
+	 * and rook must be empty, and the king may not start in, pass through or land
+	 * on an attacked square.
+	 */
+	private static void generateCastling(Position position, int color, int king, long occupied, MoveList moves) {
+		int rights = position.getCastlingRights();
+		int home = color == Position.WHITE ? 4 : 60; // e1 or e8
+		if (king != home) {
+			return;
+		}
+		int kingside = color == Position.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+		int queenside = color == Position.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+		int enemy = color ^ 1;
+		int rook = Position.pieceCode(color, Position.ROOK);
+
+		if ((rights & (kingside | queenside)) == 0 || position.isSquareAttacked(home, enemy)) {
+			return;
+		}
+		if ((rights & kingside) != 0 && position.pieceAt(home + 3) == rook
+				&& (occupied & (3L << (home + 1))) == 0 && !position.isSquareAttacked(home + 1, enemy)
+				&& !position.isSquareAttacked(home + 2, enemy)) {
+			moves.add(PackedMove.encode(home, home + 2, 0, PackedMove.CASTLING));
+		}
+		if ((rights & queenside) != 0 && position.pieceAt(home - 4) == rook
+				&& (occupied & (7L << (home - 3))) == 0 && !position.isSquareAttacked(home - 1, enemy)
+				&& !position.isSquareAttacked(home - 2, enemy)) {
+			moves.add(PackedMove.encode(home, home - 2, 0, PackedMove.CASTLING));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package board;
+
+/**
+ * This class is a reusable buffer of packed moves. The move generator appends
+ * to it in place, so a single list can be cleared and refilled at every node
+ * of a search without allocating.
+ */
+public class MoveList {
+	/** No legal chess position has more than 218 moves; 256 leaves headroom. */
+	public static final int CAPACITY = 256;
+
+	private final int[] moves;
+	private int size;
+
+	/**
+	 * Constructs an empty move list.
+	 */
+	public MoveList() {
+		moves = new int[CAPACITY];
+	}
+
+	/**
+	 * Appends a packed move.
+	 *
+	 * @param move The packed move.
+	 */
+	public void add(int move) {
+		moves[size++] = move;
+	}
+
+	/**
+	 * Retrieves the packed move at an index.
+	 *
+	 * @param index The index.
+	 * @return The packed move.
+	 */
+	public int get(int index) {
+		return moves[index];
+	}
+
+	/**
+	 * Replaces the packed move at an index.
+	 *
+	 * @param index The index.
+	 * @param move  The packed move.
+	 */
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+	/**
+	 * Exchanges two entries, used when ordering moves in place.
+	 *
+	 * @param i The first index.
+	 * @param j The second index.
+	 */
+	public void swap(int i, int j) {
+		int tmp = moves[i];
+		moves[i] = moves[j];
+		moves[j] = tmp;
+	}
+
+	/**
+	 * Retrieves the number of moves in the list.
+	 *
+	 * @return The size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the list holds a given packed move.
+	 *
+	 * @param move The packed move.
+	 * @return true if the move is in the list, false otherwise.
+	 */
+	public boolean contains(int move) {
+		for (int i = 0; i < size; i++) {
+			if (moves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drops every move from an index onwards.
+	 *
+	 * @param newSize The number of moves to keep.
+	 */
+	public void truncate(int newSize) {
+		size = newSize;
+	}
+
+	/**
+	 * Empties the list so it can be refilled.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,120 @@
+package board;
+
+/**
+ * This class encodes a move into a single int so that move generation and
+ * search never allocate. The layout is:
+ *
+ * <pre>
+ * bits  0-5   origin square index
+ * bits  6-11  destination square index
+ * bits 12-14  promotion piece type (0 when the move is not a promotion)
+ * bits 15-18  flags (capture, double push, en passant, castling)
+ * </pre>
+ *
+ * The value 0 (a1 to a1) is never a real move and is used as "no move".
+ */
+public final class PackedMove {
+	public static final int NONE = 0;
+
+	public static final int CAPTURE = 1 << 15;
+	public static final int DOUBLE_PUSH = 1 << 16;
+	public static final int EN_PASSANT = 1 << 17;
+	public static final int CASTLING = 1 << 18;
+
+	private static final int FLAG_MASK = CAPTURE | DOUBLE_PUSH | EN_PASSANT | CASTLING;
+
+	private PackedMove() {
+	}
+
+	/**
+	 * Packs the parts of a move into an int.
+	 *
+	 * @param from      The origin square index.
+	 * @param to        The destination square index.
+	 * @param promotion The promotion piece type, or 0 for none.
+	 * @param flags     Any combination of the flag constants.
+	 * @return The packed move.
+	 */
+	public static int encode(int from, int to, int promotion, int flags) {
+		return from | (to << 6) | (promotion << 12) | flags;
+	}
+
+	/**
+	 * Retrieves the origin square of a packed move.
+	 *
+	 * @param move The packed move.
+	 * @return The origin square index.
+	 */
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	/**
+	 * Retrieves the destination square of a packed move.
+	 *
+	 * @param move The packed move.
+	 * @return The destination square index.
+	 */
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	/**
+	 * Retrieves the promotion piece type of a packed move.
+	 *
+	 * @param move The packed move.
+	 * @return The piece type to promote to, or 0 if the move is not a promotion.
+	 */
+	public static int promotion(int move) {
+		return (move >>> 12) & 7;
+	}
+
+	/**
+	 * Retrieves the flags of a packed move.
+	 *
+	 * @param move The packed move.
+	 * @return The flag bits.
+	 */
+	public static int flags(int move) {
+		return move & FLAG_MASK;
+	}
+
+	/**
+	 * Checks if a packed move captures a piece, including en passant.
+	 *
+	 * @param move The packed move.
+	 * @return true if the move is a capture, false otherwise.
+	 */
+	public static boolean isCapture(int move) {
+		return (move & (CAPTURE | EN_PASSANT)) != 0;
+	}
+
+	/**
+	 * Formats a packed move in UCI notation, such as e2e4 or e7e8q.
+	 *
+	 * @param move The packed move.
+	 * @return The UCI string of the move.
+	 */
+	public static String toUCI(int move) {
+		StringBuilder uci = new StringBuilder(5);
+		appendUCI(uci, move);
+		return uci.toString();
+	}
+
+	/**
+	 * Appends a packed move in UCI notation to a builder.
+	 *
+	 * @param out  The builder to append to.
+	 * @param move The packed move.
+	 */
+	public static void appendUCI(StringBuilder out, int move) {
+		int from = from(move);
+		int to = to(move);
+		out.append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)));
+		out.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+		int promotion = promotion(move);
+		if (promotion != 0) {
+			out.append("pnbrqk".charAt(promotion));
+		}
+	}
+}
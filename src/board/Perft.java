@@ -0,0 +1,206 @@
+package board;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class counts the leaf nodes of the legal move tree to a fixed depth
+ * ("perft"). The counts for well-known positions are published, so any
+ * difference points at a move generation bug, and the time taken is the
+ * generator's headline speed.
+ *
+ * Run it headless with {@code java board.Perft [options] [fen]}:
+ *
+ * <pre>
+ * --depth N   search to depth N instead of the suite's reference depth
+ * --divide    print the count below each root move
+ * --board     count through Board's move objects instead of packed moves
+ *             (without divide output)
+ * </pre>
+ *
+ * Without a FEN the reference suite is run and the exit status is 1 if any
+ * count is wrong.
+ */
+public final class Perft {
+	/** The "Kiwipete" position, dense with castling, en passant and promotions. */
+	public static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	// Name, FEN and one reference depth with its node count
+	private static final String[][] SUITE = {
+			{ "startpos", Position.START_FEN, "5", "4865609" },
+			{ "kiwipete", KIWIPETE, "4", "4085603" },
+			{ "position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "5", "674624" },
+			{ "position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "4", "422333" },
+			{ "position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "4", "2103487" },
+			{ "position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "4",
+					"3894594" } };
+
+	private static final int MAX_DEPTH = 32;
+
+	private final Position position;
+	private final MoveList[] moveLists;
+
+	/**
+	 * Constructs a perft counter over a position. The position is modified
+	 * while counting and restored afterwards.
+	 *
+	 * @param position The position to count from.
+	 */
+	public Perft(Position position) {
+		this.position = position;
+		this.moveLists = new MoveList[MAX_DEPTH + 1];
+		for (int i = 0; i < moveLists.length; i++) {
+			moveLists[i] = new MoveList();
+		}
+	}
+
+	/**
+	 * Counts the leaf nodes to a depth. The last ply is bulk-counted: the legal
+	 * moves are generated but not played.
+	 *
+	 * @param depth The depth in plies.
+	 * @return The number of leaf nodes.
+	 */
+	public long count(int depth) {
+		return count(depth, 0);
+	}
+
+	private long count(int depth, int ply) {
+		if (depth == 0) {
+			return 1;
+		}
+		MoveList moves = moveLists[ply];
+		moves.clear();
+		MoveGenerator.generateLegal(position, moves);
+		if (depth == 1) {
+			return moves.size();
+		}
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			position.makeMove(move);
+			nodes += count(depth - 1, ply + 1);
+			position.unmakeMove(move);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Counts the leaf nodes below each legal root move.
+	 *
+	 * @param depth The depth in plies, counting the root move.
+	 * @return The counts keyed by root move in UCI notation, in generation order.
+	 */
+	public Map<String, Long> divide(int depth) {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		MoveList moves = new MoveList();
+		MoveGenerator.generateLegal(position, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			position.makeMove(move);
+			counts.put(PackedMove.toUCI(move), count(depth - 1, 1));
+			position.unmakeMove(move);
+		}
+		return counts;
+	}
+
+	/**
+	 * Counts the leaf nodes to a depth through the board's public move API:
+	 * getAllPossibleMoves, applyMove and undoMove. It is much slower than
+	 * {@link #count} but checks the path the game itself uses.
+	 *
+	 * @param board The board to count from; it is restored afterwards.
+	 * @param depth The depth in plies.
+	 * @return The number of leaf nodes.
+	 */
+	public static long countOnBoard(Board board, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		Position position = board.getPosition();
+		int us = position.getSideToMove();
+		List<Move> moves = board.getAllPossibleMoves(us == Position.WHITE ? "White" : "Black");
+		long nodes = 0;
+		for (Move move : moves) {
+			board.applyMove(move);
+			if (!position.isInCheck(us)) { // Moves that leave the king in check are not legal
+				nodes += countOnBoard(board, depth - 1);
+			}
+			board.undoMove(move);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Runs perft from the command line.
+	 *
+	 * @param args The options and an optional FEN string; see the class comment.
+	 */
+	public static void main(String[] args) {
+		int depth = 0;
+		boolean divide = false;
+		boolean onBoard = false;
+		StringBuilder fen = new StringBuilder();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--depth":
+				depth = Integer.parseInt(args[++i]);
+				break;
+			case "--divide":
+				divide = true;
+				break;
+			case "--board":
+				onBoard = true;
+				break;
+			default:
+				fen.append(args[i]).append(' '); // A FEN passed without quotes arrives split into fields
+			}
+		}
+
+		if (fen.length() > 0) {
+			run("custom", fen.toString().trim(), depth > 0 ? depth : 5, -1, divide, onBoard);
+			return;
+		}
+		boolean passed = true;
+		for (String[] test : SUITE) {
+			int testDepth = depth > 0 ? depth : Integer.parseInt(test[2]);
+			long expected = testDepth == Integer.parseInt(test[2]) ? Long.parseLong(test[3]) : -1;
+			passed &= run(test[0], test[1], testDepth, expected, divide, onBoard);
+		}
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Counts one position and prints the result.
+	 *
+	 * @return false if the count differs from the expected one, true otherwise.
+	 */
+	private static boolean run(String name, String fen, int depth, long expected, boolean divide,
+			boolean onBoard) {
+		long start = System.nanoTime();
+		long nodes;
+		if (onBoard) {
+			Board board = new Board();
+			board.loadFen(fen);
+			nodes = countOnBoard(board, depth);
+		} else if (divide) {
+			nodes = 0;
+			for (Map.Entry<String, Long> entry : new Perft(Position.fromFen(fen)).divide(depth).entrySet()) {
+				System.out.println(entry.getKey() + ": " + entry.getValue());
+				nodes += entry.getValue();
+			}
+		} else {
+			nodes = new Perft(Position.fromFen(fen)).count(depth);
+		}
+		long nanos = Math.max(1, System.nanoTime() - start);
+
+		boolean passed = expected < 0 || nodes == expected;
+		String verdict = expected < 0 ? "" : passed ? " OK" : " FAIL, expected " + expected;
+		System.out.println(name + " depth " + depth + ": " + nodes + " nodes in " + nanos / 1_000_000 + " ms ("
+				+ nodes * 1_000_000_000L / nanos + " nps)" + verdict);
+		return passed;
+	}
+}
@@ -0,0 +1,783 @@
+package board;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * This class holds the bitboard representation of a chess position. Each of the
+ * twelve piece kinds owns a 64-bit board where bit n is set when that piece
+ * stands on square n (a1 = 0, b1 = 1, ... h8 = 63). Alongside the bitboards it
+ * tracks the side to move, castling rights, the en-passant square, the
+ * halfmove clock and a Zobrist key identifying the position.
+ *
+ * Moves are applied with {@link #makeMove(int)} and reverted with
+ * {@link #unmakeMove(int)}. The state a move destroys is pushed onto a
+ * primitive history stack, so a make/unmake pair does not allocate.
+ */
+public class Position implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// Colors
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	// Piece types, combined with a color as color * 6 + type to form a piece code
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	public static final int NO_PIECE = -1;
+	public static final int NO_SQUARE = -1;
+
+	// Castling right flags
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+	public static final int ALL_CASTLING = 15;
+
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	private static final String PIECE_LETTERS = "PNBRQKpnbrqk"; // Indexed by piece code
+
+	private final long[] pieces; // One bitboard per piece code
+	private final long[] colors; // Occupancy per color
+	private long occupied; // Occupancy of both colors
+	private final int[] mailbox; // Piece code per square, for O(1) lookups by square
+	private int sideToMove;
+	private int castlingRights;
+	private int enPassantSquare;
+	private int halfmoveClock;
+	private int fullmoveNumber;
+	private long key; // Zobrist key, updated incrementally on every change
+	private int[] history; // Packed irreversible state, one entry per move made
+	private long[] keyHistory; // Zobrist key before each move made
+	private int ply; // Number of entries on the history stack
+
+	/**
+	 * Constructs an empty position with White to move and all castling rights.
+	 */
+	public Position() {
+		pieces = new long[12];
+		colors = new long[2];
+		mailbox = new int[64];
+		history = new int[256];
+		keyHistory = new long[256];
+		clear();
+	}
+
+	/**
+	 * Constructs a copy of another position, including its move history, so the
+	 * copy can be searched independently of the original.
+	 *
+	 * @param other The position to copy.
+	 */
+	public Position(Position other) {
+		pieces = other.pieces.clone();
+		colors = other.colors.clone();
+		mailbox = other.mailbox.clone();
+		occupied = other.occupied;
+		sideToMove = other.sideToMove;
+		castlingRights = other.castlingRights;
+		enPassantSquare = other.enPassantSquare;
+		halfmoveClock = other.halfmoveClock;
+		fullmoveNumber = other.fullmoveNumber;
+		key = other.key;
+		history = other.history.clone();
+		keyHistory = other.keyHistory.clone();
+		ply = other.ply;
+	}
+
+	/**
+	 * Creates a position from Forsyth-Edwards Notation.
+	 *
+	 * @param fen The FEN string.
+	 * @return The position.
+	 * @throws IllegalArgumentException if the string is not valid FEN.
+	 */
+	public static Position fromFen(String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 2) {
+			throw new IllegalArgumentException("Invalid FEN: " + fen);
+		}
+		Position position = new Position();
+		int rank = 7;
+		int file = 0;
+		for (char c : fields[0].toCharArray()) {
+			if (c == '/') {
+				rank--;
+				file = 0;
+			} else if (c >= '1' && c <= '8') {
+				file += c - '0';
+			} else {
+				int code = PIECE_LETTERS.indexOf(c);
+				if (code < 0 || rank < 0 || file > 7) {
+					throw new IllegalArgumentException("Invalid FEN: " + fen);
+				}
+				position.putPiece(rank * 8 + file, code);
+				file++;
+			}
+		}
+
+		if (!fields[1].equals("w") && !fields[1].equals("b")) {
+			throw new IllegalArgumentException("Invalid FEN: " + fen);
+		}
+		position.setSideToMove(fields[1].equals("b") ? BLACK : WHITE);
+		int rights = 0;
+		String castling = fields.length > 2 ? fields[2] : "-";
+		rights |= castling.indexOf('K') >= 0 ? WHITE_KINGSIDE : 0;
+		rights |= castling.indexOf('Q') >= 0 ? WHITE_QUEENSIDE : 0;
+		rights |= castling.indexOf('k') >= 0 ? BLACK_KINGSIDE : 0;
+		rights |= castling.indexOf('q') >= 0 ? BLACK_QUEENSIDE : 0;
+		position.setCastlingRights(rights);
+		if (fields.length > 3 && !fields[3].equals("-")) {
+			String field = fields[3];
+			char expectedRank = position.sideToMove == WHITE ? '6' : '3'; // Behind the pawn that just moved two
+			if (field.length() != 2 || field.charAt(0) < 'a' || field.charAt(0) > 'h' || field.charAt(1) != expectedRank) {
+				throw new IllegalArgumentException("Invalid FEN: " + fen);
+			}
+			int square = (field.charAt(1) - '1') * 8 + (field.charAt(0) - 'a');
+			int color = position.sideToMove;
+			if ((Attacks.pawn(color ^ 1, square) & position.pieces[pieceCode(color, PAWN)]) != 0) {
+				position.setEnPassantSquare(square); // Kept only when a pawn can take, as makeMove does
+			}
+		}
+		if (fields.length > 5) {
+			position.setHalfmoveClock(Integer.parseInt(fields[4]));
+			position.setFullmoveNumber(Integer.parseInt(fields[5]));
+		}
+		return position;
+	}
+
+	/**
+	 * Formats the position in Forsyth-Edwards Notation.
+	 *
+	 * @return The FEN string.
+	 */
+	public String toFen() {
+		StringBuilder fen = new StringBuilder(90);
+		for (int rank = 7; rank >= 0; rank--) {
+			int empty = 0;
+			for (int file = 0; file < 8; file++) {
+				int code = mailbox[rank * 8 + file];
+				if (code == NO_PIECE) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					fen.append(empty);
+					empty = 0;
+				}
+				fen.append(PIECE_LETTERS.charAt(code));
+			}
+			if (empty > 0) {
+				fen.append(empty);
+			}
+			if (rank > 0) {
+				fen.append('/');
+			}
+		}
+		fen.append(sideToMove == WHITE ? " w " : " b ");
+		if (castlingRights == 0) {
+			fen.append('-');
+		} else {
+			for (int i = 0; i < 4; i++) {
+				if ((castlingRights & (1 << i)) != 0) {
+					fen.append("KQkq".charAt(i));
+				}
+			}
+		}
+		fen.append(' ');
+		if (enPassantSquare == NO_SQUARE) {
+			fen.append('-');
+		} else {
+			fen.append((char) ('a' + (enPassantSquare & 7))).append((char) ('1' + (enPassantSquare >>> 3)));
+		}
+		fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+		return fen.toString();
+	}
+
+	/**
+	 * Removes every piece and resets the game state fields.
+	 */
+	public void clear() {
+		for (int i = 0; i < 12; i++) {
+			pieces[i] = 0L;
+		}
+		colors[WHITE] = 0L;
+		colors[BLACK] = 0L;
+		occupied = 0L;
+		for (int sq = 0; sq < 64; sq++) {
+			mailbox[sq] = NO_PIECE;
+		}
+		sideToMove = WHITE;
+		castlingRights = ALL_CASTLING;
+		enPassantSquare = NO_SQUARE;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		key = Zobrist.castling(ALL_CASTLING);
+		ply = 0;
+	}
+
+	/**
+	 * Combines a color and a piece type into a piece code.
+	 *
+	 * @param color The color (WHITE or BLACK).
+	 * @param type  The piece type (PAWN to KING).
+	 * @return The piece code in the range 0-11.
+	 */
+	public static int pieceCode(int color, int type) {
+		return color * 6 + type;
+	}
+
+	/**
+	 * Retrieves the color of a piece code.
+	 *
+	 * @param code The piece code.
+	 * @return WHITE or BLACK.
+	 */
+	public static int colorOf(int code) {
+		return code < 6 ? WHITE : BLACK;
+	}
+
+	/**
+	 * Retrieves the piece type of a piece code.
+	 *
+	 * @param code The piece code.
+	 * @return The piece type (PAWN to KING).
+	 */
+	public static int typeOf(int code) {
+		return code < 6 ? code : code - 6;
+	}
+
+	/**
+	 * Converts a color name as used by the pieces into a color index.
+	 *
+	 * @param color "White" or "Black".
+	 * @return WHITE or BLACK.
+	 */
+	public static int colorIndex(String color) {
+		return "White".equals(color) ? WHITE : BLACK;
+	}
+
+	/**
+	 * Converts board coordinates into a square index. Board coordinates have x
+	 * running from the a-file to the h-file and y running from the eighth rank
+	 * (y = 0) down to the first rank (y = 7).
+	 *
+	 * @param x The x-coordinate of the square.
+	 * @param y The y-coordinate of the square.
+	 * @return The square index (a1 = 0, h8 = 63).
+	 */
+	public static int square(int x, int y) {
+		return (7 - y) * 8 + x;
+	}
+
+	/**
+	 * Retrieves the board x-coordinate of a square index.
+	 *
+	 * @param square The square index.
+	 * @return The x-coordinate.
+	 */
+	public static int squareX(int square) {
+		return square & 7;
+	}
+
+	/**
+	 * Retrieves the board y-coordinate of a square index.
+	 *
+	 * @param square The square index.
+	 * @return The y-coordinate.
+	 */
+	public static int squareY(int square) {
+		return 7 - (square >>> 3);
+	}
+
+	/**
+	 * Places a piece on an empty square.
+	 *
+	 * @param square The square index.
+	 * @param code   The piece code.
+	 */
+	public void putPiece(int square, int code) {
+		long bit = 1L << square;
+		pieces[code] |= bit;
+		colors[colorOf(code)] |= bit;
+		occupied |= bit;
+		mailbox[square] = code;
+		key ^= Zobrist.piece(code, square);
+	}
+
+	/**
+	 * Removes whatever piece stands on a square.
+	 *
+	 * @param square The square index.
+	 */
+	public void removePiece(int square) {
+		int code = mailbox[square];
+		if (code == NO_PIECE) {
+			return;
+		}
+		long bit = ~(1L << square);
+		pieces[code] &= bit;
+		colors[colorOf(code)] &= bit;
+		occupied &= bit;
+		mailbox[square] = NO_PIECE;
+		key ^= Zobrist.piece(code, square);
+	}
+
+	/**
+	 * Retrieves the piece code on a square.
+	 *
+	 * @param square The square index.
+	 * @return The piece code, or NO_PIECE if the square is empty.
+	 */
+	public int pieceAt(int square) {
+		return mailbox[square];
+	}
+
+	/**
+	 * Retrieves the bitboard of a piece code.
+	 *
+	 * @param code The piece code.
+	 * @return The bitboard of squares holding that piece.
+	 */
+	public long getPieces(int code) {
+		return pieces[code];
+	}
+
+	/**
+	 * Retrieves the bitboard of a piece type for one color.
+	 *
+	 * @param color The color.
+	 * @param type  The piece type.
+	 * @return The bitboard of squares holding that piece.
+	 */
+	public long getPieces(int color, int type) {
+		return pieces[pieceCode(color, type)];
+	}
+
+	/**
+	 * Retrieves the occupancy of one color.
+	 *
+	 * @param color The color.
+	 * @return The bitboard of squares holding a piece of that color.
+	 */
+	public long getOccupancy(int color) {
+		return colors[color];
+	}
+
+	/**
+	 * Retrieves the occupancy of both colors.
+	 *
+	 * @return The bitboard of all occupied squares.
+	 */
+	public long getOccupied() {
+		return occupied;
+	}
+
+	/**
+	 * Checks if a square holds any piece.
+	 *
+	 * @param square The square index.
+	 * @return true if the square is occupied, false otherwise.
+	 */
+	public boolean isOccupied(int square) {
+		return (occupied & (1L << square)) != 0;
+	}
+
+	/**
+	 * Checks if a color still has its king on the board.
+	 *
+	 * @param color The color.
+	 * @return true if the king is present, false otherwise.
+	 */
+	public boolean hasKing(int color) {
+		return pieces[pieceCode(color, KING)] != 0;
+	}
+
+	/**
+	 * Checks if a square is attacked by any piece of a color.
+	 *
+	 * @param square The square index.
+	 * @param by     The attacking color.
+	 * @return true if the square is attacked, false otherwise.
+	 */
+	public boolean isSquareAttacked(int square, int by) {
+		int base = by * 6;
+		if ((Attacks.pawn(by ^ 1, square) & pieces[base + PAWN]) != 0
+				|| (Attacks.knight(square) & pieces[base + KNIGHT]) != 0
+				|| (Attacks.king(square) & pieces[base + KING]) != 0) {
+			return true;
+		}
+		long queens = pieces[base + QUEEN];
+		return (Attacks.bishop(square, occupied) & (pieces[base + BISHOP] | queens)) != 0
+				|| (Attacks.rook(square, occupied) & (pieces[base + ROOK] | queens)) != 0;
+	}
+
+	/**
+	 * Checks if the king of a color is attacked.
+	 *
+	 * @param color The color of the king.
+	 * @return true if that king is in check, false otherwise (or if it is absent).
+	 */
+	public boolean isInCheck(int color) {
+		long king = pieces[pieceCode(color, KING)];
+		return king != 0 && isSquareAttacked(Long.numberOfTrailingZeros(king), color ^ 1);
+	}
+
+	/**
+	 * Plays a packed move. The move is trusted to be pseudo-legal for the piece
+	 * on its origin square; the captured piece and the irreversible state are
+	 * pushed onto the history stack for {@link #unmakeMove(int)}.
+	 *
+	 * @param move The packed move.
+	 */
+	public void makeMove(int move) {
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		int flags = PackedMove.flags(move);
+		int moved = mailbox[from];
+		int color = colorOf(moved);
+
+		int captureSquare = (flags & PackedMove.EN_PASSANT) != 0 ? to ^ 8 : to; // The pawn behind the target
+		int captured = mailbox[captureSquare];
+
+		if (ply == history.length) {
+			history = Arrays.copyOf(history, ply * 2);
+			keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+		}
+		keyHistory[ply] = key;
+		history[ply++] = (captured + 1) | (castlingRights << 4) | ((enPassantSquare + 1) << 8) | (halfmoveClock << 15);
+
+		if (captured != NO_PIECE) {
+			removePiece(captureSquare);
+		}
+		removePiece(from);
+		int promotion = PackedMove.promotion(move);
+		putPiece(to, promotion != 0 ? pieceCode(color, promotion) : moved);
+
+		if ((flags & PackedMove.CASTLING) != 0) {
+			int rookFrom = to > from ? to + 1 : to - 2;
+			int rookTo = to > from ? to - 1 : to + 1;
+			int rook = mailbox[rookFrom];
+			removePiece(rookFrom);
+			putPiece(rookTo, rook);
+		}
+
+		if (typeOf(moved) == PAWN || captured != NO_PIECE) {
+			halfmoveClock = 0;
+		} else {
+			halfmoveClock++;
+		}
+		key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.castling(castlingRights);
+		enPassantSquare = NO_SQUARE;
+		if ((flags & PackedMove.DOUBLE_PUSH) != 0
+				&& (Attacks.pawn(color, (from + to) >>> 1) & pieces[pieceCode(color ^ 1, PAWN)]) != 0) {
+			enPassantSquare = (from + to) >>> 1; // Only recorded when a pawn can take, so repeated positions match
+		}
+		castlingRights &= castlingMask(from) & castlingMask(to);
+		key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.castling(castlingRights) ^ Zobrist.side();
+		if (color == BLACK) {
+			fullmoveNumber++;
+		}
+		sideToMove = color ^ 1;
+	}
+
+	/**
+	 * Takes back the last move played with {@link #makeMove(int)}.
+	 *
+	 * @param move The packed move that was played.
+	 */
+	public void unmakeMove(int move) {
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		int flags = PackedMove.flags(move);
+		int state = history[--ply];
+		int color = colorOf(mailbox[to]);
+
+		if ((flags & PackedMove.CASTLING) != 0) {
+			int rookFrom = to > from ? to + 1 : to - 2;
+			int rookTo = to > from ? to - 1 : to + 1;
+			int rook = mailbox[rookTo];
+			removePiece(rookTo);
+			putPiece(rookFrom, rook);
+		}
+
+		int moved = PackedMove.promotion(move) != 0 ? pieceCode(color, PAWN) : mailbox[to];
+		removePiece(to);
+		putPiece(from, moved);
+
+		int captured = (state & 15) - 1;
+		if (captured != NO_PIECE) {
+			putPiece((flags & PackedMove.EN_PASSANT) != 0 ? to ^ 8 : to, captured);
+		}
+
+		castlingRights = (state >>> 4) & 15;
+		enPassantSquare = ((state >>> 8) & 127) - 1;
+		halfmoveClock = state >>> 15;
+		if (color == BLACK) {
+			fullmoveNumber--;
+		}
+		sideToMove = color;
+		key = keyHistory[ply];
+	}
+
+	/**
+	 * Packs a move given by its squares, deriving the capture, double push, en
+	 * passant and castling flags from the position. A pawn reaching the last rank
+	 * without a promotion piece promotes to a queen.
+	 *
+	 * @param from      The origin square index.
+	 * @param to        The destination square index.
+	 * @param promotion The promotion piece type, or 0 for the default.
+	 * @return The packed move.
+	 */
+	public int encodeMove(int from, int to, int promotion) {
+		int type = typeOf(mailbox[from]);
+		int flags = isOccupied(to) ? PackedMove.CAPTURE : 0;
+
+		if (type == PAWN) {
+			int distance = Math.abs(to - from);
+			if (distance == 16) {
+				flags |= PackedMove.DOUBLE_PUSH;
+			} else if (distance != 8 && to == enPassantSquare) {
+				flags |= PackedMove.EN_PASSANT;
+			}
+			if (to >= 56 || to < 8) {
+				promotion = promotion != 0 ? promotion : QUEEN;
+			} else {
+				promotion = 0;
+			}
+		} else {
+			promotion = 0;
+			if (type == KING && Math.abs(to - from) == 2) {
+				flags |= PackedMove.CASTLING;
+			}
+		}
+		return PackedMove.encode(from, to, promotion, flags);
+	}
+
+	/**
+	 * Parses a move in UCI notation, such as e2e4 or e7e8q, against the position.
+	 * Only the syntax and the presence of a piece on the origin square are
+	 * checked.
+	 *
+	 * @param uci The UCI string of the move.
+	 * @return The packed move, or PackedMove.NONE if the string is not a move.
+	 */
+	public int parseUCIMove(String uci) {
+		if (uci == null || uci.length() < 4) {
+			return PackedMove.NONE;
+		}
+		int fromFile = uci.charAt(0) - 'a';
+		int fromRank = uci.charAt(1) - '1';
+		int toFile = uci.charAt(2) - 'a';
+		int toRank = uci.charAt(3) - '1';
+		if ((fromFile | fromRank | toFile | toRank) < 0 || fromFile > 7 || fromRank > 7 || toFile > 7 || toRank > 7) {
+			return PackedMove.NONE;
+		}
+		int from = fromRank * 8 + fromFile;
+		if (mailbox[from] == NO_PIECE) {
+			return PackedMove.NONE;
+		}
+		int promotion = uci.length() > 4 ? Math.max(0, "pnbrqk".indexOf(Character.toLowerCase(uci.charAt(4)))) : 0;
+		return encodeMove(from, toRank * 8 + toFile, promotion);
+	}
+
+	/**
+	 * Passes the turn without moving, as used by null-move pruning in search. The
+	 * en-passant square is cleared and the halfmove clock restarts so that
+	 * repetition detection does not look across the pass.
+	 */
+	public void makeNullMove() {
+		if (ply == history.length) {
+			history = Arrays.copyOf(history, ply * 2);
+			keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+		}
+		keyHistory[ply] = key;
+		history[ply++] = (castlingRights << 4) | ((enPassantSquare + 1) << 8) | (halfmoveClock << 15);
+		key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.side();
+		enPassantSquare = NO_SQUARE;
+		halfmoveClock = 0;
+		sideToMove ^= 1;
+	}
+
+	/**
+	 * Takes back a pass made with {@link #makeNullMove()}.
+	 */
+	public void unmakeNullMove() {
+		int state = history[--ply];
+		enPassantSquare = ((state >>> 8) & 127) - 1;
+		halfmoveClock = state >>> 15;
+		sideToMove ^= 1;
+		key = keyHistory[ply];
+	}
+
+	/**
+	 * Retrieves the Zobrist key of the position. Two positions with the same
+	 * pieces, side to move, castling rights and en-passant square have the same
+	 * key.
+	 *
+	 * @return The 64-bit key.
+	 */
+	public long getKey() {
+		return key;
+	}
+
+	/**
+	 * Computes the Zobrist key from scratch, for checking the incremental key.
+	 *
+	 * @return The 64-bit key.
+	 */
+	public long computeKey() {
+		long computed = Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+		if (sideToMove == BLACK) {
+			computed ^= Zobrist.side();
+		}
+		for (int sq = 0; sq < 64; sq++) {
+			if (mailbox[sq] != NO_PIECE) {
+				computed ^= Zobrist.piece(mailbox[sq], sq);
+			}
+		}
+		return computed;
+	}
+
+	/**
+	 * Checks if the current position occurred before since the last capture or
+	 * pawn move, with the same side to move.
+	 *
+	 * @return true if the position is a repetition, false otherwise.
+	 */
+	public boolean isRepetition() {
+		int earliest = Math.max(0, ply - halfmoveClock);
+		for (int i = ply - 2; i >= earliest; i -= 2) {
+			if (keyHistory[i] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Retrieves the castling rights that survive a move touching a square.
+	 *
+	 * @param square The square index.
+	 * @return The mask to apply to the castling rights.
+	 */
+	private static int castlingMask(int square) {
+		switch (square) {
+		case 0: // a1
+			return ~WHITE_QUEENSIDE;
+		case 4: // e1
+			return ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+		case 7: // h1
+			return ~WHITE_KINGSIDE;
+		case 56: // a8
+			return ~BLACK_QUEENSIDE;
+		case 60: // e8
+			return ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+		case 63: // h8
+			return ~BLACK_KINGSIDE;
+		default:
+			return ALL_CASTLING;
+		}
+	}
+
+	/**
+	 * Retrieves the side to move.
+	 *
+	 * @return WHITE or BLACK.
+	 */
+	public int getSideToMove() {
+		return sideToMove;
+	}
+
+	/**
+	 * Sets the side to move.
+	 *
+	 * @param sideToMove WHITE or BLACK.
+	 */
+	public void setSideToMove(int sideToMove) {
+		if (this.sideToMove != sideToMove) {
+			key ^= Zobrist.side();
+		}
+		this.sideToMove = sideToMove;
+	}
+
+	/**
+	 * Retrieves the remaining castling rights.
+	 *
+	 * @return The castling right flags.
+	 */
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	/**
+	 * Sets the castling rights.
+	 *
+	 * @param castlingRights The castling right flags.
+	 */
+	public void setCastlingRights(int castlingRights) {
+		key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+		this.castlingRights = castlingRights;
+	}
+
+	/**
+	 * Retrieves the square a pawn skipped on the last move.
+	 *
+	 * @return The en-passant square index, or NO_SQUARE.
+	 */
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+
+	/**
+	 * Sets the en-passant square.
+	 *
+	 * @param enPassantSquare The en-passant square index, or NO_SQUARE.
+	 */
+	public void setEnPassantSquare(int enPassantSquare) {
+		key ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare);
+		this.enPassantSquare = enPassantSquare;
+	}
+
+	/**
+	 * Retrieves the number of halfmoves since the last capture or pawn move.
+	 *
+	 * @return The halfmove clock.
+	 */
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
+	/**
+	 * Sets the halfmove clock.
+	 *
+	 * @param halfmoveClock The halfmove clock.
+	 */
+	public void setHalfmoveClock(int halfmoveClock) {
+		this.halfmoveClock = halfmoveClock;
+	}
+
+	/**
+	 * Retrieves the fullmove number, starting at 1 and incremented after Black moves.
+	 *
+	 * @return The fullmove number.
+	 */
+	public int getFullmoveNumber() {
+		return fullmoveNumber;
+	}
+
+	/**
+	 * Sets the fullmove number.
+	 *
+	 * @param fullmoveNumber The fullmove number.
+	 */
+	public void setFullmoveNumber(int fullmoveNumber) {
+		this.fullmoveNumber = fullmoveNumber;
+	}
+}
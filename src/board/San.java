@@ -0,0 +1,298 @@
+package board;
+
+/**
+ * This class reads and writes moves in standard algebraic notation (SAN), as
+ * used in PGN files: Nf3, exd5, Rae1, e8=Q, O-O, with + or # for check and
+ * mate. A move is found from the attack sets of its destination square, so
+ * only pieces that could have made it are considered, and only those are
+ * tested for legality: reading a move costs a make and unmake or two rather
+ * than a full move generation.
+ *
+ * Each instance keeps a scratch move list, so use one per thread.
+ */
+public final class San {
+	private static final String PIECES = "PNBRQK"; // Indexed by piece type
+
+	private final MoveList candidates = new MoveList();
+
+	/**
+	 * Parses a move in SAN against a position. Annotations such as ! and ?,
+	 * check marks, the zero spelling of castling (0-0) and a promotion without
+	 * the = sign are accepted. A promotion without a piece promotes to a queen,
+	 * and a promotion to a king or by a move that cannot promote is illegal.
+	 *
+	 * @param position The position the move is played from.
+	 * @param san      The move in SAN.
+	 * @return The packed move.
+	 * @throws IllegalArgumentException if the text is not a legal move in the
+	 *                                  position, or fits more than one.
+	 */
+	public int parse(Position position, CharSequence san) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		int color = position.getSideToMove();
+		if (isCastling(san, end)) {
+			int home = color == Position.WHITE ? 4 : 60; // e1 or e8
+			return parseCastling(position, end == 3 ? home + 2 : home - 2, san);
+		}
+
+		int promotion = 0;
+		if (end >= 3 && PIECES.indexOf(san.charAt(end - 1)) > 0) {
+			promotion = PIECES.indexOf(san.charAt(end - 1));
+			end -= san.charAt(end - 2) == '=' ? 2 : 1;
+		}
+		if (end < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1))) {
+			throw new IllegalArgumentException("Not a move: " + san);
+		}
+		int to = (san.charAt(end - 1) - '1') * 8 + (san.charAt(end - 2) - 'a');
+		int start = 0;
+		int type = Position.PAWN;
+		if (PIECES.indexOf(san.charAt(0)) > 0) {
+			type = PIECES.indexOf(san.charAt(0));
+			start = 1;
+		}
+		int fromFile = -1;
+		int fromRank = -1;
+		for (int i = start; i < end - 2; i++) {
+			char c = san.charAt(i);
+			if (isFile(c)) {
+				fromFile = c - 'a';
+			} else if (isRank(c)) {
+				fromRank = c - '1';
+			} else if (c != 'x' && c != ':' && c != '-') {
+				throw new IllegalArgumentException("Not a move: " + san);
+			}
+		}
+		boolean lastRank = color == Position.WHITE ? to >= 56 : to < 8;
+		if (promotion != 0 && (type != Position.PAWN || !lastRank || promotion == Position.KING)) {
+			throw new IllegalArgumentException("Illegal move: " + san); // Only a pawn reaching the last rank promotes
+		}
+		if (type == Position.PAWN && lastRank && promotion == 0) {
+			promotion = Position.QUEEN;
+		}
+
+		if ((position.getOccupancy(color) & 1L << to) != 0) {
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+
+		// Only pieces of the type that reach the destination can have made the move
+		long origins;
+		if (type != Position.PAWN) {
+			origins = attacksTo(position, type, to);
+		} else if (fromFile >= 0 && fromFile != (to & 7)) {
+			origins = (position.getOccupancy(color ^ 1) & 1L << to) != 0 || to == position.getEnPassantSquare()
+					? Attacks.pawn(color ^ 1, to) // The squares a pawn would capture on the destination from
+					: 0;
+		} else {
+			origins = pushOrigin(position, color, to);
+		}
+		origins &= position.getPieces(color, type);
+		if (fromFile >= 0) {
+			origins &= 0x0101010101010101L << fromFile;
+		}
+		if (fromRank >= 0) {
+			origins &= 0xFFL << 8 * fromRank;
+		}
+
+		int found = PackedMove.NONE;
+		for (; origins != 0; origins &= origins - 1) {
+			int move = position.encodeMove(Long.numberOfTrailingZeros(origins), to, promotion);
+			if (!isLegal(position, move)) {
+				continue;
+			}
+			if (found != PackedMove.NONE) {
+				throw new IllegalArgumentException("Ambiguous move: " + san);
+			}
+			found = move;
+		}
+		if (found == PackedMove.NONE) {
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+		return found;
+	}
+
+	/**
+	 * Finds castling among the pseudo-legal moves, which checks the rights and
+	 * the squares the king crosses.
+	 */
+	private int parseCastling(Position position, int to, CharSequence san) {
+		candidates.clear();
+		MoveGenerator.generate(position, position.getSideToMove(), candidates);
+		for (int i = 0; i < candidates.size(); i++) {
+			int move = candidates.get(i);
+			if ((move & PackedMove.CASTLING) != 0 && PackedMove.to(move) == to && isLegal(position, move)) {
+				return move;
+			}
+		}
+		throw new IllegalArgumentException("Illegal move: " + san);
+	}
+
+	/**
+	 * Finds the squares from which a piece of a type would attack a square.
+	 * Pieces other than pawns attack symmetrically, so these are the squares
+	 * the same piece attacks from the destination.
+	 */
+	private static long attacksTo(Position position, int type, int square) {
+		switch (type) {
+		case Position.KNIGHT:
+			return Attacks.knight(square);
+		case Position.BISHOP:
+			return Attacks.bishop(square, position.getOccupied());
+		case Position.ROOK:
+			return Attacks.rook(square, position.getOccupied());
+		case Position.QUEEN:
+			return Attacks.queen(square, position.getOccupied());
+		default:
+			return Attacks.king(square);
+		}
+	}
+
+	/**
+	 * Finds the square a pawn pushed to an empty square came from: one square
+	 * back, or two from its starting rank.
+	 */
+	private static long pushOrigin(Position position, int color, int to) {
+		if (position.isOccupied(to)) {
+			return 0;
+		}
+		int back = color == Position.WHITE ? -8 : 8;
+		int one = to + back;
+		if (one < 0 || one > 63) {
+			return 0;
+		}
+		if (position.isOccupied(one)) {
+			return 1L << one;
+		}
+		int rank = to >>> 3;
+		return rank == (color == Position.WHITE ? 3 : 4) ? 1L << one + back : 0;
+	}
+
+	private static boolean isCastling(CharSequence san, int end) {
+		if (end != 3 && end != 5) {
+			return false;
+		}
+		for (int i = 0; i < end; i++) {
+			char c = san.charAt(i);
+			if (i % 2 == 1 ? c != '-' : c != 'O' && c != '0') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isFile(char c) {
+		return c >= 'a' && c <= 'h';
+	}
+
+	private static boolean isRank(char c) {
+		return c >= '1' && c <= '8';
+	}
+
+	private static boolean isLegal(Position position, int move) {
+		int color = position.getSideToMove();
+		position.makeMove(move);
+		boolean legal = !position.isInCheck(color);
+		position.unmakeMove(move);
+		return legal;
+	}
+
+	/**
+	 * Formats a legal move in SAN.
+	 *
+	 * @param position The position the move is played from; it is left as it
+	 *                 was.
+	 * @param move     The packed move.
+	 * @return The move in SAN.
+	 */
+	public String format(Position position, int move) {
+		StringBuilder san = new StringBuilder(8);
+		append(san, position, move);
+		return san.toString();
+	}
+
+	/**
+	 * Appends a legal move in SAN to a builder.
+	 *
+	 * @param out      The builder to append to.
+	 * @param position The position the move is played from; it is left as it
+	 *                 was.
+	 * @param move     The packed move.
+	 */
+	public void append(StringBuilder out, Position position, int move) {
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		int type = Position.typeOf(position.pieceAt(from));
+		if ((move & PackedMove.CASTLING) != 0) {
+			out.append((to & 7) == 6 ? "O-O" : "O-O-O");
+		} else {
+			if (type == Position.PAWN) {
+				if (PackedMove.isCapture(move)) {
+					out.append((char) ('a' + (from & 7)));
+				}
+			} else {
+				out.append(PIECES.charAt(type));
+				appendDisambiguation(out, position, move, type);
+			}
+			if (PackedMove.isCapture(move)) {
+				out.append('x');
+			}
+			out.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+			if (PackedMove.promotion(move) != 0) {
+				out.append('=').append(PIECES.charAt(PackedMove.promotion(move)));
+			}
+		}
+
+		int color = position.getSideToMove();
+		position.makeMove(move);
+		if (position.isInCheck(color ^ 1)) {
+			out.append(hasLegalMove(position) ? '+' : '#');
+		}
+		position.unmakeMove(move);
+	}
+
+	/**
+	 * Adds the origin file, rank or both when another piece of the same type
+	 * could also legally move to the destination.
+	 */
+	private void appendDisambiguation(StringBuilder out, Position position, int move, int type) {
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		boolean ambiguous = false;
+		boolean sameFile = false;
+		boolean sameRank = false;
+		long others = attacksTo(position, type, to) & position.getPieces(position.getSideToMove(), type) & ~(1L << from);
+		for (; others != 0; others &= others - 1) {
+			int otherFrom = Long.numberOfTrailingZeros(others);
+			if (isLegal(position, position.encodeMove(otherFrom, to, 0))) {
+				ambiguous = true;
+				sameFile |= (otherFrom & 7) == (from & 7);
+				sameRank |= (otherFrom >>> 3) == (from >>> 3);
+			}
+		}
+		if (ambiguous) {
+			if (!sameFile) {
+				out.append((char) ('a' + (from & 7)));
+			} else if (!sameRank) {
+				out.append((char) ('1' + (from >>> 3)));
+			} else {
+				out.append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)));
+			}
+		}
+	}
+
+	/**
+	 * Checks if the side to move has any legal move, stopping at the first.
+	 */
+	private boolean hasLegalMove(Position position) {
+		candidates.clear();
+		MoveGenerator.generate(position, position.getSideToMove(), candidates);
+		for (int i = 0; i < candidates.size(); i++) {
+			if (isLegal(position, candidates.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
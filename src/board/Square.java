@@ -12,6 +12,7 @@ public class Square implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private int x, y;
 	private Piece piece;
+	private transient Board board; // The board this square belongs to, kept in sync on every change
 
 	/**
 	 * Constructs a new Square at the specified coordinates.
@@ -43,12 +44,34 @@ public class Square implements Serializable {
 	}
 
 	/**
-	 * Sets the piece on the square.
+	 * Attaches the square to the board whose position it mirrors.
+	 *
+	 * @param board The board that owns this square.
+	 */
+	void attach(Board board) {
+		this.board = board;
+	}
+
+	/**
+	 * Sets the piece on the square and updates the owning board's position.
 	 *
 	 * @param piece The piece to place on the square.
 	 */
 	public void setPiece(Piece piece) {
 		this.piece = piece;
+		if (board != null) {
+			board.squareChanged(this);
+		}
+	}
+
+	/**
+	 * Sets the piece on the square without touching the board's position. Used
+	 * by the board to refresh the view after it has updated the position itself.
+	 *
+	 * @param piece The piece to show on the square.
+	 */
+	void updatePiece(Piece piece) {
+		this.piece = piece;
 	}
 
 	/**
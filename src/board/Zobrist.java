@@ -0,0 +1,82 @@
+package board;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class holds the random keys used to hash positions. A position's key is
+ * the XOR of one key per piece on its square, plus keys for the side to move,
+ * the castling rights and the en-passant file, which lets {@link Position}
+ * update it incrementally as pieces move. The keys come from a fixed seed so
+ * hashes are stable between runs and can be stored on disk.
+ */
+public final class Zobrist {
+	private static final long[][] PIECE_SQUARE = new long[12][64];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT_FILE = new long[8];
+	private static final long SIDE;
+
+	static {
+		SplittableRandom random = new SplittableRandom(0x2F0B_A57EL);
+		for (int code = 0; code < 12; code++) {
+			for (int sq = 0; sq < 64; sq++) {
+				PIECE_SQUARE[code][sq] = random.nextLong();
+			}
+		}
+		// Each castling right gets its own key; a set of rights is the XOR of its members
+		long[] rights = { random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong() };
+		for (int mask = 0; mask < 16; mask++) {
+			for (int bit = 0; bit < 4; bit++) {
+				if ((mask & (1 << bit)) != 0) {
+					CASTLING[mask] ^= rights[bit];
+				}
+			}
+		}
+		for (int file = 0; file < 8; file++) {
+			EN_PASSANT_FILE[file] = random.nextLong();
+		}
+		SIDE = random.nextLong();
+	}
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Retrieves the key of a piece standing on a square.
+	 *
+	 * @param code   The piece code.
+	 * @param square The square index.
+	 * @return The key.
+	 */
+	public static long piece(int code, int square) {
+		return PIECE_SQUARE[code][square];
+	}
+
+	/**
+	 * Retrieves the key of a set of castling rights.
+	 *
+	 * @param rights The castling right flags.
+	 * @return The key.
+	 */
+	public static long castling(int rights) {
+		return CASTLING[rights];
+	}
+
+	/**
+	 * Retrieves the key of an en-passant square.
+	 *
+	 * @param square The en-passant square index, or Position.NO_SQUARE.
+	 * @return The key of the square's file, or 0 if there is no en-passant square.
+	 */
+	public static long enPassant(int square) {
+		return square == Position.NO_SQUARE ? 0L : EN_PASSANT_FILE[square & 7];
+	}
+
+	/**
+	 * Retrieves the key toggled when Black is to move.
+	 *
+	 * @return The key.
+	 */
+	public static long side() {
+		return SIDE;
+	}
+}
@@ -4,9 +4,11 @@ import board.*;
 import pieces.*;
 import ui.*;
 import ai.*;
+import store.*;
 
 import javax.swing.*;
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -15,15 +17,25 @@ import java.util.concurrent.*;
  * interactions, game state management, and communication with the chess engine.
  */
 public class ChessGameController {
+	private static final int ANALYSIS_LINES = 3; // The number of best lines shown while analysing
+	private static final int ANALYSIS_UPDATES_PER_SECOND = 5; // How often the evaluation bar may repaint
+	private static final Path SAVE_FILE = Paths.get("chessgame_moves.sav"); // The saved game, in the GameFile format
+	private static final Path LEGACY_BACKUP_FILE = Paths.get("chessgame_moves.sav.legacy"); // Kept after migration
+	private static final Path ARCHIVE_DIRECTORY = Paths.get("archive"); // Every finished game, in a GameStore
+
 	private Board model; // The game board model which tracks the state of the game.
 	private ChessGameView view; // The GUI components for modeling the game
 	private String currentPlayer; // Tracks the current player ("White" or "Black")
 	private Square selectedSquare; // The currently selected square on the board
 	private List<Move> moveHistory; // Array list of all moves made during the game
-	private StockfishEngine stockfishEngine; // The chess engine for computer-controlled moves
+	private StringBuilder uciMoves; // The move history in UCI format, kept in step with moveHistory
+	private ChessEngine chessEngine; // The chess engine for computer-controlled moves, or null until first needed
 	private boolean isSinglePlayer; // Flag to determine if the game is single player mode (1=single player)
 	private ExecutorService executor; // Multi-thread that executes long-running tasks asynchronously to keep the UI
 										// responsive
+	private AnalysisFeed analysisFeed; // Coalesces the engine's info lines into a few updates per second
+	private boolean isAnalyzing; // Flag to determine if the engine analyses the position on the board
+	private GameFile loadedGame; // The game last loaded, to rebuild moves played before the board's checkpoint
 
 	/**
 	 * Constructor to set up the game controller with initial configurations.
@@ -37,15 +49,10 @@ public class ChessGameController {
 		this.currentPlayer = "White"; // White always starts in chess
 		this.selectedSquare = null; // No square is initially selected
 		this.moveHistory = new ArrayList<>(); // Initialize array for the move history list
+		this.uciMoves = new StringBuilder();
 		this.executor = Executors.newSingleThreadExecutor(); // Sets up and executor to handle the chess engine move
-		try {
-			// Initialize the Stockfish chess engine with the path to the executable
-			this.stockfishEngine = new StockfishEngine(
-					"./stockfish/stockfish/stockfish-windows-x86-64-sse41-popcnt.exe"); // Creates instance of chess
-																						// engine from local directory
-		} catch (IOException e) {
-			e.printStackTrace(); // Print any errors that occur during initialization
-		}
+		this.analysisFeed = new AnalysisFeed(ANALYSIS_UPDATES_PER_SECOND);
+		this.analysisFeed.subscribe(this::showAnalysis); // Called off the UI thread at a bounded rate
 		this.isSinglePlayer = false; // Default to two-player mode
 		initView(); // Set up the initial view of the game board
 	}
@@ -59,14 +66,10 @@ public class ChessGameController {
 		view.setButtonListener(this::handleButtonClick); // Set up the listener for button clicks
 		view.updateStatusLabel("Current turn: " + currentPlayer); // Display whose turn it is
 		view.setSaveButtonListener(e -> saveGame()); // Set up the listener for the save game button
-		view.setLoadButtonListener(e -> {
-			try {		
-				loadGame();		// Try to load game
-			} catch (ClassNotFoundException | IOException e1) {
-				// Catches exceptions for file IO errors or missing class file
-				e1.printStackTrace();
-			}
-		}); // Set up the listener for the load game button
+		view.setLoadButtonListener(e -> loadGame()); // Set up the listener for the load game button
+		view.setUndoButtonListener(e -> undoLastMove()); // Set up the listener for the undo move button
+		view.setAnalyzeButtonListener(e -> toggleAnalysis()); // Set up the listener for the analyze button
+		view.setExploreButtonListener(e -> showExplorer()); // Set up the listener for the explore button
 	}
 
 	/**
@@ -77,6 +80,30 @@ public class ChessGameController {
 		System.out.println("Switched to Single Player Mode"); // Log the mode switch
 	}
 
+	/**
+	 * Selects the chess engine that plays Black in single-player mode.
+	 *
+	 * @param chessEngine The chess engine to use.
+	 */
+	public synchronized void setEngine(ChessEngine chessEngine) {
+		this.chessEngine = chessEngine; // Replace the engine used for computer-controlled moves
+		this.chessEngine.setInfoListener(analysisFeed::publish); // Stream the engine's progress to the analysis feed
+	}
+
+	/**
+	 * Retrieves the chess engine, creating the built-in engine on first use if
+	 * none was set. It is not created up front because its transposition table
+	 * is wasted when another engine is chosen.
+	 *
+	 * @return The chess engine.
+	 */
+	private synchronized ChessEngine getEngine() {
+		if (chessEngine == null) {
+			setEngine(new NativeEngine()); // Default to the built-in engine, which needs no external process
+		}
+		return chessEngine;
+	}
+
 	/**
 	 * Switches the game mode to local 2-person multiplayer.
 	 */
@@ -136,7 +163,7 @@ public class ChessGameController {
 		if (piece != null) {
 			System.out
 					.println("Attempting to move piece: " + piece + " from " + selectedSquare + " to " + clickedSquare);
-			if (piece.movePiece(selectedSquare, clickedSquare, model)) {
+			if (piece.isValidMove(selectedSquare, clickedSquare, model)) {
 				validateAndExecuteMove(clickedSquare, piece);
 			} else {
 				System.out.println("Invalid move for piece: " + piece);
@@ -156,25 +183,103 @@ public class ChessGameController {
 		Piece targetPiece = clickedSquare.getPiece();
 		if (targetPiece == null || !targetPiece.getColor().equals(piece.getColor())) {
 			System.out.println("Move validated for piece: " + piece);
-			moveHistory.add(new Move(selectedSquare, clickedSquare));
-			clickedSquare.setPiece(piece); // Move piece to new square
-			selectedSquare.setPiece(null); // Clear the previous square
+			int from = Position.square(selectedSquare.getX(), selectedSquare.getY());
+			int to = Position.square(clickedSquare.getX(), clickedSquare.getY());
+			Move move = model.toMove(model.encodeMove(from, to, 0)); // Carries the promotion the board will play
+			recordMove(move);
+			model.applyMove(move); // Move piece to new square and clear the previous one
 			selectedSquare = null; // Deselect the square
 			switchPlayer(); // Switch the current player
 			view.updateBoard(model); // Update the board view
 			checkGameStatus(); // Check if the game is over
+			restartAnalysis(); // Analyse the new position if analysis is on
 		} else {
 			System.out.println("Invalid move: Cannot capture your own piece.");
 			selectedSquare = null; // Deselect if the move is invalid
 		}
 	}
 
+	/**
+	 * Takes back the last move, or the last two moves in single-player mode so
+	 * that it is the human player's turn again. The board is restored in place
+	 * from its undo stack, or rebuilt from the loaded game's checkpoints when
+	 * the move was played before the board's starting checkpoint.
+	 */
+	public void undoLastMove() {
+		if (isSinglePlayer && currentPlayer.equals("Black")) {
+			System.out.println("Cannot undo while the chess engine is thinking.");
+			return;
+		}
+		int plies = isSinglePlayer ? 2 : 1; // Also take back the engine's reply in single player mode
+		for (int i = 0; i < plies && !moveHistory.isEmpty(); i++) {
+			Move move = removeLastMove();
+			if (model.getAppliedMoveCount() > 0) {
+				model.undoMove(move);
+			} else {
+				model = boardAt(loadedGame, moveHistory.size()); // A loaded board starts at a checkpoint
+			}
+			switchPlayer();
+		}
+		selectedSquare = null; // Drop any half-made selection
+		view.updateBoard(model);
+		restartAnalysis();
+	}
+
 	/**
 	 * Switches the current player and updates the status label.
 	 */
 	private void switchPlayer() {
 		currentPlayer = currentPlayer.equals("White") ? "Black" : "White";
 		view.updateStatusLabel("Current turn: " + currentPlayer);
+		analysisFeed.clear(); // Lines for the previous position are scored for the other side
+	}
+
+	/**
+	 * Switches engine analysis of the board on or off to match the analyze
+	 * button.
+	 */
+	private void toggleAnalysis() {
+		isAnalyzing = view.isAnalysisSelected();
+		view.setAnalysisVisible(isAnalyzing);
+		if (isAnalyzing) {
+			restartAnalysis();
+		} else {
+			executor.submit(() -> getEngine().stopAnalysis());
+			analysisFeed.clear();
+		}
+	}
+
+	/**
+	 * Starts analysing the position on the board if analysis is on. It is left
+	 * off while the engine is choosing its own move, which it reports anyway.
+	 */
+	private void restartAnalysis() {
+		if (!isAnalyzing || isGameOver() || (isSinglePlayer && currentPlayer.equals("Black"))) {
+			return;
+		}
+		analysisFeed.clear();
+		String moveList = getMoveList();
+		executor.submit(() -> {
+			try {
+				getEngine().startAnalysis(moveList, ANALYSIS_LINES); // Queued behind any move the engine is making
+			} catch (IOException | UnsupportedOperationException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * Passes the latest analysis lines to the view on the UI thread. Lines are
+	 * dropped while analysis is off.
+	 *
+	 * @param lines The latest line for each MultiPV index.
+	 */
+	private void showAnalysis(List<InfoLine> lines) {
+		SwingUtilities.invokeLater(() -> {
+			if (isAnalyzing) {
+				view.updateAnalysis(lines, currentPlayer.equals("White")); // Engines score for the side to move
+			}
+		});
 	}
 
 	/**
@@ -184,6 +289,7 @@ public class ChessGameController {
 	private void checkGameStatus() {
 		if (isGameOver()) {
 			view.updateStatusLabel("Game Over! Winner: " + currentPlayer);
+			archiveGame();
 		} else if (isSinglePlayer && currentPlayer.equals("Black")) {
 			executor.submit(this::performAIMove);
 		}
@@ -196,8 +302,8 @@ public class ChessGameController {
 		String moveList = getMoveList(); // Generate the list of moves made so far
 		System.out.println("Generated Move List: " + moveList); // Log the move list
 		try {
-			String bestMove = stockfishEngine.getBestMove(moveList); // Ask the chess engine for the best move and add
-																		// it to the move list / update game state
+			String bestMove = getEngine().getBestMove(moveList); // Ask the chess engine for the best move and add it
+																	// to the move list / update game state
 			if (bestMove != null) { // If move by chess engine is found
 				SwingUtilities.invokeLater(() -> {
 					applyAIMove(bestMove); // Apply the chess engine's move using the UI thread
@@ -205,11 +311,16 @@ public class ChessGameController {
 					view.updateStatusLabel("Current turn: " + currentPlayer);
 					if (isGameOver()) {
 						view.updateStatusLabel("Game Over! Winner: Black");
+						archiveGame();
+					} else {
+						String ponderList = getMoveList();
+						executor.submit(() -> getEngine().startPondering(ponderList)); // Think on the human's time
+						restartAnalysis(); // Replaces pondering when the player asked for analysis
 					}
 					view.updateBoard(model);
 				});
 			} else {
-				System.out.println("No best move found by Stockfish.");
+				System.out.println("No best move found by the chess engine.");
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -222,19 +333,11 @@ public class ChessGameController {
 	 * @param bestMove The best move determined by the AI, in UCI format.
 	 */
 	private void applyAIMove(String bestMove) {
-		int startX = bestMove.charAt(0) - 'a';
-		int startY = 8 - Character.getNumericValue(bestMove.charAt(1));
-		int endX = bestMove.charAt(2) - 'a';
-		int endY = 8 - Character.getNumericValue(bestMove.charAt(3));
-
-		Square start = model.getSquare(startX, startY);
-		Square end = model.getSquare(endX, endY);
-		Piece piece = start.getPiece();
+		Move move = model.parseUCIMove(bestMove);
 
-		if (piece != null) {
-			moveHistory.add(new Move(start, end));
-			end.setPiece(piece);
-			start.setPiece(null);
+		if (move != null && move.getStart().getPiece() != null) {
+			recordMove(move);
+			model.applyMove(move);
 		} else {
 			System.out.println("Error: Piece not found at starting square.");
 		}
@@ -242,16 +345,37 @@ public class ChessGameController {
 
 	/**
 	 * Generates a string of all moves played in UCI format, suitable for use by the
-	 * AI.
+	 * AI. The string is maintained as moves are made, so this does not walk the
+	 * history.
 	 *
 	 * @return A space-separated list of moves in UCI format.
 	 */
 	private String getMoveList() {
-		StringBuilder moveList = new StringBuilder();
-		for (Move move : moveHistory) {
-			moveList.append(move.getUCIString()).append(" ");
+		return uciMoves.toString();
+	}
+
+	/**
+	 * Adds a move to the move history and its UCI string.
+	 *
+	 * @param move The move being made.
+	 */
+	private void recordMove(Move move) {
+		moveHistory.add(move);
+		if (uciMoves.length() > 0) {
+			uciMoves.append(' ');
 		}
-		return moveList.toString().trim();
+		uciMoves.append(move.getUCIString());
+	}
+
+	/**
+	 * Removes the last move from the move history and its UCI string.
+	 *
+	 * @return The removed move.
+	 */
+	private Move removeLastMove() {
+		Move move = moveHistory.remove(moveHistory.size() - 1);
+		uciMoves.setLength(Math.max(0, uciMoves.lastIndexOf(" "))); // Drop the last move and its separator
+		return move;
 	}
 
 	/**
@@ -260,32 +384,63 @@ public class ChessGameController {
 	 * @return true if the game is over, false otherwise.
 	 */
 	public boolean isGameOver() {
-		boolean whiteKingExists = false;
-		boolean blackKingExists = false;
-
-		for (int i = 0; i < 8; i++) {
-			for (int j = 0; j < 8; j++) {
-				Piece piece = model.getSquare(i, j).getPiece();
-				if (piece instanceof King) {
-					if (piece.getColor().equals("White")) {
-						whiteKingExists = true;
-					} else {
-						blackKingExists = true;
-					}
+		return !model.hasKing("White") || !model.hasKing("Black");
+	}
+
+	/**
+	 * Appends the finished game to the archive in the background and adds its
+	 * positions to the archive's position index. The archive is opened only
+	 * for the update, so other programs can read it meanwhile.
+	 */
+	private void archiveGame() {
+		List<Move> history = new ArrayList<>(moveHistory); // The UI thread goes on changing the original
+		int result = model.hasKing("White") ? StoredGame.WHITE_WINS : StoredGame.BLACK_WINS;
+		executor.submit(() -> {
+			try {
+				try (GameStoreWriter writer = new GameStoreWriter(ARCHIVE_DIRECTORY)) {
+					int id = writer.append(history, result);
+					System.out.println("Archived game " + id + " in " + ARCHIVE_DIRECTORY);
 				}
+				try (GameStore store = new GameStore(ARCHIVE_DIRECTORY);
+						PositionIndexWriter index = new PositionIndexWriter(ARCHIVE_DIRECTORY)) {
+					index.update(store); // Also catches up on games an earlier update missed
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				e.printStackTrace(); // The game itself is unaffected
 			}
-		}
+		});
+	}
 
-		return !whiteKingExists || !blackKingExists;
+	/**
+	 * Shows the moves played from the position on the board in the archived
+	 * games, with how often each was played and how those games ended.
+	 */
+	public void showExplorer() {
+		List<MoveStatistics> moves;
+		try {
+			moves = new PositionIndex(ARCHIVE_DIRECTORY).explore(model.getPosition());
+		} catch (IOException e) {
+			e.printStackTrace();
+			JOptionPane.showMessageDialog(null, "Error reading the game archive: " + e.getMessage());
+			return;
+		}
+		if (moves.isEmpty()) {
+			JOptionPane.showMessageDialog(null, "No archived game reached this position.");
+			return;
+		}
+		StringBuilder text = new StringBuilder("Moves played from this position (White wins, draws, Black wins):");
+		for (MoveStatistics move : moves) {
+			text.append('\n').append(move);
+		}
+		JOptionPane.showMessageDialog(null, text.toString());
 	}
 
 	/**
-	 * Saves the current game state to a .sav file.
+	 * Saves the current game to the save file in the compact binary format.
 	 */
 	public void saveGame() {
-		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream("chessgame_moves.sav"))) {
-			out.writeObject(moveHistory);
-			out.writeObject(currentPlayer);
+		try {
+			new GameFile(null, moveHistory).write(SAVE_FILE); // Two bytes per move; the player to move follows
 			JOptionPane.showMessageDialog(null, "Game saved successfully.");
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -294,19 +449,26 @@ public class ChessGameController {
 	}
 
 	/**
-	 * Loads a game state from a file.
-	 * @throws IOException 
-	 * @throws ClassNotFoundException 
+	 * Loads the game from the save file. A save written by an earlier version
+	 * of the game is converted to the binary format first.
 	 */
-	public void loadGame() throws ClassNotFoundException, IOException {
-		// Deserialize the game state from the file
-		if (deserializeGameState()) {
-			// Apply the deserialized moves to the game model
-			applyMovesToModel();
+	public void loadGame() {
+		GameFile game = readSaveFile();
+		if (game != null) {
+			// Apply the saved moves to the game model
+			try {
+				applyMovesToModel(game);
+			} catch (IllegalStateException e) {
+				e.printStackTrace(); // The current game is left as it was
+				JOptionPane.showMessageDialog(null, "Error loading game: " + e.getMessage());
+				return;
+			}
+			currentPlayer = model.getPosition().getSideToMove() == Position.WHITE ? "White" : "Black";
 
 			// Update the view with the loaded model and current player
 			view.updateBoard(model);
 			view.updateStatusLabel("Current turn: " + currentPlayer);
+			restartAnalysis();
 			JOptionPane.showMessageDialog(null, "Game loaded successfully.");
 		} else {
 			JOptionPane.showMessageDialog(null, "Error loading game.");
@@ -314,36 +476,69 @@ public class ChessGameController {
 	}
 
 	/**
-	 * Deserializes the game state from a file.
-	 * 
-	 * @return true if deserialization was successful, false otherwise.
+	 * Reads the save file, migrating a legacy save to the binary format. The
+	 * legacy file is kept as a backup.
+	 *
+	 * @return The saved game, or null if it could not be read.
 	 */
-	@SuppressWarnings("unchecked")
-	private boolean deserializeGameState() throws IOException, ClassNotFoundException {
-		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream("chessgame_moves.sav"))) {
-			moveHistory = (List<Move>) in.readObject();
-			currentPlayer = (String) in.readObject();
-			return true;
-		} catch (IOException | ClassNotFoundException e) {
+	private GameFile readSaveFile() {
+		try {
+			if (!GameFile.isLegacy(SAVE_FILE)) {
+				return GameFile.read(SAVE_FILE);
+			}
+			GameFile game = GameFile.readLegacy(SAVE_FILE);
+			Files.copy(SAVE_FILE, LEGACY_BACKUP_FILE, StandardCopyOption.REPLACE_EXISTING);
+			game.write(SAVE_FILE); // Later loads skip deserialization entirely
+			System.out.println("Migrated " + SAVE_FILE + " to the binary save format");
+			return game;
+		} catch (IOException e) {
 			e.printStackTrace();
-			return false;
+			return null;
 		}
 	}
 
 	/**
-	 * Applies the deserialized moves to the game model.
+	 * Replaces the game model with a saved game. The board is set up from the
+	 * last checkpoint and only the moves since are replayed, so loading does not
+	 * slow down as games get longer.
+	 *
+	 * @param game The saved game.
+	 * @throws IllegalStateException if a saved move is not legal; the current
+	 *                               game is not changed.
 	 */
-	private void applyMovesToModel() {
-		model = new Board();
-		for (Move move : moveHistory) {
-			Piece piece = model.getSquare(move.getStartX(), move.getStartY()).getPiece();
-			Square endSquare = model.getSquare(move.getEndX(), move.getEndY());
-			if (piece != null
-					&& piece.movePiece(model.getSquare(move.getStartX(), move.getStartY()), endSquare, model)) {
-				endSquare.setPiece(piece);
-				model.getSquare(move.getStartX(), move.getStartY()).setPiece(null);
-			}
+	private void applyMovesToModel(GameFile game) {
+		Board board = boardAt(game, game.getMoveCount());
+		List<Move> history = new ArrayList<>();
+		for (int i = 0; i < game.getMoveCount(); i++) {
+			// Flags only matter to a board playing the move, so views of earlier moves can leave them out
+			history.add(board.toMove(PackedMove.encode(game.getFrom(i), game.getTo(i), game.getPromotion(i), 0)));
+		}
+		model = board;
+		loadedGame = game;
+		moveHistory = new ArrayList<>();
+		uciMoves.setLength(0);
+		for (Move move : history) {
+			recordMove(move);
+		}
+	}
+
+	/**
+	 * Builds a board at any ply of a saved game, from the checkpoint before it.
+	 * The board can take back the moves since that checkpoint.
+	 *
+	 * @param game The saved game.
+	 * @param ply  The number of moves played.
+	 * @return The board.
+	 * @throws IllegalStateException if a replayed move is not legal.
+	 */
+	private static Board boardAt(GameFile game, int ply) {
+		int checkpoint = game.getCheckpoint(ply);
+		Board board = new Board();
+		board.loadFen(game.getCheckpointFen(checkpoint));
+		for (int i = checkpoint; i < ply; i++) {
+			board.makeMove(game.getLegalMove(i, board.getPosition()));
 		}
+		return board;
 	}
 
 }
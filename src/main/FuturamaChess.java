@@ -1,15 +1,35 @@
 package main;
 
+import ai.BookEngine;
+import ai.CachingEngine;
+import ai.ChessEngine;
+import ai.Difficulty;
+import ai.NativeEngine;
+import ai.OpeningBook;
+import ai.PolyglotKey;
+import ai.ReplyCache;
+import ai.StockfishEngine;
 import board.Board;
 import controller.ChessGameController;
 import ui.ChessGameView;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
 import javax.swing.JOptionPane;
 
 /**
  * Main entry point for the chess game.
  */
 public class FuturamaChess {
+	private static final Path REPLY_CACHE_FILE = Paths.get("engine_replies.cache"); // Engine answers kept between runs
+	private static final long REPLY_CACHE_MAX_AGE = TimeUnit.DAYS.toMillis(30); // Older answers are searched again
+	private static final Path BOOK_FILE = Paths.get("book/book.bin"); // Polyglot opening book, if installed
+	private static final Path BOOK_KEYS_FILE = Paths.get("book/random64.bin"); // A non-standard key table, if the book needs one
+
 	public static void main(String[] args) {
 		// Prompt for game mode
 		String[] options = { "Single Player", "Two Player" };
@@ -25,6 +45,18 @@ public class FuturamaChess {
 
 		// Set the game mode based on user selection
 		if (isSinglePlayer) {
+			ChessEngine chosen = chooseEngine();
+			ChessEngine engine = withBook(new CachingEngine(chosen, chosen.getClass().getSimpleName(),
+					new ReplyCache(ReplyCache.DEFAULT_CAPACITY, REPLY_CACHE_MAX_AGE, 1), REPLY_CACHE_FILE));
+			engine.setLimits(chooseDifficulty().getLimits());
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					engine.close(); // Saves the reply cache and ends the engine process
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}));
+			controller.setEngine(engine);
 			controller.setSinglePlayerMode();
 		} else {
 			controller.setTwoPlayerMode();
@@ -33,4 +65,63 @@ public class FuturamaChess {
 		// Pass the controller to the view
 		view.setController(controller);
 	}
+
+	/**
+	 * Puts the opening book in front of an engine if the book is installed. It
+	 * is read with Polyglot's standard key table unless a table file is
+	 * installed with it.
+	 *
+	 * @param engine The engine to use out of book.
+	 * @return The engine with the book, or the engine itself without one.
+	 */
+	private static ChessEngine withBook(ChessEngine engine) {
+		if (!Files.exists(BOOK_FILE)) {
+			return engine;
+		}
+		try {
+			PolyglotKey keys = Files.exists(BOOK_KEYS_FILE) ? PolyglotKey.load(BOOK_KEYS_FILE) : PolyglotKey.standard();
+			OpeningBook book = new OpeningBook(BOOK_FILE, keys);
+			System.out.println("Opened opening book " + BOOK_FILE + " with " + book.size() + " entries");
+			return new BookEngine(engine, book);
+		} catch (IOException e) {
+			e.printStackTrace(); // Play without the book rather than not at all
+			return engine;
+		}
+	}
+
+	/**
+	 * Prompts for the strength of the chess engine.
+	 *
+	 * @return The chosen difficulty.
+	 */
+	private static Difficulty chooseDifficulty() {
+		Difficulty[] options = Difficulty.values();
+		int selection = JOptionPane.showOptionDialog(null, "Select Difficulty", "Futurama Chess",
+				JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, Difficulty.MEDIUM);
+		return selection >= 0 ? options[selection] : Difficulty.MEDIUM; // Closing the dialog keeps the default
+	}
+
+	/**
+	 * Prompts for the chess engine to play against. Falls back to the built-in
+	 * engine if Stockfish cannot be started.
+	 *
+	 * @return The chosen chess engine.
+	 */
+	private static ChessEngine chooseEngine() {
+		String[] options = { "Built-in Engine", "Stockfish" };
+		int selection = JOptionPane.showOptionDialog(null, "Select Chess Engine", "Futurama Chess",
+				JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, options[0]);
+
+		if (selection == 1) {
+			try {
+				StockfishEngine stockfish = new StockfishEngine(StockfishEngine.DEFAULT_PATH);
+				stockfish.setPondering(true); // Think while the player considers their move
+				return stockfish;
+			} catch (IOException e) {
+				e.printStackTrace(); // Stockfish is missing or cannot run on this platform
+				JOptionPane.showMessageDialog(null, "Could not start Stockfish. Using the built-in engine instead.");
+			}
+		}
+		return new NativeEngine();
+	}
 }
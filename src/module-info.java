@@ -6,5 +6,6 @@
  */
 module FuturamaChess {
 	requires java.desktop;
+	requires jdk.management;
 	requires org.junit.jupiter.api;
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package pgn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import board.Position;
+import store.GameStore;
+import store.GameStoreWriter;
+import store.PositionIndexWriter;
+import store.StoredGame;
+
+/**
+ * This class moves games between PGN files and a game archive. Importing
+ * parses the file on the common fork-join pool, appends the games to the
+ * archive and brings its position index up to date; exporting writes every
+ * archived game as PGN. Run it with
+ * {@code java pgn.PgnArchive import FILE.pgn ARCHIVE} or
+ * {@code java pgn.PgnArchive export ARCHIVE FILE.pgn}.
+ */
+public class PgnArchive {
+	private PgnArchive() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3 || !args[0].equals("import") && !args[0].equals("export")) {
+			System.err.println("Usage: java pgn.PgnArchive import FILE.pgn ARCHIVE | export ARCHIVE FILE.pgn");
+			System.exit(2);
+		}
+		long start = System.nanoTime();
+		if (args[0].equals("import")) {
+			Path file = Paths.get(args[1]);
+			long imported = importGames(file, Paths.get(args[2]));
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("Imported %d games in %.1f s (%.0f MB/s)%n", imported, seconds,
+					Files.size(file) / seconds / 1e6);
+		} else {
+			long exported = exportGames(Paths.get(args[1]), Paths.get(args[2]));
+			System.out.printf("Exported %d games in %.1f s%n", exported, (System.nanoTime() - start) / 1e9);
+		}
+	}
+
+	/**
+	 * Appends the games of a PGN file to an archive and indexes them. Games
+	 * that do not start from the standard position, are too long to store or
+	 * cannot be parsed are skipped and reported.
+	 *
+	 * @param file    The PGN file.
+	 * @param archive The archive's directory, created if needed.
+	 * @return The number of games added to the archive.
+	 * @throws IOException if the file cannot be read or the archive written.
+	 */
+	public static long importGames(Path file, Path archive) throws IOException {
+		long[] counts = new long[2]; // Games added, and games skipped as unstorable
+		short[] moves = new short[GameStore.MAX_PLIES];
+		try (InputStream in = Files.newInputStream(file); PgnReader reader = new PgnReader(in);
+				GameStoreWriter writer = new GameStoreWriter(archive)) {
+			try {
+				reader.forEach(ForkJoinPool.commonPool(), game -> {
+					if (!game.getStartFen().equals(Position.START_FEN) || game.getMoveCount() > moves.length) {
+						counts[1]++;
+						return;
+					}
+					for (int ply = 0; ply < game.getMoveCount(); ply++) {
+						moves[ply] = StoredGame.encode(game.getMove(ply));
+					}
+					try {
+						writer.append(moves, game.getMoveCount(), toStoredResult(game.getResult()));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					counts[0]++;
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			if (reader.getSkipped() > 0) {
+				System.out.println("Skipped " + reader.getSkipped() + " games that could not be read, the last: "
+						+ reader.getLastError());
+			}
+			if (counts[1] > 0) {
+				System.out.println("Skipped " + counts[1] + " games from set-up positions or too long to store");
+			}
+		}
+		try (GameStore store = new GameStore(archive); PositionIndexWriter index = new PositionIndexWriter(archive)) {
+			index.update(store);
+		}
+		return counts[0];
+	}
+
+	/**
+	 * Writes every game in an archive to a PGN file.
+	 *
+	 * @param archive The archive's directory.
+	 * @param file    The PGN file to write.
+	 * @return The number of games written.
+	 * @throws IOException if the archive cannot be read or the file written.
+	 */
+	public static long exportGames(Path archive, Path file) throws IOException {
+		try (GameStore store = new GameStore(archive); OutputStream out = Files.newOutputStream(file);
+				PgnWriter writer = new PgnWriter(out)) {
+			int[] moves = new int[GameStore.MAX_PLIES];
+			try {
+				store.scan(game -> {
+					Position position = Position.fromFen(Position.START_FEN);
+					for (int ply = 0; ply < game.getPlyCount(); ply++) {
+						moves[ply] = game.getMove(ply, position);
+						position.makeMove(moves[ply]);
+					}
+					Map<String, String> tags = new LinkedHashMap<>();
+					tags.put("Event", "FuturamaChess archive");
+					tags.put("Round", Integer.toString(game.getId() + 1));
+					try {
+						writer.write(new PgnGame(tags, Arrays.copyOf(moves, game.getPlyCount()),
+								toPgnResult(game.getResult())));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return store.size();
+		}
+	}
+
+	/**
+	 * Converts a PGN result to the archive's.
+	 *
+	 * @param result The result as written in PGN.
+	 * @return The StoredGame result constant.
+	 */
+	static int toStoredResult(String result) {
+		switch (result) {
+		case PgnGame.WHITE_WINS:
+			return StoredGame.WHITE_WINS;
+		case PgnGame.BLACK_WINS:
+			return StoredGame.BLACK_WINS;
+		case PgnGame.DRAW:
+			return StoredGame.DRAW;
+		default:
+			return StoredGame.UNKNOWN;
+		}
+	}
+
+	/**
+	 * Converts an archived result to PGN.
+	 *
+	 * @param result The StoredGame result constant.
+	 * @return The result as written in PGN.
+	 */
+	static String toPgnResult(int result) {
+		switch (result) {
+		case StoredGame.WHITE_WINS:
+			return PgnGame.WHITE_WINS;
+		case StoredGame.BLACK_WINS:
+			return PgnGame.BLACK_WINS;
+		case StoredGame.DRAW:
+			return PgnGame.DRAW;
+		default:
+			return PgnGame.UNKNOWN;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package pgn;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import board.Position;
+
+/**
+ * This class is one game read from or to be written to a PGN file: its tag
+ * pairs, its moves as packed ints, and its result. Comments, variations and
+ * annotation glyphs are not kept.
+ */
+public final class PgnGame {
+	/** Results as written in PGN. */
+	public static final String WHITE_WINS = "1-0";
+	public static final String BLACK_WINS = "0-1";
+	public static final String DRAW = "1/2-1/2";
+	public static final String UNKNOWN = "*";
+
+	private final Map<String, String> tags;
+	private final int[] moves;
+	private final String result;
+
+	/**
+	 * Constructs a game.
+	 *
+	 * @param tags   The tag pairs in the order they are to be written. A FEN
+	 *               tag gives a starting position other than the standard one.
+	 * @param moves  The packed moves, as played from the starting position.
+	 * @param result The result, one of the result constants.
+	 */
+	public PgnGame(Map<String, String> tags, int[] moves, String result) {
+		this.tags = new LinkedHashMap<>(tags);
+		this.moves = moves.clone();
+		this.result = result;
+	}
+
+	/**
+	 * Retrieves the value of a tag.
+	 *
+	 * @param name The tag's name, such as White or Date.
+	 * @return The value, or null if the game has no such tag.
+	 */
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	/**
+	 * Retrieves every tag pair.
+	 *
+	 * @return The tags in their order, unmodifiable.
+	 */
+	public Map<String, String> getTags() {
+		return Collections.unmodifiableMap(tags);
+	}
+
+	/**
+	 * Retrieves the starting position in FEN.
+	 *
+	 * @return The FEN tag's value, or the standard starting position.
+	 */
+	public String getStartFen() {
+		String fen = tags.get("FEN");
+		return fen != null ? fen : Position.START_FEN;
+	}
+
+	/**
+	 * Retrieves the number of moves in the game.
+	 *
+	 * @return The ply count.
+	 */
+	public int getMoveCount() {
+		return moves.length;
+	}
+
+	/**
+	 * Retrieves a move of the game.
+	 *
+	 * @param ply The index of the move, from 0.
+	 * @return The packed move.
+	 */
+	public int getMove(int ply) {
+		return moves[ply];
+	}
+
+	/**
+	 * Retrieves the result of the game.
+	 *
+	 * @return One of WHITE_WINS, BLACK_WINS, DRAW or UNKNOWN.
+	 */
+	public String getResult() {
+		return result;
+	}
+}
@@ -0,0 +1,250 @@
+package pgn;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import board.Position;
+import board.San;
+
+/**
+ * This class parses the text of one PGN game straight from its bytes. Tag
+ * pairs are kept; comments, variations, annotation glyphs and move numbers
+ * are skipped, and each move is replayed so it can be read in SAN. A parser
+ * reuses its buffers from game to game, so use one per thread.
+ */
+final class PgnParser {
+	private static final String[] RESULTS = { PgnGame.WHITE_WINS, PgnGame.BLACK_WINS, PgnGame.DRAW, PgnGame.UNKNOWN };
+	private static final long BACK_RANKS = 0xFF000000000000FFL; // Ranks 1 and 8, where no pawn can stand
+
+	private final San san = new San();
+	private final StringBuilder token = new StringBuilder(16);
+	private int[] moves = new int[256];
+	private byte[] data;
+	private int position;
+	private int end;
+
+	/**
+	 * Parses a game.
+	 *
+	 * @param data  The bytes holding the game.
+	 * @param start The offset of the game's first byte.
+	 * @param end   The offset after the game's last byte.
+	 * @return The game.
+	 * @throws IllegalArgumentException if the text is not a valid game.
+	 */
+	PgnGame parse(byte[] data, int start, int end) {
+		this.data = data;
+		this.position = start;
+		this.end = end;
+		Map<String, String> tags = new LinkedHashMap<>();
+		Position board = null;
+		int count = 0;
+		String result = null;
+		while (result == null) {
+			skipWhitespace();
+			if (position == end) {
+				break;
+			}
+			byte b = data[position];
+			if (b == '[' && board == null) {
+				readTag(tags);
+			} else if (b == '{') {
+				skipPast('}');
+			} else if (b == ';' || b == '%') {
+				skipPast('\n');
+			} else if (b == '(') {
+				skipVariation();
+			} else if (b == '$') {
+				position++;
+				readToken();
+			} else {
+				readToken();
+				if (board == null) {
+					board = startPosition(tags);
+				}
+				result = result(token);
+				if (result == null) {
+					stripMoveNumber();
+				}
+				if (result == null && token.length() > 0) {
+					int move;
+					try {
+						move = san.parse(board, token);
+					} catch (IllegalArgumentException e) {
+						throw new IllegalArgumentException("Move " + (count / 2 + 1) + ": " + e.getMessage(), e);
+					}
+					board.makeMove(move);
+					if (count == moves.length) {
+						moves = Arrays.copyOf(moves, 2 * count);
+					}
+					moves[count++] = move;
+				}
+			}
+		}
+		if (tags.isEmpty() && count == 0) {
+			throw new IllegalArgumentException("No game found");
+		}
+		if (board == null) {
+			startPosition(tags); // Checks the FEN of a game without moves
+		}
+		if (result == null) {
+			result = tags.getOrDefault("Result", PgnGame.UNKNOWN); // The termination marker is missing
+			if (result(result) == null) {
+				result = PgnGame.UNKNOWN;
+			}
+		}
+		return new PgnGame(tags, Arrays.copyOf(moves, count), result);
+	}
+
+	/**
+	 * Sets up the position a game starts from, given by its FEN tag or the
+	 * standard starting position.
+	 *
+	 * @throws IllegalArgumentException if the FEN is not valid, does not have
+	 *                                  one king of each color or leaves the
+	 *                                  side that just moved in check.
+	 */
+	private static Position startPosition(Map<String, String> tags) {
+		String fen = tags.getOrDefault("FEN", Position.START_FEN);
+		Position start;
+		try {
+			start = Position.fromFen(fen);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Bad FEN tag: " + fen, e);
+		}
+		if (Long.bitCount(start.getPieces(Position.WHITE, Position.KING)) != 1
+				|| Long.bitCount(start.getPieces(Position.BLACK, Position.KING)) != 1) {
+			throw new IllegalArgumentException("Bad FEN tag, not one king a side: " + fen); // Move generation needs both
+		}
+		if (((start.getPieces(Position.WHITE, Position.PAWN) | start.getPieces(Position.BLACK, Position.PAWN))
+				& BACK_RANKS) != 0) {
+			throw new IllegalArgumentException("Bad FEN tag, pawn on the first or last rank: " + fen);
+		}
+		if (start.isInCheck(start.getSideToMove() ^ 1)) {
+			throw new IllegalArgumentException("Bad FEN tag, side not to move is in check: " + fen); // Its king could be taken
+		}
+		return start;
+	}
+
+	/**
+	 * Checks if a token is a game termination marker.
+	 *
+	 * @return The result constant it stands for, or null if it is not one.
+	 */
+	private static String result(CharSequence text) {
+		for (String result : RESULTS) {
+			if (result.contentEquals(text)) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes a move number such as "12." or "12..." from the front of the
+	 * token. Castling written with zeros (0-0) is left alone.
+	 */
+	private void stripMoveNumber() {
+		int digits = 0;
+		while (digits < token.length() && Character.isDigit(token.charAt(digits))) {
+			digits++;
+		}
+		if (digits > 0 && (digits == token.length() || token.charAt(digits) == '.')) {
+			int dots = digits;
+			while (dots < token.length() && token.charAt(dots) == '.') {
+				dots++;
+			}
+			token.delete(0, dots);
+		}
+	}
+
+	/**
+	 * Reads a tag pair such as [White "Fry, Philip J."].
+	 */
+	private void readTag(Map<String, String> tags) {
+		position++; // The [
+		skipWhitespace();
+		int nameStart = position;
+		while (position < end && data[position] > ' ' && data[position] != '"' && data[position] != ']') {
+			position++;
+		}
+		String name = new String(data, nameStart, position - nameStart, StandardCharsets.US_ASCII);
+		skipWhitespace();
+		if (position == end || data[position] != '"') {
+			throw new IllegalArgumentException("Tag " + name + " has no value");
+		}
+		position++;
+		int valueStart = position;
+		boolean escaped = false;
+		while (position < end && data[position] != '"') {
+			if (data[position] == '\\') {
+				escaped = true;
+				position++;
+			}
+			position++;
+		}
+		if (position >= end) {
+			throw new IllegalArgumentException("Tag " + name + " is not closed");
+		}
+		String value = new String(data, valueStart, position - valueStart, StandardCharsets.UTF_8);
+		if (escaped) {
+			value = value.replace("\\\"", "\"").replace("\\\\", "\\");
+		}
+		skipPast(']');
+		tags.put(name, value);
+	}
+
+	/**
+	 * Reads the token at the position into the token builder. A token ends at
+	 * whitespace or at the start of a comment or variation.
+	 */
+	private void readToken() {
+		token.setLength(0);
+		while (position < end) {
+			byte b = data[position];
+			if (b <= ' ' || b == '{' || b == '}' || b == '(' || b == ')' || b == ';' || b == '[' || b == ']'
+					|| b == '$' && token.length() > 0) {
+				break;
+			}
+			token.append((char) (b & 0xFF));
+			position++;
+		}
+		if (token.length() == 0 && position < end) {
+			position++; // A stray ) ] or } on its own
+		}
+	}
+
+	/**
+	 * Skips a variation, including variations and comments nested in it.
+	 */
+	private void skipVariation() {
+		int depth = 0;
+		while (position < end) {
+			byte b = data[position++];
+			if (b == '(') {
+				depth++;
+			} else if (b == ')' && --depth == 0) {
+				return;
+			} else if (b == '{') {
+				skipPast('}');
+			} else if (b == ';') {
+				skipPast('\n');
+			}
+		}
+	}
+
+	private void skipPast(char c) {
+		while (position < end && data[position] != c) {
+			position++;
+		}
+		position = Math.min(end, position + 1);
+	}
+
+	private void skipWhitespace() {
+		while (position < end && (data[position] & 0xFF) <= ' ') {
+			position++;
+		}
+	}
+}
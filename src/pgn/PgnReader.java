@@ -0,0 +1,312 @@
+package pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * This class reads games from a PGN file of any size. The file is read in
+ * large blocks into a buffer that holds only the game being split off, so
+ * memory stays bounded however big the file is. Games are split at the tag
+ * section that follows each game's moves, which needs no parsing, and can be
+ * parsed one at a time with {@link #read()} or in parallel on a fork-join
+ * pool with {@link #forEach(ForkJoinPool, Consumer)}.
+ *
+ * Games that cannot be parsed, for example because of an illegal move, are
+ * skipped and counted, so one bad game does not stop an import.
+ */
+public class PgnReader implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int MAX_GAME_SIZE = 1 << 26; // A longer game is surely not PGN
+	private static final int BATCH_SIZE = 1 << 20; // Bytes of games parsed by one task
+
+	private final InputStream in;
+	private final PgnParser parser = new PgnParser();
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int limit; // End of the data in the buffer
+	private int next; // Where the next game starts
+	private int gameStart;
+	private int gameEnd;
+	private boolean endOfInput;
+	private long gamesRead;
+	private long skipped;
+	private String lastError;
+
+	/**
+	 * Constructs a reader over a stream. The stream is read in large blocks,
+	 * so it need not be buffered.
+	 *
+	 * @param in The stream holding the PGN text.
+	 */
+	public PgnReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads the next game.
+	 *
+	 * @return The game, or null at the end of the file.
+	 * @throws IOException if the stream cannot be read or a game is too large.
+	 */
+	public PgnGame read() throws IOException {
+		while (nextGame()) {
+			try {
+				return parser.parse(buffer, gameStart, gameEnd);
+			} catch (IllegalArgumentException e) {
+				skip(gamesRead, e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the rest of the games on a fork-join pool and passes them to an
+	 * action in the order they appear in the file. This thread splits the
+	 * games and runs the action; the pool parses batches of games, with a few
+	 * batches per worker in flight so memory stays bounded.
+	 *
+	 * @param pool   The pool to parse on.
+	 * @param action The action to perform on each game, on this thread.
+	 * @return The number of games passed to the action.
+	 * @throws IOException if the stream cannot be read or a game is too large.
+	 */
+	public long forEach(ForkJoinPool pool, Consumer<PgnGame> action) throws IOException {
+		ArrayDeque<ForkJoinTask<Batch>> pending = new ArrayDeque<>();
+		ThreadLocal<PgnParser> parsers = ThreadLocal.withInitial(PgnParser::new);
+		long count = 0;
+		Batch batch = new Batch(gamesRead + 1);
+		boolean more = true;
+		while (more) {
+			more = nextGame();
+			if (more) {
+				batch.add(buffer, gameStart, gameEnd);
+			}
+			if (batch.size >= BATCH_SIZE || !more && batch.count > 0) {
+				Batch full = batch;
+				pending.add(pool.submit(() -> full.parse(parsers.get())));
+				batch = new Batch(gamesRead + 1);
+			}
+			while (!pending.isEmpty() && (pending.size() > 2 * pool.getParallelism() || !more)) {
+				count += deliver(pending.removeFirst().join(), action);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Passes a parsed batch to the action and counts the games it skipped.
+	 */
+	private long deliver(Batch batch, Consumer<PgnGame> action) {
+		for (PgnGame game : batch.games) {
+			action.accept(game);
+		}
+		for (int i = 0; i < batch.errors.size(); i++) {
+			skip(batch.errorGames[i], batch.errors.get(i));
+		}
+		return batch.games.size();
+	}
+
+	/**
+	 * Counts a game that could not be parsed.
+	 *
+	 * @param game  The game's number in the file, from 1.
+	 * @param error The reason it could not be parsed.
+	 */
+	private void skip(long game, IllegalArgumentException error) {
+		skipped++;
+		lastError = "Game " + game + ": " + error.getMessage();
+	}
+
+	/**
+	 * Games copied out of the buffer to be parsed together.
+	 */
+	private static final class Batch {
+		final long first; // The number of the batch's first game in the file
+		byte[] data = new byte[BATCH_SIZE];
+		int[] ends = new int[256];
+		int size;
+		int count;
+		final List<PgnGame> games = new ArrayList<>();
+		final List<IllegalArgumentException> errors = new ArrayList<>();
+		long[] errorGames = new long[4]; // The numbers of the games in errors
+
+		Batch(long first) {
+			this.first = first;
+		}
+
+		void add(byte[] source, int start, int end) {
+			int length = end - start;
+			if (size + length > data.length) {
+				data = Arrays.copyOf(data, size + length); // Only a game larger than a batch gets here
+			}
+			System.arraycopy(source, start, data, size, length);
+			size += length;
+			if (count == ends.length) {
+				ends = Arrays.copyOf(ends, 2 * count);
+			}
+			ends[count++] = size;
+		}
+
+		Batch parse(PgnParser parser) {
+			for (int i = 0; i < count; i++) {
+				try {
+					games.add(parser.parse(data, i == 0 ? 0 : ends[i - 1], ends[i]));
+				} catch (IllegalArgumentException e) {
+					if (errors.size() == errorGames.length) {
+						errorGames = Arrays.copyOf(errorGames, 2 * errors.size());
+					}
+					errorGames[errors.size()] = first + i;
+					errors.add(e);
+				}
+			}
+			data = null; // Frees the text while the games wait to be delivered
+			return this;
+		}
+	}
+
+	/**
+	 * Finds the next game in the input, reading more as needed. A game ends
+	 * where a line starting with [ follows the game's moves, outside a
+	 * comment, or at the end of the input.
+	 *
+	 * @return true if a game was found, and gameStart and gameEnd mark it in
+	 *         the buffer; false at the end of the input.
+	 */
+	private boolean nextGame() throws IOException {
+		if (gamesRead == 0 && next == 0) {
+			skipByteOrderMark();
+		}
+		int start = next;
+		int scan = next;
+		boolean inMoves = false;
+		boolean inComment = false;
+		boolean inLineComment = false;
+		boolean lineStart = true;
+		for (;;) {
+			while (scan < limit) {
+				byte b = buffer[scan];
+				if (lineStart && !inComment) {
+					if (b == '[' && inMoves) {
+						return found(start, scan);
+					}
+					if (b > ' ' && b != '[' && b != '%') {
+						inMoves = true;
+					}
+				}
+				if (inLineComment) {
+					inLineComment = b != '\n';
+				} else if (inComment) {
+					inComment = b != '}';
+				} else if (b == '{') {
+					inComment = true;
+				} else if (b == ';') {
+					inLineComment = true;
+				}
+				lineStart = b == '\n';
+				scan++;
+			}
+			if (endOfInput) {
+				for (int i = start; i < limit; i++) {
+					if (buffer[i] > ' ') { // Trailing whitespace is not a game
+						return found(start, limit);
+					}
+				}
+				next = limit;
+				return false;
+			}
+
+			// Keep the game so far at the front of the buffer and read more after it
+			if (start > 0) {
+				System.arraycopy(buffer, start, buffer, 0, limit - start);
+				limit -= start;
+				scan -= start;
+				start = 0;
+			}
+			if (limit == buffer.length) {
+				if (buffer.length >= MAX_GAME_SIZE) {
+					throw new IOException("Game " + (gamesRead + 1) + " is larger than " + MAX_GAME_SIZE + " bytes");
+				}
+				buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+			}
+			fill();
+		}
+	}
+
+	/**
+	 * Reads more of the input into the free end of the buffer.
+	 */
+	private void fill() throws IOException {
+		int read = in.read(buffer, limit, buffer.length - limit);
+		if (read < 0) {
+			endOfInput = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	/**
+	 * Steps over the UTF-8 byte order mark some programs put at the start of a
+	 * file.
+	 */
+	private void skipByteOrderMark() throws IOException {
+		while (limit < 3 && !endOfInput) {
+			fill();
+		}
+		if (limit >= 3 && (buffer[0] & 0xFF) == 0xEF && (buffer[1] & 0xFF) == 0xBB && (buffer[2] & 0xFF) == 0xBF) {
+			next = 3;
+		}
+	}
+
+	private boolean found(int start, int end) {
+		gameStart = start;
+		gameEnd = end;
+		next = end;
+		gamesRead++;
+		return true;
+	}
+
+	/**
+	 * Retrieves the number of games split from the input so far, including
+	 * any skipped.
+	 *
+	 * @return The game count.
+	 */
+	public long getGamesRead() {
+		return gamesRead;
+	}
+
+	/**
+	 * Retrieves the number of games skipped because they could not be parsed.
+	 *
+	 * @return The skipped game count.
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Retrieves the reason the last skipped game was skipped.
+	 *
+	 * @return The error message, or null if no game was skipped.
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * Closes the stream.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,132 @@
+package pgn;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import board.Position;
+import board.San;
+
+/**
+ * This class writes games in PGN export format: the seven standard tags
+ * first, then any others, then the moves in SAN with move numbers, wrapped to
+ * lines of at most 79 characters. Games are written as they are given, so
+ * memory does not grow with the file.
+ */
+public class PgnWriter implements Closeable, Flushable {
+	private static final int LINE_LENGTH = 79;
+	private static final String[] SEVEN_TAG_ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+
+	private final Writer out;
+	private final San san = new San();
+	private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+	private final StringBuilder token = new StringBuilder(16);
+
+	/**
+	 * Constructs a writer over a stream. The stream is buffered here.
+	 *
+	 * @param out The stream to write the PGN text to, as UTF-8.
+	 */
+	public PgnWriter(OutputStream out) {
+		this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+	}
+
+	/**
+	 * Writes a game.
+	 *
+	 * @param game The game.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public void write(PgnGame game) throws IOException {
+		Map<String, String> tags = game.getTags();
+		for (String name : SEVEN_TAG_ROSTER) {
+			String value = name.equals("Result") ? game.getResult() : tags.get(name);
+			writeTag(name, value != null ? value : name.equals("Date") ? "????.??.??" : "?");
+		}
+		for (Map.Entry<String, String> tag : tags.entrySet()) {
+			if (!isInRoster(tag.getKey())) {
+				writeTag(tag.getKey(), tag.getValue());
+			}
+		}
+		out.write('\n');
+
+		Position position = Position.fromFen(game.getStartFen());
+		line.setLength(0);
+		for (int ply = 0; ply < game.getMoveCount(); ply++) {
+			token.setLength(0);
+			if (position.getSideToMove() == Position.WHITE) {
+				token.append(position.getFullmoveNumber()).append(". ");
+			} else if (ply == 0) {
+				token.append(position.getFullmoveNumber()).append("... "); // Black moves first
+			}
+			int move = game.getMove(ply);
+			san.append(token, position, move);
+			position.makeMove(move);
+			addToken();
+		}
+		token.setLength(0);
+		token.append(game.getResult());
+		addToken();
+		out.write(line.toString());
+		out.write("\n\n");
+	}
+
+	/**
+	 * Adds the token to the line, starting a new line first if it would not
+	 * fit. A move number and its move are kept together.
+	 */
+	private void addToken() throws IOException {
+		if (line.length() > 0 && line.length() + 1 + token.length() > LINE_LENGTH) {
+			out.write(line.toString());
+			out.write('\n');
+			line.setLength(0);
+		}
+		if (line.length() > 0) {
+			line.append(' ');
+		}
+		line.append(token);
+	}
+
+	private void writeTag(String name, String value) throws IOException {
+		out.write('[');
+		out.write(name);
+		out.write(" \"");
+		out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+		out.write("\"]\n");
+	}
+
+	private static boolean isInRoster(String name) {
+		for (String rosterName : SEVEN_TAG_ROSTER) {
+			if (rosterName.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes any buffered text to the stream.
+	 *
+	 * @throws IOException if the stream cannot be written.
+	 */
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Writes any buffered text and closes the stream.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1 @@
+package pgn;
\ No newline at end of file
@@ -15,11 +15,16 @@ public class Bishop extends Piece {
 	}
 
 	@Override
-	public boolean movePiece(Square start, Square end, Board board) {
+	public boolean isValidMove(Square start, Square end, Board board) {
 		return Math.abs(start.getX() - end.getX()) == Math.abs(start.getY() - end.getY())
 				&& isMovePathClear(start, end, board);
 	}
 
+	@Override
+	public int getType() {
+		return Position.BISHOP;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "B";
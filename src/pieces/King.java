@@ -15,10 +15,15 @@ public class King extends Piece {
 	}
 
 	@Override
-	public boolean movePiece(Square start, Square end, Board board) {
+	public boolean isValidMove(Square start, Square end, Board board) {
 		int x = Math.abs(start.getX() - end.getX());
 		int y = Math.abs(start.getY() - end.getY());
-		return x <= 1 && y <= 1;
+		return x <= 1 && y <= 1 && !board.isOccupiedBy(end.getX(), end.getY(), getColorIndex());
+	}
+
+	@Override
+	public int getType() {
+		return Position.KING;
 	}
 
 	@Override
@@ -14,10 +14,14 @@ public class Knight extends Piece {
 		this("White");
 	}
 
-	public boolean movePiece(Square start, Square end, Board board) {
+	public boolean isValidMove(Square start, Square end, Board board) {
 		int x = Math.abs(start.getX() - end.getX());
 		int y = Math.abs(start.getY() - end.getY());
-		return (x == 2 && y == 1) || (x == 1 && y == 2);
+		return ((x == 2 && y == 1) || (x == 1 && y == 2)) && !board.isOccupiedBy(end.getX(), end.getY(), getColorIndex());
+	}
+
+	public int getType() {
+		return Position.KNIGHT;
 	}
 
 	public String toString() {
@@ -4,11 +4,9 @@ import board.*;
 
 public class Pawn extends Piece {
 	private static final long serialVersionUID = 1L;
-	private boolean hasMoved;
 
 	public Pawn(String color) {
 		super(color);
-		this.hasMoved = false;
 	}
 
 	// No-argument constructor
@@ -16,14 +14,21 @@ public class Pawn extends Piece {
 		this("White"); // Provide a default color or handle as needed
 	}
 
-	public boolean movePiece(Square start, Square end, Board board) {
-		int yDiff = getColor().equals("White") ? start.getY() - end.getY() : end.getY() - start.getY();
+	/**
+	 * Checks a pawn move without changing any state. A pawn still on its starting
+	 * row has never moved, so the double step needs no separate flag.
+	 */
+	public boolean isValidMove(Square start, Square end, Board board) {
+		boolean white = getColor().equals("White");
+		int yDiff = white ? start.getY() - end.getY() : end.getY() - start.getY();
 		int xDiff = Math.abs(start.getX() - end.getX());
 
-		if (xDiff == 0
-				&& (yDiff == 1 || (!hasMoved && yDiff == 2 && start.getY() == (getColor().equals("White") ? 6 : 1)))) {
-			hasMoved = true;
-			return true;
+		if (xDiff == 0 && yDiff == 1) {
+			return end.getPiece() == null;
+		}
+
+		if (xDiff == 0 && yDiff == 2 && start.getY() == (white ? 6 : 1)) {
+			return end.getPiece() == null && board.isPathClear(start, end);
 		}
 
 		if (xDiff == 1 && yDiff == 1 && end.getPiece() != null && !end.getPiece().getColor().equals(getColor())) {
@@ -33,6 +38,10 @@ public class Pawn extends Piece {
 		return false;
 	}
 
+	public int getType() {
+		return Position.PAWN;
+	}
+
 	public String toString() {
 		return super.toString() + "P";
 	}
@@ -1,6 +1,8 @@
 package pieces;
 
 import board.Board;
+import board.Move;
+import board.Position;
 import board.Square;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -9,17 +11,87 @@ import java.io.Serializable;
 
 public abstract class Piece implements Serializable {
 	private static final long serialVersionUID = 1L;
-	private String color;
+	private final String color;
 
 	public Piece(String color) {
 		this.color = color;
 	}
 
+	/**
+	 * Creates a new piece object for a position piece code.
+	 *
+	 * @param code The piece code in the range 0-11.
+	 * @return The new piece.
+	 */
+	public static Piece create(int code) {
+		String color = Position.colorOf(code) == Position.WHITE ? "White" : "Black";
+		switch (Position.typeOf(code)) {
+		case Position.PAWN:
+			return new Pawn(color);
+		case Position.KNIGHT:
+			return new Knight(color);
+		case Position.BISHOP:
+			return new Bishop(color);
+		case Position.ROOK:
+			return new Rook(color);
+		case Position.QUEEN:
+			return new Queen(color);
+		default:
+			return new King(color);
+		}
+	}
+
 	public String getColor() {
 		return color;
 	}
 
-	public abstract boolean movePiece(Square start, Square end, Board board);
+	/**
+	 * Retrieves the color of the piece as a position color index.
+	 *
+	 * @return Position.WHITE or Position.BLACK.
+	 */
+	public int getColorIndex() {
+		return Position.colorIndex(color);
+	}
+
+	/**
+	 * Retrieves the piece code used by the bitboard position.
+	 *
+	 * @return The piece code in the range 0-11.
+	 */
+	public int getCode() {
+		return Position.pieceCode(getColorIndex(), getType());
+	}
+
+	public abstract int getType();
+
+	/**
+	 * Checks if the piece may move from one square to another under its movement
+	 * rules. This is a pure query: it never changes the piece or the board, so it
+	 * is safe to call speculatively and from several threads.
+	 *
+	 * @param start The starting square.
+	 * @param end   The ending square.
+	 * @param board The board.
+	 * @return true if the move follows the piece's rules, false otherwise.
+	 */
+	public abstract boolean isValidMove(Square start, Square end, Board board);
+
+	/**
+	 * Validates a move and, if it is valid, commits it to the board.
+	 *
+	 * @param start The starting square.
+	 * @param end   The ending square.
+	 * @param board The board.
+	 * @return true if the move was valid and has been applied, false otherwise.
+	 */
+	public boolean movePiece(Square start, Square end, Board board) {
+		if (!isValidMove(start, end, board)) {
+			return false;
+		}
+		board.applyMove(new Move(start, end));
+		return true;
+	}
 
 	@Override
 	public String toString() {
@@ -35,10 +107,7 @@ public abstract class Piece implements Serializable {
 			return true; // Knights jump over pieces, so path check is irrelevant
 		}
 
-		int stepX = calculateStepIncrement(start.getX(), end.getX());
-		int stepY = calculateStepIncrement(start.getY(), end.getY());
-
-		return checkPathForObstructions(start, end, board, stepX, stepY);
+		return board.isPathClear(start, end);
 	}
 
 	/**
@@ -51,45 +120,7 @@ public abstract class Piece implements Serializable {
 	 *         otherwise.
 	 */
 	private boolean isSameColorPieceAtDestination(Square start, Square end, Board board) {
-		Piece endPiece = board.getSquare(end.getX(), end.getY()).getPiece();
-		return endPiece != null && endPiece.getColor() == this.getColor();
-	}
-
-	/**
-	 * Calculates the step increment for traversal.
-	 *
-	 * @param start The starting coordinate.
-	 * @param end   The ending coordinate.
-	 * @return The step increment.
-	 */
-	private int calculateStepIncrement(int start, int end) {
-		return Integer.compare(end, start);
-	}
-
-	/**
-	 * Checks if the path between the start and end squares is clear of
-	 * obstructions.
-	 *
-	 * @param start The starting square.
-	 * @param end   The ending square.
-	 * @param board The board.
-	 * @param stepX The step increment for the x-coordinate.
-	 * @param stepY The step increment for the y-coordinate.
-	 * @return true if the path is unobstructed, false otherwise.
-	 */
-	private boolean checkPathForObstructions(Square start, Square end, Board board, int stepX, int stepY) {
-		int currentX = start.getX() + stepX;
-		int currentY = start.getY() + stepY;
-
-		while (currentX != end.getX() || currentY != end.getY()) {
-			if (board.getSquare(currentX, currentY).getPiece() != null) {
-				return false; // There is a piece blocking the path
-			}
-			currentX += stepX;
-			currentY += stepY;
-		}
-
-		return true; // Path is clear
+		return board.isOccupiedBy(end.getX(), end.getY(), getColorIndex());
 	}
 
 	private void writeObject(ObjectOutputStream out) throws IOException {
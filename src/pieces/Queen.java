@@ -1,6 +1,7 @@
 package pieces;
 
 import board.Board;
+import board.Position;
 import board.Square;
 
 public class Queen extends Piece {
@@ -16,11 +17,16 @@ public class Queen extends Piece {
 	}
 
 	@Override
-	public boolean movePiece(Square start, Square end, Board board) {
+	public boolean isValidMove(Square start, Square end, Board board) {
 		return (Math.abs(start.getX() - end.getX()) == Math.abs(start.getY() - end.getY()) || start.getX() == end.getX()
 				|| start.getY() == end.getY()) && isMovePathClear(start, end, board);
 	}
 
+	@Override
+	public int getType() {
+		return Position.QUEEN;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "Q";
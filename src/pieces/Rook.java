@@ -1,6 +1,7 @@
 package pieces;
 
 import board.Board;
+import board.Position;
 import board.Square;
 
 public class Rook extends Piece {
@@ -16,10 +17,15 @@ public class Rook extends Piece {
 	}
 
 	@Override
-	public boolean movePiece(Square start, Square end, Board board) {
+	public boolean isValidMove(Square start, Square end, Board board) {
 		return (start.getX() == end.getX() || start.getY() == end.getY()) && isMovePathClear(start, end, board);
 	}
 
+	@Override
+	public int getType() {
+		return Position.ROOK;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "R";
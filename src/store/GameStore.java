@@ -0,0 +1,249 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * This class reads an archive of games written by {@link GameStoreWriter}.
+ * The archive is a directory holding two append-only files:
+ *
+ * <pre>
+ * games.dat  int magic "FCGD", byte version, 11 bytes reserved, then per game:
+ *            short  ply count (unsigned)
+ *            byte   result (see StoredGame)
+ *            byte   reserved
+ *            short  per move: from square (bits 0-5), to square (6-11),
+ *                   promotion type (12-14)
+ * games.idx  int magic "FCGI", byte version, 11 bytes reserved, then per game:
+ *            long   offset of the game in games.dat
+ * </pre>
+ *
+ * Both files are memory-mapped, so finding a game by id is one read of the
+ * index and no game is copied onto the heap; {@link #scan(Consumer)} walks
+ * the games in order through a single reused {@link StoredGame}. A game is
+ * written before its index entry, so a reader only ever sees whole games and
+ * any number of processes can read while one writes. Games appended after
+ * the store was opened become visible on {@link #refresh()}.
+ *
+ * A store may be read from several threads; refreshing replaces the mappings
+ * without disturbing reads already under way.
+ */
+public class GameStore implements Closeable {
+	static final String DATA_FILE = "games.dat";
+	static final String INDEX_FILE = "games.idx";
+	static final int DATA_MAGIC = 0x46434744; // "FCGD"
+	static final int INDEX_MAGIC = 0x46434749; // "FCGI"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	/** The most moves a stored game may have. */
+	public static final int MAX_PLIES = 0xFFFF;
+
+	private static final long SEGMENT_SIZE = 1L << 30; // Data is mapped in pieces, as one mapping is limited to 2 GB
+	private static final long MAX_RECORD_SIZE = StoredGame.HEADER_SIZE + 2L * MAX_PLIES;
+
+	private final FileChannel data;
+	private final FileChannel index;
+	private volatile Mapping mapping;
+
+	/**
+	 * The files as mapped at one moment. Each data segment overlaps the next by
+	 * the largest record, so every record lies wholly within the segment it
+	 * starts in.
+	 */
+	private static final class Mapping {
+		final ByteBuffer index;
+		final ByteBuffer[] segments;
+		final int count;
+
+		Mapping(ByteBuffer index, ByteBuffer[] segments, int count) {
+			this.index = index;
+			this.segments = segments;
+			this.count = count;
+		}
+
+		void bind(int id, StoredGame game, long offset) {
+			int segment = (int) (offset / SEGMENT_SIZE);
+			game.bind(id, segments[segment], (int) (offset - segment * SEGMENT_SIZE));
+		}
+
+		long offset(int id) {
+			return index.getLong(HEADER_SIZE + 8 * id);
+		}
+	}
+
+	/**
+	 * Opens an archive for reading.
+	 *
+	 * @param directory The archive's directory.
+	 * @throws IOException if the files cannot be mapped or are not an archive.
+	 */
+	public GameStore(Path directory) throws IOException {
+		this.data = FileChannel.open(directory.resolve(DATA_FILE), StandardOpenOption.READ);
+		try {
+			this.index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.READ);
+			try {
+				checkHeader(data, DATA_MAGIC, directory.resolve(DATA_FILE));
+				checkHeader(index, INDEX_MAGIC, directory.resolve(INDEX_FILE));
+				refresh();
+			} catch (IOException e) {
+				index.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			data.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks that a file begins with an archive header of the current version.
+	 *
+	 * @param channel The open file.
+	 * @param magic   The magic number it should begin with.
+	 * @param file    The file's path, for the error message.
+	 * @throws IOException if the header is missing or does not match.
+	 */
+	static void checkHeader(FileChannel channel, int magic, Path file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				throw new IOException("Not a game archive: " + file);
+			}
+		}
+		if (header.getInt(0) != magic) {
+			throw new IOException("Not a game archive: " + file);
+		}
+		if (header.get(4) != VERSION) {
+			throw new IOException("Unsupported game archive version " + header.get(4) + ": " + file);
+		}
+	}
+
+	/**
+	 * Maps any games appended since the store was opened or last refreshed.
+	 *
+	 * @return The number of games now visible.
+	 * @throws IOException if the files cannot be mapped.
+	 */
+	public synchronized int refresh() throws IOException {
+		Mapping current = mapping;
+		long entries = (index.size() - HEADER_SIZE) / 8; // An entry still being written is left for next time
+		if (HEADER_SIZE + entries * 8 > Integer.MAX_VALUE) {
+			throw new IOException("Game archive index is too large to map");
+		}
+		int count = (int) entries;
+		if (current != null && count == current.count) {
+			return count;
+		}
+		MappedByteBuffer indexMap = index.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + 8L * count);
+		long dataSize = data.size(); // Read after the index, so it covers every indexed game
+		int segmentCount = (int) ((dataSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+		ByteBuffer[] segments = new ByteBuffer[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			long start = i * SEGMENT_SIZE;
+			long length = Math.min(SEGMENT_SIZE + MAX_RECORD_SIZE, dataSize - start);
+			if (current != null && i < current.segments.length && current.segments[i].capacity() == length) {
+				segments[i] = current.segments[i]; // Full segments never change
+			} else {
+				segments[i] = data.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+		}
+		mapping = new Mapping(indexMap, segments, count);
+		return count;
+	}
+
+	/**
+	 * Retrieves the number of games visible to this reader.
+	 *
+	 * @return The game count.
+	 */
+	public int size() {
+		return mapping.count;
+	}
+
+	/**
+	 * Points a view at a game.
+	 *
+	 * @param id   The game's id, counting from 0 in the order games were added.
+	 * @param game The view to reuse.
+	 * @return The view, now showing the game.
+	 * @throws IndexOutOfBoundsException if there is no such game.
+	 */
+	public StoredGame read(int id, StoredGame game) {
+		Mapping current = mapping;
+		if (id < 0 || id >= current.count) {
+			throw new IndexOutOfBoundsException("Game " + id + " of " + current.count);
+		}
+		current.bind(id, game, current.offset(id));
+		return game;
+	}
+
+	/**
+	 * Looks up a game by id.
+	 *
+	 * @param id The game's id, counting from 0 in the order games were added.
+	 * @return A new view of the game.
+	 * @throws IndexOutOfBoundsException if there is no such game.
+	 */
+	public StoredGame get(int id) {
+		return read(id, new StoredGame());
+	}
+
+	/**
+	 * Passes every game to an action in id order. The same view is passed each
+	 * time and moved on once the action returns, so the action must copy
+	 * anything it wants to keep.
+	 *
+	 * @param action The action to perform on each game.
+	 */
+	public void scan(Consumer<StoredGame> action) {
+		scan(0, mapping.count, action);
+	}
+
+	/**
+	 * Passes a range of games to an action in id order, through one reused
+	 * view. The games are read one after another from the data file, so the
+	 * index is consulted only once.
+	 *
+	 * @param from   The id of the first game.
+	 * @param to     The id after the last game.
+	 * @param action The action to perform on each game.
+	 * @throws IndexOutOfBoundsException if the range is not within the store.
+	 */
+	public void scan(int from, int to, Consumer<StoredGame> action) {
+		Mapping current = mapping;
+		if (from < 0 || to > current.count || from > to) {
+			throw new IndexOutOfBoundsException("Games " + from + " to " + to + " of " + current.count);
+		}
+		if (from == to) {
+			return;
+		}
+		StoredGame game = new StoredGame();
+		long offset = current.offset(from);
+		for (int id = from; id < to; id++) {
+			current.bind(id, game, offset);
+			action.accept(game);
+			offset += game.getRecordSize(); // Records are stored back to back
+		}
+	}
+
+	/**
+	 * Closes the files. Views handed out must not be used afterwards.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			index.close();
+		} finally {
+			data.close();
+		}
+	}
+}
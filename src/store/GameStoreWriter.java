@@ -0,0 +1,238 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import board.Move;
+
+/**
+ * This class appends games to an archive read by {@link GameStore}. Games are
+ * gathered in direct buffers and written in large blocks, the games before
+ * their index entries, so readers never see an entry for a game that is not
+ * fully on disk. Only one writer may have an archive open at a time; this is
+ * enforced with a lock on the index file, while readers take no lock.
+ *
+ * If a writer stopped part way through an append, the next writer to open the
+ * archive drops the unfinished game and carries on from the last whole one.
+ */
+public class GameStoreWriter implements Closeable {
+	private static final int DATA_BUFFER_SIZE = 1 << 20;
+	private static final int INDEX_BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel data;
+	private final FileChannel index;
+	private final FileLock lock;
+	private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(DATA_BUFFER_SIZE);
+	private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(INDEX_BUFFER_SIZE);
+	private long dataEnd; // Where the next game goes, counting games still in the buffer
+	private int count;
+
+	/**
+	 * Opens an archive for appending, creating it if it does not exist.
+	 *
+	 * @param directory The archive's directory.
+	 * @throws IOException if the files cannot be opened, are not an archive, or
+	 *                     another writer has the archive open.
+	 */
+	public GameStoreWriter(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		Path dataFile = directory.resolve(GameStore.DATA_FILE);
+		Path indexFile = directory.resolve(GameStore.INDEX_FILE);
+		if (Files.exists(dataFile) != Files.exists(indexFile)) {
+			throw new IOException("Game archive is missing a file: " + directory); // Not recreated, to keep the games
+		}
+		this.index = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE);
+		try {
+			this.lock = lock(index, directory);
+			this.data = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE);
+			try {
+				recover(dataFile, indexFile);
+			} catch (IOException e) {
+				data.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			index.close(); // Also releases the lock
+			throw e;
+		}
+	}
+
+	private static FileLock lock(FileChannel channel, Path directory) throws IOException {
+		FileLock lock;
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null; // Held by another writer in this process
+		}
+		if (lock == null) {
+			throw new IOException("Game archive is already open for writing: " + directory);
+		}
+		return lock;
+	}
+
+	/**
+	 * Writes the headers of a new archive, or finds the end of an existing one
+	 * and cuts off anything written after the last whole game.
+	 */
+	private void recover(Path dataFile, Path indexFile) throws IOException {
+		if (index.size() < GameStore.HEADER_SIZE && data.size() <= GameStore.HEADER_SIZE) {
+			data.truncate(0); // New, or its creation was cut short
+			index.truncate(0);
+			writeHeader(data, GameStore.DATA_MAGIC);
+			writeHeader(index, GameStore.INDEX_MAGIC);
+			dataEnd = GameStore.HEADER_SIZE;
+			return;
+		}
+		GameStore.checkHeader(data, GameStore.DATA_MAGIC, dataFile);
+		GameStore.checkHeader(index, GameStore.INDEX_MAGIC, indexFile);
+
+		count = (int) ((index.size() - GameStore.HEADER_SIZE) / 8);
+		index.truncate(GameStore.HEADER_SIZE + 8L * count);
+		dataEnd = GameStore.HEADER_SIZE;
+		if (count > 0) {
+			ByteBuffer entry = ByteBuffer.allocate(8);
+			readFully(index, entry, GameStore.HEADER_SIZE + 8L * (count - 1));
+			long offset = entry.getLong(0);
+			ByteBuffer header = ByteBuffer.allocate(StoredGame.HEADER_SIZE);
+			readFully(data, header, offset);
+			dataEnd = offset + StoredGame.HEADER_SIZE + 2 * (header.getShort(0) & 0xFFFF);
+		}
+		if (data.size() < dataEnd) {
+			throw new IOException("Game archive is missing indexed games: " + dataFile);
+		}
+		data.truncate(dataEnd); // Drops a game whose index entry was never written
+	}
+
+	private static void writeHeader(FileChannel channel, int magic) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(GameStore.HEADER_SIZE);
+		header.putInt(magic).put((byte) GameStore.VERSION).position(GameStore.HEADER_SIZE).flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Game archive is truncated");
+			}
+		}
+	}
+
+	/**
+	 * Appends a game.
+	 *
+	 * @param moves  The moves in the encoding of {@link StoredGame#encode}.
+	 * @param length The number of moves to take from the array.
+	 * @param result The result, one of the StoredGame constants.
+	 * @return The game's id.
+	 * @throws IOException if the archive cannot be written.
+	 * @throws IllegalArgumentException if the game is too long or the result is
+	 *                                  not known.
+	 */
+	public int append(short[] moves, int length, int result) throws IOException {
+		if (length < 0 || length > GameStore.MAX_PLIES) {
+			throw new IllegalArgumentException("A stored game has at most " + GameStore.MAX_PLIES + " moves, not "
+					+ length);
+		}
+		if (result < StoredGame.UNKNOWN || result > StoredGame.DRAW) {
+			throw new IllegalArgumentException("Unknown result " + result);
+		}
+		int size = StoredGame.HEADER_SIZE + 2 * length;
+		if (dataBuffer.remaining() < size) {
+			flushData();
+		}
+		if (!indexBuffer.hasRemaining()) {
+			flush(); // Games go out before the entries that point to them
+		}
+		dataBuffer.putShort((short) length).put((byte) result).put((byte) 0);
+		for (int i = 0; i < length; i++) {
+			dataBuffer.putShort(moves[i]);
+		}
+		indexBuffer.putLong(dataEnd);
+		dataEnd += size;
+		return count++;
+	}
+
+	/**
+	 * Appends a game from its move history.
+	 *
+	 * @param history The moves played from the standard position, in order.
+	 * @param result  The result, one of the StoredGame constants.
+	 * @return The game's id.
+	 * @throws IOException if the archive cannot be written.
+	 * @throws IllegalArgumentException if the game is too long or the result is
+	 *                                  not known.
+	 */
+	public int append(List<Move> history, int result) throws IOException {
+		short[] moves = new short[history.size()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = StoredGame.encode(history.get(i));
+		}
+		return append(moves, moves.length, result);
+	}
+
+	/**
+	 * Retrieves the number of games in the archive, including any not yet
+	 * flushed.
+	 *
+	 * @return The game count.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Writes buffered games to the files, making them visible to readers.
+	 *
+	 * @throws IOException if the archive cannot be written.
+	 */
+	public void flush() throws IOException {
+		flushData();
+		indexBuffer.flip();
+		while (indexBuffer.hasRemaining()) {
+			index.write(indexBuffer, index.size());
+		}
+		indexBuffer.clear();
+	}
+
+	private void flushData() throws IOException {
+		dataBuffer.flip();
+		while (dataBuffer.hasRemaining()) {
+			data.write(dataBuffer, data.size());
+		}
+		dataBuffer.clear();
+	}
+
+	/**
+	 * Flushes buffered games, forces the files to disk and releases the
+	 * archive.
+	 *
+	 * @throws IOException if the archive cannot be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			data.force(false);
+			index.force(false);
+		} finally {
+			try {
+				data.close();
+			} finally {
+				lock.release();
+				index.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class is the list of sorted runs making up a {@link PositionIndex}, as
+ * stored in the index's manifest file:
+ *
+ * <pre>
+ * int    magic "FCPI"
+ * byte   format version, then 3 bytes reserved
+ * int    number of games indexed, counting from game 0
+ * long   number to give the next run
+ * int    run count
+ *        per run, oldest first: long run number, long entry count
+ * </pre>
+ *
+ * The manifest is replaced whole, so readers always see a consistent set of
+ * runs. A manifest is never changed once made; changes make a new one.
+ */
+final class IndexManifest {
+	static final String FILE = "positions.idx";
+	private static final int MAGIC = 0x46435049; // "FCPI"
+
+	final int gameCount;
+	final long nextRun;
+	final long[] runs; // Run numbers, oldest games first
+	final long[] sizes; // Entry counts, matching runs
+
+	IndexManifest(int gameCount, long nextRun, long[] runs, long[] sizes) {
+		this.gameCount = gameCount;
+		this.nextRun = nextRun;
+		this.runs = runs;
+		this.sizes = sizes;
+	}
+
+	/**
+	 * Reads the manifest of an index.
+	 *
+	 * @param directory The index's directory.
+	 * @return The manifest, or an empty one if the index has not been written.
+	 * @throws IOException if the manifest cannot be read or is not valid.
+	 */
+	static IndexManifest read(Path directory) throws IOException {
+		Path file = directory.resolve(FILE);
+		if (!Files.exists(file)) {
+			return new IndexManifest(0, 0, new long[0], new long[0]);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a position index: " + file);
+			}
+			if (buffer.get() != PositionIndex.VERSION) {
+				throw new IOException("Unsupported position index version " + buffer.get(4) + ": " + file);
+			}
+			buffer.position(8);
+			int gameCount = buffer.getInt();
+			long nextRun = buffer.getLong();
+			int count = buffer.getInt();
+			long[] runs = new long[count];
+			long[] sizes = new long[count];
+			for (int i = 0; i < count; i++) {
+				runs[i] = buffer.getLong();
+				sizes[i] = buffer.getLong();
+			}
+			return new IndexManifest(gameCount, nextRun, runs, sizes);
+		} catch (RuntimeException e) { // Too short for what it claims to hold
+			throw new IOException("Position index manifest is damaged: " + file, e);
+		}
+	}
+
+	/**
+	 * Writes the manifest, replacing the old one only once the new one is on
+	 * disk.
+	 *
+	 * @param directory The index's directory.
+	 * @throws IOException if the manifest cannot be written.
+	 */
+	void write(Path directory) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4 + 8 + 4 + 16 * runs.length);
+		buffer.putInt(MAGIC).put((byte) PositionIndex.VERSION).position(8);
+		buffer.putInt(gameCount).putLong(nextRun).putInt(runs.length);
+		for (int i = 0; i < runs.length; i++) {
+			buffer.putLong(runs[i]).putLong(sizes[i]);
+		}
+		buffer.flip();
+
+		Path file = directory.resolve(FILE);
+		Path temporary = file.resolveSibling(FILE + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Makes a manifest with a new run after the existing ones.
+	 *
+	 * @param size      The new run's entry count.
+	 * @param gameCount The number of games indexed once the run is included.
+	 * @return The new manifest; the run's number is the old nextRun.
+	 */
+	IndexManifest withRun(long size, int gameCount) {
+		long[] newRuns = Arrays.copyOf(runs, runs.length + 1);
+		long[] newSizes = Arrays.copyOf(sizes, sizes.length + 1);
+		newRuns[runs.length] = nextRun;
+		newSizes[runs.length] = size;
+		return new IndexManifest(gameCount, nextRun + 1, newRuns, newSizes);
+	}
+
+	/**
+	 * Makes a manifest with the last two runs replaced by their merge.
+	 *
+	 * @return The new manifest; the merged run's number is the old nextRun.
+	 */
+	IndexManifest withLastRunsMerged() {
+		int last = runs.length - 2;
+		long[] newRuns = Arrays.copyOf(runs, last + 1);
+		long[] newSizes = Arrays.copyOf(sizes, last + 1);
+		newRuns[last] = nextRun;
+		newSizes[last] = sizes[last] + sizes[last + 1];
+		return new IndexManifest(gameCount, nextRun + 1, newRuns, newSizes);
+	}
+
+	/**
+	 * Gives the file name of a run.
+	 *
+	 * @param run The run's number.
+	 * @return The file name within the index's directory.
+	 */
+	static String runFile(long run) {
+		return "positions-" + run + ".run";
+	}
+}
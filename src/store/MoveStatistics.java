@@ -0,0 +1,101 @@
+package store;
+
+/**
+ * This class counts how a move went in the archived games that played it from
+ * one position, as reported by {@link PositionIndex#explore}.
+ */
+public final class MoveStatistics {
+	private final String move;
+	private int games;
+	private int whiteWins;
+	private int draws;
+	private int blackWins;
+
+	/**
+	 * Constructs the statistics of a move with no games yet.
+	 *
+	 * @param move The move in UCI format.
+	 */
+	MoveStatistics(String move) {
+		this.move = move;
+	}
+
+	/**
+	 * Counts more games with the same result.
+	 *
+	 * @param result The games' result, one of the StoredGame constants.
+	 * @param count  The number of games.
+	 */
+	void add(int result, int count) {
+		games += count;
+		if (result == StoredGame.WHITE_WINS) {
+			whiteWins += count;
+		} else if (result == StoredGame.DRAW) {
+			draws += count;
+		} else if (result == StoredGame.BLACK_WINS) {
+			blackWins += count;
+		}
+	}
+
+	/**
+	 * Retrieves the move.
+	 *
+	 * @return The move in UCI format.
+	 */
+	public String getMove() {
+		return move;
+	}
+
+	/**
+	 * Retrieves the number of games that played the move.
+	 *
+	 * @return The game count.
+	 */
+	public int getGames() {
+		return games;
+	}
+
+	/**
+	 * Retrieves the number of those games White won.
+	 *
+	 * @return The count of White wins.
+	 */
+	public int getWhiteWins() {
+		return whiteWins;
+	}
+
+	/**
+	 * Retrieves the number of those games that were drawn.
+	 *
+	 * @return The count of draws.
+	 */
+	public int getDraws() {
+		return draws;
+	}
+
+	/**
+	 * Retrieves the number of those games Black won.
+	 *
+	 * @return The count of Black wins.
+	 */
+	public int getBlackWins() {
+		return blackWins;
+	}
+
+	/**
+	 * Formats the statistics for display, such as
+	 * {@code "e2e4 120 games +45% =30% -25%"}. Games without a known result
+	 * count towards none of the percentages.
+	 *
+	 * @return The formatted statistics.
+	 */
+	@Override
+	public String toString() {
+		return move + " " + games + (games == 1 ? " game" : " games") + " +" + percent(whiteWins) + "% ="
+				+ percent(draws) + "% -" + percent(blackWins) + "%";
+	}
+
+	private int percent(int count) {
+		return Math.round(100f * count / games);
+	}
+}
@@ -0,0 +1,336 @@
+package store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import board.PackedMove;
+import board.Position;
+
+/**
+ * This class answers opening-explorer queries over a {@link GameStore}: which
+ * moves were played from a position, how often, and how those games ended. It
+ * reads an index built by {@link PositionIndexWriter} in the archive's
+ * directory, made of sorted runs of 16-byte entries, one per position played
+ * from in each game:
+ *
+ * <pre>
+ * long   Zobrist key of the position
+ * int    id of the game
+ * short  ply the position occurred at (bits 0-13) and the game's result (14-15)
+ * short  the move played from it, encoded as in StoredGame
+ * </pre>
+ *
+ * Each run file starts with a 32-byte header ("FCPR", version, entry count,
+ * summary count). Its entries are sorted by unsigned key, then by game and
+ * ply; a run covers a range of games, and the manifest lists the runs oldest
+ * first. New games go into new runs and runs of similar size are merged, so
+ * there are only a few dozen runs even for billions of entries.
+ *
+ * A position with {@link #SUMMARY_THRESHOLD} or more entries in a run is also
+ * summarised after the entries, one 32-byte row per move played from it:
+ *
+ * <pre>
+ * long   Zobrist key of the position
+ * short  the move, then 2 bytes reserved
+ * int    games without a known result
+ * int    games White won, then games drawn, then games Black won
+ * int    reserved
+ * </pre>
+ *
+ * Runs are memory-mapped, so the index is not loaded onto the heap. A query is
+ * a binary search in each run, then a read of either the position's summary
+ * rows or its few entries, so popular positions cost no more than rare ones.
+ * Several processes may query while one writer adds games; {@link #refresh()}
+ * picks up its changes.
+ */
+public class PositionIndex {
+	static final int RUN_MAGIC = 0x46435052; // "FCPR"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int ENTRY_SIZE = 16;
+	static final int SUMMARY_SIZE = 32;
+
+	/** The number of entries for a position in one run at which it is summarised. */
+	static final int SUMMARY_THRESHOLD = 32;
+
+	/** The last ply indexed in a game; no legal game reaches it. */
+	public static final int MAX_PLY = (1 << 14) - 1;
+
+	private static final int REFRESH_ATTEMPTS = 10; // Times to retry when a run is merged away while mapping
+
+	private final Path directory;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * The runs listed in one manifest, mapped.
+	 */
+	private static final class Snapshot {
+		final IndexManifest manifest;
+		final ByteBuffer[] runs;
+
+		Snapshot(IndexManifest manifest, ByteBuffer[] runs) {
+			this.manifest = manifest;
+			this.runs = runs;
+		}
+	}
+
+	/**
+	 * Opens the position index of an archive. An archive that has not been
+	 * indexed yet gives an empty index.
+	 *
+	 * @param directory The archive's directory.
+	 * @throws IOException if the index cannot be read or mapped.
+	 */
+	public PositionIndex(Path directory) throws IOException {
+		this.directory = directory;
+		refresh();
+	}
+
+	/**
+	 * Maps the runs written since the index was opened or last refreshed.
+	 *
+	 * @return The number of games now indexed.
+	 * @throws IOException if the index cannot be read or mapped.
+	 */
+	public synchronized int refresh() throws IOException {
+		for (int attempt = 1;; attempt++) {
+			IndexManifest manifest = IndexManifest.read(directory);
+			Snapshot current = snapshot;
+			ByteBuffer[] runs = new ByteBuffer[manifest.runs.length];
+			try {
+				for (int i = 0; i < runs.length; i++) {
+					int old = current == null ? -1 : indexOf(current.manifest.runs, manifest.runs[i]);
+					runs[i] = old >= 0 ? current.runs[old] : mapRun(directory, manifest.runs[i]); // Runs never change
+				}
+			} catch (NoSuchFileException e) {
+				if (attempt == REFRESH_ATTEMPTS) {
+					throw e;
+				}
+				continue; // The writer merged it away after the manifest was read; the new manifest lists the merge
+			}
+			snapshot = new Snapshot(manifest, runs);
+			return manifest.gameCount;
+		}
+	}
+
+	private static int indexOf(long[] runs, long run) {
+		for (int i = 0; i < runs.length; i++) {
+			if (runs[i] == run) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Maps a run file and checks its header.
+	 *
+	 * @param directory The index's directory.
+	 * @param run       The run's number.
+	 * @return The run's entries and header.
+	 * @throws IOException if the run cannot be mapped or is not valid.
+	 */
+	static ByteBuffer mapRun(Path directory, long run) throws IOException {
+		Path file = directory.resolve(IndexManifest.runFile(run));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (entries.capacity() < HEADER_SIZE || entries.getInt(0) != RUN_MAGIC || entries.get(4) != VERSION
+					|| HEADER_SIZE + entries.getLong(8) * ENTRY_SIZE + entries.getLong(16) * SUMMARY_SIZE
+							!= entries.capacity()) {
+				throw new IOException("Not a position index run: " + file);
+			}
+			return entries; // Stays valid after the channel closes
+		}
+	}
+
+	/**
+	 * Lists the moves played from a position in the indexed games, most often
+	 * played first.
+	 *
+	 * @param position The position.
+	 * @return The moves with their game counts and results; empty if no
+	 *         indexed game reached the position.
+	 */
+	public List<MoveStatistics> explore(Position position) {
+		Snapshot current = snapshot;
+		long key = position.getKey();
+		short[] codes = new short[32];
+		MoveStatistics[] moves = new MoveStatistics[32];
+		int count = 0;
+		for (ByteBuffer run : current.runs) {
+			int rows = summaryCount(run);
+			int row = firstRow(run, key);
+			if (row < rows && rowKey(run, row) == key) {
+				for (; row < rows && rowKey(run, row) == key; row++) {
+					int offset = entriesEnd(run) + row * SUMMARY_SIZE;
+					short move = run.getShort(offset + 8);
+					int found = 0;
+					while (found < count && codes[found] != move) {
+						found++;
+					}
+					if (found == count) {
+						if (count == codes.length) {
+							codes = Arrays.copyOf(codes, 2 * count);
+							moves = Arrays.copyOf(moves, 2 * count);
+						}
+						codes[count] = move;
+						moves[count++] = new MoveStatistics(toUCI(position, move));
+					}
+					moves[found].add(StoredGame.UNKNOWN, run.getInt(offset + 12));
+					moves[found].add(StoredGame.WHITE_WINS, run.getInt(offset + 16));
+					moves[found].add(StoredGame.DRAW, run.getInt(offset + 20));
+					moves[found].add(StoredGame.BLACK_WINS, run.getInt(offset + 24));
+				}
+				continue; // The summary stands for all the position's entries in the run
+			}
+			int end = entryCount(run);
+			for (int i = firstIndex(run, key); i < end && keyAt(run, i) == key; i++) {
+				int offset = HEADER_SIZE + i * ENTRY_SIZE;
+				short move = run.getShort(offset + 14);
+				int found = 0;
+				while (found < count && codes[found] != move) { // A position has few distinct replies
+					found++;
+				}
+				if (found == count) {
+					if (count == codes.length) {
+						codes = Arrays.copyOf(codes, 2 * count);
+						moves = Arrays.copyOf(moves, 2 * count);
+					}
+					codes[count] = move;
+					moves[count++] = new MoveStatistics(toUCI(position, move));
+				}
+				moves[found].add((run.getShort(offset + 12) & 0xFFFF) >>> 14, 1);
+			}
+		}
+		List<MoveStatistics> result = new ArrayList<>(Arrays.asList(moves).subList(0, count));
+		result.sort((a, b) -> Integer.compare(b.getGames(), a.getGames()));
+		return result;
+	}
+
+	private static String toUCI(Position position, short move) {
+		return PackedMove.toUCI(position.encodeMove(move & 63, (move >>> 6) & 63, (move >>> 12) & 7));
+	}
+
+	/**
+	 * Finds games that reached a position, in the order they were added.
+	 *
+	 * @param position The position.
+	 * @param limit    The most games to return.
+	 * @return The ids of the games, at most limit of them. A game that reached
+	 *         the position more than once is listed once for each time.
+	 */
+	public int[] findGames(Position position, int limit) {
+		Snapshot current = snapshot;
+		long key = position.getKey();
+		int[] games = new int[Math.min(limit, 64)];
+		int count = 0;
+		for (ByteBuffer run : current.runs) { // Runs hold successive ranges of games
+			int end = entryCount(run);
+			for (int i = firstIndex(run, key); i < end && keyAt(run, i) == key && count < limit; i++) {
+				if (count == games.length) {
+					games = Arrays.copyOf(games, Math.min(limit, 2 * count));
+				}
+				games[count++] = run.getInt(HEADER_SIZE + i * ENTRY_SIZE + 8);
+			}
+		}
+		return Arrays.copyOf(games, count);
+	}
+
+	/**
+	 * Finds the first entry with a key, or where it would be.
+	 */
+	private static int firstIndex(ByteBuffer run, long key) {
+		int low = 0;
+		int high = entryCount(run);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(keyAt(run, middle), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the first summary row with a key, or where it would be.
+	 */
+	private static int firstRow(ByteBuffer run, long key) {
+		int low = 0;
+		int high = summaryCount(run);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(rowKey(run, middle), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static long keyAt(ByteBuffer run, int index) {
+		return run.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+	}
+
+	private static long rowKey(ByteBuffer run, int row) {
+		return run.getLong(entriesEnd(run) + row * SUMMARY_SIZE);
+	}
+
+	private static int entryCount(ByteBuffer run) {
+		return (int) run.getLong(8);
+	}
+
+	private static int summaryCount(ByteBuffer run) {
+		return (int) run.getLong(16);
+	}
+
+	/**
+	 * Finds where a run's entries end and its summary begins.
+	 *
+	 * @param run The mapped run.
+	 * @return The offset of the first summary row.
+	 */
+	static int entriesEnd(ByteBuffer run) {
+		return HEADER_SIZE + entryCount(run) * ENTRY_SIZE;
+	}
+
+	/**
+	 * Retrieves the number of games indexed.
+	 *
+	 * @return The game count, counting from game 0.
+	 */
+	public int getGameCount() {
+		return snapshot.manifest.gameCount;
+	}
+
+	/**
+	 * Retrieves the number of positions indexed.
+	 *
+	 * @return The entry count over all runs.
+	 */
+	public long size() {
+		long size = 0;
+		for (long runSize : snapshot.manifest.sizes) {
+			size += runSize;
+		}
+		return size;
+	}
+
+	/**
+	 * Retrieves the number of runs the index is made of.
+	 *
+	 * @return The run count.
+	 */
+	public int getRunCount() {
+		return snapshot.runs.length;
+	}
+}
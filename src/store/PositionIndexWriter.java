@@ -0,0 +1,398 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import board.Position;
+
+/**
+ * This class builds the {@link PositionIndex} of an archive as games are
+ * appended. Each {@link #update(GameStore)} replays the games not yet indexed,
+ * sorts their positions in memory a run at a time and writes each batch as a
+ * new run. Whenever the newest run has grown to at least half the size of the
+ * one before it, the two are merged, so the runs shrink geometrically from
+ * oldest to newest and every entry is rewritten only a logarithmic number of
+ * times.
+ *
+ * A run is fully written before the manifest names it, and replaced runs are
+ * deleted only after the new manifest is in place, so readers and a crashed
+ * update never see a partial index. Only one writer may update an index at a
+ * time.
+ */
+public class PositionIndexWriter implements Closeable {
+	private static final String LOCK_FILE = "positions.lock";
+	private static final int RUN_ENTRIES = 1 << 19; // Entries sorted in memory at a time; 16 MB with the sort's copy
+	private static final long MAX_RUN_ENTRIES = (Integer.MAX_VALUE - PositionIndex.HEADER_SIZE)
+			/ (PositionIndex.ENTRY_SIZE + PositionIndex.SUMMARY_SIZE); // A run is mapped in one piece
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+	private final Path directory;
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+	private long[] keys = new long[1024]; // Grown as needed up to RUN_ENTRIES
+	private long[] values = new long[1024]; // Game id, ply and result, and move, as stored
+	private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE); // Shared by run outputs
+	private IndexManifest manifest;
+	private int size;
+
+	/**
+	 * Opens an archive's position index for updating, creating it if it does
+	 * not exist. Run files left behind by an interrupted update are deleted.
+	 *
+	 * @param directory The archive's directory.
+	 * @throws IOException if the index cannot be read or another writer has it
+	 *                     open.
+	 */
+	public PositionIndexWriter(Path directory) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE);
+		try {
+			FileLock acquired;
+			try {
+				acquired = lockChannel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				acquired = null; // Held by another writer in this process
+			}
+			if (acquired == null) {
+				throw new IOException("Position index is already open for writing: " + directory);
+			}
+			this.lock = acquired;
+			this.manifest = IndexManifest.read(directory);
+			deleteUnlistedRuns();
+		} catch (IOException e) {
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+	private void deleteUnlistedRuns() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "positions-*.run")) {
+			for (Path file : files) {
+				boolean listed = false;
+				for (long run : manifest.runs) {
+					listed |= file.getFileName().toString().equals(IndexManifest.runFile(run));
+				}
+				if (!listed) {
+					deleteQuietly(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indexes the games added to a store since the last update.
+	 *
+	 * @param store The archive's game store, refreshed as the caller wishes.
+	 * @return The number of games indexed by this update.
+	 * @throws IOException if the index cannot be written.
+	 */
+	public int update(GameStore store) throws IOException {
+		int first = manifest.gameCount;
+		if (store.size() <= first) {
+			return 0;
+		}
+		try {
+			store.scan(first, store.size(), game -> {
+				try {
+					add(game);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		writeRun(store.size());
+		return store.size() - first;
+	}
+
+	/**
+	 * Replays a game and adds an entry for each position a move was played
+	 * from. The buffered entries are written first if the game might not fit,
+	 * so a run always ends between games.
+	 */
+	private void add(StoredGame game) throws IOException {
+		int plies = Math.min(game.getPlyCount(), PositionIndex.MAX_PLY);
+		if (size + plies > RUN_ENTRIES) {
+			writeRun(game.getId());
+		}
+		if (size + plies > keys.length) {
+			int length = Math.max(Math.min(2 * keys.length, RUN_ENTRIES), size + plies);
+			keys = Arrays.copyOf(keys, length);
+			values = Arrays.copyOf(values, length);
+		}
+		Position position = Position.fromFen(Position.START_FEN);
+		long id = (long) game.getId() << 32 | (long) game.getResult() << 30;
+		for (int ply = 0; ply < plies; ply++) {
+			short move = game.getMove(ply);
+			if (position.pieceAt(move & 63) == Position.NO_PIECE) {
+				break; // Not a legal game past here
+			}
+			keys[size] = position.getKey();
+			values[size++] = id | (long) ply << 16 | (move & 0xFFFF);
+			position.makeMove(game.getMove(ply, position));
+		}
+	}
+
+	/**
+	 * Sorts the buffered entries into a new run, records it in the manifest
+	 * and merges runs of similar size.
+	 *
+	 * @param gameCount The number of games indexed once the run is included.
+	 */
+	private void writeRun(int gameCount) throws IOException {
+		sort(size);
+		if (size > 0) {
+			try (RunOutput output = new RunOutput(manifest.nextRun)) {
+				for (int i = 0; i < size; i++) {
+					output.add(keys[i], values[i]);
+				}
+			}
+			manifest = manifest.withRun(size, gameCount);
+			size = 0;
+		} else {
+			manifest = new IndexManifest(gameCount, manifest.nextRun, manifest.runs, manifest.sizes);
+		}
+		manifest.write(directory);
+		compact();
+	}
+
+	/**
+	 * Merges the two newest runs while the newer is at least half the size of
+	 * the older.
+	 */
+	private void compact() throws IOException {
+		for (int n = manifest.runs.length; n >= 2; n = manifest.runs.length) {
+			long older = manifest.sizes[n - 2];
+			long newer = manifest.sizes[n - 1];
+			if (2 * newer < older || older + newer > MAX_RUN_ENTRIES) {
+				return;
+			}
+			long first = manifest.runs[n - 2];
+			long second = manifest.runs[n - 1];
+			merge(first, second, manifest.nextRun);
+			manifest = manifest.withLastRunsMerged();
+			manifest.write(directory);
+			deleteQuietly(directory.resolve(IndexManifest.runFile(first)));
+			deleteQuietly(directory.resolve(IndexManifest.runFile(second)));
+		}
+	}
+
+	/**
+	 * Merges two adjacent runs into a new one. Equal keys keep the older run's
+	 * entries first, so entries stay in game order.
+	 */
+	private void merge(long first, long second, long run) throws IOException {
+		ByteBuffer older = PositionIndex.mapRun(directory, first);
+		ByteBuffer newer = PositionIndex.mapRun(directory, second);
+		int olderEnd = PositionIndex.entriesEnd(older);
+		int newerEnd = PositionIndex.entriesEnd(newer);
+		int i = PositionIndex.HEADER_SIZE;
+		int j = PositionIndex.HEADER_SIZE;
+		try (RunOutput output = new RunOutput(run)) {
+			while (i < olderEnd || j < newerEnd) {
+				if (j == newerEnd || i < olderEnd && Long.compareUnsigned(older.getLong(i), newer.getLong(j)) <= 0) {
+					output.add(older.getLong(i), older.getLong(i + 8));
+					i += PositionIndex.ENTRY_SIZE;
+				} else {
+					output.add(newer.getLong(j), newer.getLong(j + 8));
+					j += PositionIndex.ENTRY_SIZE;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A run file being written from entries in sorted order. Positions with at
+	 * least {@link PositionIndex#SUMMARY_THRESHOLD} entries in the run are also
+	 * counted per move and result, and the counts are written after the
+	 * entries, so queries on popular positions need not read every entry.
+	 */
+	private final class RunOutput implements Closeable {
+		private final FileChannel channel;
+		private long entryCount;
+		private long groupKey;
+		private int groupSize; // Entries with groupKey so far
+		private int groupMoves; // Distinct moves among them
+		private short[] moves = new short[32];
+		private int[] counts = new int[32 * 4]; // Per distinct move, games by result
+		private long[] summary = new long[64]; // Rows of four longs, as written
+		private int summaryCount;
+
+		RunOutput(long run) throws IOException {
+			channel = FileChannel.open(directory.resolve(IndexManifest.runFile(run)), StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			writeBuffer.clear();
+			writeBuffer.position(PositionIndex.HEADER_SIZE); // Filled in once the counts are known
+		}
+
+		/**
+		 * Writes an entry, which must not sort before the one written last.
+		 */
+		void add(long key, long value) throws IOException {
+			if (key != groupKey || groupSize == 0) {
+				endGroup();
+				groupKey = key;
+			}
+			groupSize++;
+			short move = (short) value;
+			int found = 0;
+			while (found < groupMoves && moves[found] != move) {
+				found++;
+			}
+			if (found == groupMoves) {
+				if (groupMoves == moves.length) {
+					moves = Arrays.copyOf(moves, 2 * groupMoves);
+					counts = Arrays.copyOf(counts, 8 * groupMoves);
+				}
+				moves[groupMoves++] = move;
+				Arrays.fill(counts, 4 * found, 4 * found + 4, 0);
+			}
+			counts[4 * found + (int) (value >>> 30 & 3)]++; // The result's two bits
+
+			if (writeBuffer.remaining() < PositionIndex.ENTRY_SIZE) {
+				drain();
+			}
+			writeBuffer.putLong(key).putLong(value);
+			entryCount++;
+		}
+
+		/**
+		 * Keeps the counts of the finished key group if it is large enough.
+		 */
+		private void endGroup() {
+			if (groupSize >= PositionIndex.SUMMARY_THRESHOLD) {
+				if (4 * (summaryCount + groupMoves) > summary.length) {
+					summary = Arrays.copyOf(summary, Math.max(2 * summary.length, 4 * (summaryCount + groupMoves)));
+				}
+				for (int m = 0; m < groupMoves; m++) {
+					int row = 4 * summaryCount++;
+					summary[row] = groupKey;
+					summary[row + 1] = (long) (moves[m] & 0xFFFF) << 48 | counts[4 * m + StoredGame.UNKNOWN];
+					summary[row + 2] = (long) counts[4 * m + StoredGame.WHITE_WINS] << 32
+							| counts[4 * m + StoredGame.DRAW];
+					summary[row + 3] = (long) counts[4 * m + StoredGame.BLACK_WINS] << 32;
+				}
+			}
+			groupSize = 0;
+			groupMoves = 0;
+		}
+
+		private void drain() throws IOException {
+			writeBuffer.flip();
+			while (writeBuffer.hasRemaining()) {
+				channel.write(writeBuffer);
+			}
+			writeBuffer.clear();
+		}
+
+		/**
+		 * Writes the counts and the header, forces the run to disk and closes
+		 * it.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				endGroup();
+				for (int i = 0; i < 4 * summaryCount; i++) {
+					if (!writeBuffer.hasRemaining()) {
+						drain();
+					}
+					writeBuffer.putLong(summary[i]);
+				}
+				drain();
+				ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_SIZE);
+				header.putInt(PositionIndex.RUN_MAGIC).put((byte) PositionIndex.VERSION).position(8);
+				header.putLong(entryCount).putLong(summaryCount).position(PositionIndex.HEADER_SIZE).flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(false);
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Sorts the first entries by unsigned key with a least significant digit
+	 * radix sort. The sort is stable, so entries with the same key stay in the
+	 * game and ply order they were added in.
+	 */
+	private void sort(int count) {
+		long[] keyBuffer = new long[count];
+		long[] valueBuffer = new long[count];
+		long[] fromKeys = keys;
+		long[] fromValues = values;
+		long[] toKeys = keyBuffer;
+		long[] toValues = valueBuffer;
+		int[] offsets = new int[256];
+		for (int shift = 0; shift < 64; shift += 8) {
+			Arrays.fill(offsets, 0);
+			for (int i = 0; i < count; i++) {
+				offsets[(int) (fromKeys[i] >>> shift) & 0xFF]++;
+			}
+			for (int digit = 0, total = 0; digit < 256; digit++) {
+				int digitCount = offsets[digit];
+				offsets[digit] = total;
+				total += digitCount;
+			}
+			for (int i = 0; i < count; i++) {
+				int to = offsets[(int) (fromKeys[i] >>> shift) & 0xFF]++;
+				toKeys[to] = fromKeys[i];
+				toValues[to] = fromValues[i];
+			}
+			long[] swap = fromKeys;
+			fromKeys = toKeys;
+			toKeys = swap;
+			swap = fromValues;
+			fromValues = toValues;
+			toValues = swap;
+		}
+		// An even number of passes leaves the result back in keys and values
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			e.printStackTrace(); // A reader may still have it mapped; it is removed when the next writer opens
+		}
+	}
+
+	/**
+	 * Retrieves the number of games indexed.
+	 *
+	 * @return The game count, counting from game 0.
+	 */
+	public int getGameCount() {
+		return manifest.gameCount;
+	}
+
+	/**
+	 * Releases the index for other writers. Updates are complete when
+	 * {@link #update(GameStore)} returns, so nothing is written here.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			lock.release();
+		} finally {
+			lockChannel.close();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package store;
+
+import java.nio.ByteBuffer;
+
+import board.Move;
+import board.PackedMove;
+import board.Position;
+
+/**
+ * This class is a view of one game in a {@link GameStore}. It reads straight
+ * from the store's mapped file and can be pointed at another game, so a scan
+ * over millions of games reuses one view instead of allocating per game.
+ *
+ * Moves use the save file encoding: from square (bits 0-5), to square
+ * (6-11) and promotion type (12-14), with squares numbered a1 = 0 to h8 = 63.
+ * Every stored game starts from the standard position.
+ */
+public final class StoredGame {
+	// Results, as stored
+	public static final int UNKNOWN = 0;
+	public static final int WHITE_WINS = 1;
+	public static final int BLACK_WINS = 2;
+	public static final int DRAW = 3;
+
+	/** The size of a game record's header in bytes. */
+	static final int HEADER_SIZE = 4;
+
+	private int id = -1;
+	private ByteBuffer data;
+	private int offset;
+
+	/**
+	 * Constructs a view that is not pointed at any game yet.
+	 */
+	public StoredGame() {
+	}
+
+	/**
+	 * Points the view at a game record.
+	 */
+	void bind(int id, ByteBuffer data, int offset) {
+		this.id = id;
+		this.data = data;
+		this.offset = offset;
+	}
+
+	/**
+	 * Encodes a move the way games are stored.
+	 *
+	 * @param from      The origin square index.
+	 * @param to        The destination square index.
+	 * @param promotion The promotion piece type, or 0.
+	 * @return The encoded move.
+	 */
+	public static short encode(int from, int to, int promotion) {
+		return (short) (from | to << 6 | promotion << 12);
+	}
+
+	/**
+	 * Encodes a packed move the way games are stored.
+	 *
+	 * @param packed The packed move.
+	 * @return The encoded move.
+	 */
+	public static short encode(int packed) {
+		return encode(PackedMove.from(packed), PackedMove.to(packed), PackedMove.promotion(packed));
+	}
+
+	/**
+	 * Encodes a move from the board the way games are stored.
+	 *
+	 * @param move The move.
+	 * @return The encoded move.
+	 */
+	public static short encode(Move move) {
+		return encode(Position.square(move.getStartX(), move.getStartY()),
+				Position.square(move.getEndX(), move.getEndY()), move.getPromotion());
+	}
+
+	/**
+	 * Retrieves the game's id in the store.
+	 *
+	 * @return The id, counting from 0 in the order games were added.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Retrieves the number of moves in the game.
+	 *
+	 * @return The ply count.
+	 */
+	public int getPlyCount() {
+		return data.getShort(offset) & 0xFFFF;
+	}
+
+	/**
+	 * Retrieves the result of the game.
+	 *
+	 * @return One of UNKNOWN, WHITE_WINS, BLACK_WINS or DRAW.
+	 */
+	public int getResult() {
+		return data.get(offset + 2);
+	}
+
+	/**
+	 * Retrieves a move in its stored encoding.
+	 *
+	 * @param ply The index of the move, from 0.
+	 * @return The encoded move.
+	 * @throws IndexOutOfBoundsException if the game has no such move.
+	 */
+	public short getMove(int ply) {
+		if (ply < 0 || ply >= getPlyCount()) {
+			throw new IndexOutOfBoundsException("Ply " + ply + " of " + getPlyCount());
+		}
+		return data.getShort(offset + HEADER_SIZE + 2 * ply);
+	}
+
+	/**
+	 * Decodes a stored move against the position it is played from.
+	 *
+	 * @param ply      The index of the move, from 0.
+	 * @param position The position before the move.
+	 * @return The packed move, which may be played with
+	 *         {@link Position#makeMove(int)}.
+	 */
+	public int getMove(int ply, Position position) {
+		short move = getMove(ply);
+		return position.encodeMove(move & 63, (move >>> 6) & 63, (move >>> 12) & 7);
+	}
+
+	/**
+	 * Retrieves the size of the game's record.
+	 *
+	 * @return The size in bytes.
+	 */
+	int getRecordSize() {
+		return HEADER_SIZE + 2 * getPlyCount();
+	}
+}
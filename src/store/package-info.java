@@ -0,0 +1 @@
+package store;
\ No newline at end of file
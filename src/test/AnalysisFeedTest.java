@@ -0,0 +1,51 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import ai.AnalysisFeed;
+import ai.InfoLine;
+
+class AnalysisFeedTest {
+
+    @Test
+    void testKeepsLatestLinePerMultiPvIndex() throws InterruptedException {
+        List<List<InfoLine>> updates = new CopyOnWriteArrayList<>();
+        try (AnalysisFeed feed = new AnalysisFeed(10)) {
+            feed.subscribe(updates::add);
+            feed.publish(InfoLine.parse("info depth 1 multipv 1 score cp 20 pv e2e4"));
+            feed.publish(InfoLine.parse("info depth 1 multipv 2 score cp 10 pv d2d4"));
+            feed.publish(InfoLine.parse("info depth 2 multipv 1 score cp 25 pv g1f3"));
+            feed.publish(InfoLine.parse("info string NNUE evaluation enabled")); // No variation, ignored
+            Thread.sleep(300); // Long enough for a delivery after the last line
+        }
+
+        assertFalse(updates.isEmpty());
+        List<InfoLine> lines = updates.get(updates.size() - 1);
+        assertEquals(2, lines.size());
+        assertEquals(List.of("g1f3"), lines.get(0).getPv()); // Replaced the depth 1 line
+        assertEquals(2, lines.get(0).getDepth());
+        assertEquals(List.of("d2d4"), lines.get(1).getPv());
+    }
+
+    @Test
+    void testDeliversAtMostUpdatesPerSecond() throws InterruptedException {
+        List<List<InfoLine>> updates = new CopyOnWriteArrayList<>();
+        try (AnalysisFeed feed = new AnalysisFeed(5)) {
+            feed.subscribe(updates::add);
+            long end = System.currentTimeMillis() + 1000;
+            for (int depth = 1; System.currentTimeMillis() < end; depth++) {
+                feed.publish(InfoLine.parse("info depth " + depth + " score cp 0 pv e2e4"));
+            }
+            int delivered = updates.size();
+            assertTrue(delivered >= 3 && delivered <= 6, delivered + " updates in a second");
+
+            Thread.sleep(600); // Nothing changes, so at most the last lines are sent once more
+            assertTrue(updates.size() <= delivered + 1, updates.size() - delivered + " updates while idle");
+        }
+    }
+}
@@ -7,8 +7,13 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import ai.NativeEngine;
 import board.Board;
 import board.Move;
+import board.PackedMove;
+import board.Perft;
+import board.Position;
+import board.San;
 import board.Square;
 import pieces.Knight;
 import pieces.Pawn;
@@ -77,4 +82,95 @@ class BoardTest {
         assertNull(startSquare.getPiece());
         assertEquals(knight, endSquare.getPiece());
     }
+
+    @Test
+    void testUndoRestoresCapturedPiece() {
+        // 1. e4 d5 2. exd5, then take the capture back
+        board.applyMove(new Move(board.getSquare(4, 6), board.getSquare(4, 4)));
+        board.applyMove(new Move(board.getSquare(3, 1), board.getSquare(3, 3)));
+        Piece whitePawn = board.getSquare(4, 4).getPiece();
+        Piece blackPawn = board.getSquare(3, 3).getPiece();
+        Move capture = new Move(board.getSquare(4, 4), board.getSquare(3, 3));
+        board.applyMove(capture);
+
+        board.undoMove(capture);
+
+        assertEquals(whitePawn, board.getSquare(4, 4).getPiece());
+        assertEquals(blackPawn, board.getSquare(3, 3).getPiece());
+        assertEquals(2, board.getAppliedMoveCount());
+    }
+
+    @Test
+    void testMoveGenerationLeavesPawnsUnchanged() {
+        // Listing moves must not use up the pawns' initial two-square step
+        int before = board.getAllPossibleMoves("White").size();
+        int after = board.getAllPossibleMoves("White").size();
+
+        assertEquals(before, after);
+        Piece pawn = board.getSquare(0, 6).getPiece();
+        assertTrue(pawn.isValidMove(board.getSquare(0, 6), board.getSquare(0, 4), board));
+    }
+
+    @Test
+    void testZobristKeyRepeatsWithPosition() {
+        long start = board.getZobristKey();
+        // Knights out and back again reach the starting position
+        board.applyMove(new Move(board.getSquare(6, 7), board.getSquare(5, 5)));
+        long afterKnight = board.getZobristKey();
+        board.applyMove(new Move(board.getSquare(6, 0), board.getSquare(5, 2)));
+        board.applyMove(new Move(board.getSquare(5, 5), board.getSquare(6, 7)));
+        board.applyMove(new Move(board.getSquare(5, 2), board.getSquare(6, 0)));
+
+        assertNotEquals(start, afterKnight);
+        assertEquals(start, board.getZobristKey());
+        assertTrue(board.getPosition().isRepetition());
+        assertEquals(board.getPosition().computeKey(), board.getZobristKey());
+    }
+
+    @Test
+    void testFenKeyMatchesPlayedPosition() {
+        Position played = Position.fromFen(Position.START_FEN);
+        played.makeMove(played.parseUCIMove("e2e4"));
+        played.makeMove(played.parseUCIMove("e7e5"));
+        // No white pawn can take on e6, so the field does not change the key
+        Position fromFen = Position.fromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2");
+
+        assertEquals(played.getKey(), fromFen.getKey());
+        assertEquals(Position.NO_SQUARE, fromFen.getEnPassantSquare());
+        assertEquals(43, Position.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").getEnPassantSquare());
+        assertThrows(IllegalArgumentException.class, () -> Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - e 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Position.fromFen("4k3/8/8/8/8/8/8/4K3 x - - 0 1"));
+    }
+
+    @Test
+    void testNativeEngineFindsMateInOne() {
+        // Scholar's mate: White to move plays Qxf7#
+        NativeEngine engine = new NativeEngine(1000);
+
+        assertEquals("h5f7", engine.getBestMove("e2e4 e7e5 d1h5 b8c6 f1c4 g8f6"));
+    }
+
+    @Test
+    void testPerftMatchesReferenceCounts() {
+        assertEquals(8902, Perft.countOnBoard(board, 3));
+        assertEquals(197281, new Perft(Position.fromFen(Position.START_FEN)).count(4));
+        assertEquals(97862, new Perft(Position.fromFen(Perft.KIWIPETE)).count(3));
+    }
+
+    @Test
+    void testSanFormatsAndParsesMoves() {
+        Position knights = Position.fromFen("4k3/8/8/8/8/5N2/8/1N2K3 w - - 0 1");
+        assertEquals("Nbd2", new San().format(knights, knights.encodeMove(1, 11, 0))); // Either knight reaches d2
+        assertNotNull(board.parseSANMove("Nf3"));
+        assertNull(board.parseSANMove("Nf4"));
+
+        Position promotion = Position.fromFen("8/4P2k/8/8/8/8/8/K6R w - - 0 1");
+        assertEquals("e7e8n", PackedMove.toUCI(new San().parse(promotion, "e8=N")));
+        assertEquals("e7e8q", PackedMove.toUCI(new San().parse(promotion, "e8")));
+        for (String illegal : new String[] { "e8=K", "Rh2=Q", "Kb2=Q" }) {
+            assertThrows(IllegalArgumentException.class, () -> new San().parse(promotion, illegal), illegal);
+        }
+        Position pushed = Position.fromFen("7k/8/8/8/8/8/4P3/K7 w - - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> new San().parse(pushed, "e4=Q")); // Not the last rank
+    }
 }
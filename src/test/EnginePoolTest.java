@@ -0,0 +1,109 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import ai.EnginePool;
+import ai.StockfishEngine;
+
+class EnginePoolTest {
+    private static final long LEASE_TIMEOUT = 200;
+
+    @Test
+    void testLeasesEachProcessToOneSearchAtATime() throws Exception {
+        EnginePool pool = new EnginePool(2, 1, 16, LEASE_TIMEOUT, StockfishEngineTest.stubCommand());
+        try {
+            StockfishEngine first = pool.acquire();
+            StockfishEngine second = pool.acquire();
+            assertNotSame(first, second);
+            assertEquals(0, pool.getIdleCount());
+            assertThrows(IOException.class, pool::acquire); // Both leased until the timeout
+
+            pool.release(first);
+            assertEquals(1, pool.getIdleCount());
+            assertSame(first, pool.acquire()); // Reset, not replaced
+            pool.release(first);
+            pool.release(second);
+            assertEquals(2, pool.getIdleCount());
+            assertEquals(3, pool.getLeaseCount()); // The timed-out attempt is not a lease
+            assertEquals("e7e5", pool.getBestMove("e2e4"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testResetsProcessBetweenLeases() throws Exception {
+        Path log = Files.createTempFile("stub", ".log");
+        EnginePool pool = new EnginePool(1, 1, 16, LEASE_TIMEOUT,
+                StockfishEngineTest.stubCommand("--log", log.toString()));
+        try {
+            pool.getBestMove("e2e4");
+            List<String> commands = Files.readAllLines(log);
+            int go = commands.indexOf("go movetime " + StockfishEngine.MOVE_TIME);
+            assertTrue(go > 0, commands.toString());
+            assertEquals(List.of("ucinewgame", "isready"), commands.subList(go + 1, commands.size()));
+        } finally {
+            pool.close();
+            Files.deleteIfExists(log);
+        }
+    }
+
+    @Test
+    void testRestartsDeadProcesses() throws Exception {
+        EnginePool pool = new EnginePool(1, 1, 16, LEASE_TIMEOUT, StockfishEngineTest.stubCommand());
+        try {
+            StockfishEngine engine = pool.acquire();
+            engine.close(); // Dies while leased
+            pool.release(engine);
+            assertEquals(1, pool.getRestartCount());
+            assertEquals(1, pool.getLiveCount());
+
+            engine = pool.acquire();
+            pool.release(engine);
+            engine.close(); // Dies while idle
+            assertEquals(0, pool.getLiveCount());
+            StockfishEngine replacement = pool.acquire();
+            assertNotSame(engine, replacement);
+            assertEquals(2, pool.getRestartCount());
+            assertEquals("e7e5", replacement.getBestMove("e2e4"));
+            pool.release(replacement);
+            assertEquals(1, pool.getLiveCount());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testMeasuresWaitForFreeProcess() throws Exception {
+        EnginePool pool = new EnginePool(1, 1, 16, 5000, StockfishEngineTest.stubCommand());
+        try {
+            StockfishEngine engine = pool.acquire(); // Free at once
+            assertTrue(pool.getMaxWaitMillis() < 100, "waited " + pool.getMaxWaitMillis() + " ms");
+
+            Thread releaser = new Thread(() -> {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                pool.release(engine);
+            });
+            releaser.start();
+            pool.release(pool.acquire()); // Waits for the releaser
+            releaser.join();
+
+            assertEquals(2, pool.getLeaseCount());
+            assertTrue(pool.getMaxWaitMillis() >= 300, "waited " + pool.getMaxWaitMillis() + " ms");
+            assertEquals(pool.getMaxWaitMillis() / 2, pool.getAverageWaitMillis(), 100);
+        } finally {
+            pool.close();
+        }
+    }
+}
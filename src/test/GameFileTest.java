@@ -0,0 +1,98 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import board.Board;
+import board.GameFile;
+import board.Move;
+import board.MoveGenerator;
+import board.MoveList;
+
+class GameFileTest {
+
+    /**
+     * Plays a varied legal game, remembering the position after every ply.
+     */
+    private static List<Move> playGame(Board board, int plies, List<String> fens) {
+        List<Move> history = new ArrayList<>();
+        fens.add(board.getPosition().toFen());
+        for (int ply = 0; ply < plies; ply++) {
+            MoveList legal = new MoveList();
+            MoveGenerator.generateLegal(board.getPosition(), legal);
+            if (legal.size() == 0) {
+                break;
+            }
+            Move move = board.toMove(legal.get(ply * 7 % legal.size()));
+            history.add(move);
+            board.applyMove(move);
+            fens.add(board.getPosition().toFen());
+        }
+        return history;
+    }
+
+    @Test
+    void testSavedGameReachesEveryPlyFromCheckpoints() throws IOException {
+        List<String> fens = new ArrayList<>();
+        List<Move> history = playGame(new Board(), 80, fens);
+
+        Path file = Files.createTempFile("game", ".sav");
+        new GameFile(null, history).write(file);
+        GameFile loaded = GameFile.read(file);
+        Files.delete(file);
+
+        assertEquals(history.size(), loaded.getMoveCount());
+        assertTrue(loaded.getCheckpoint(history.size()) > 0);
+        for (int ply = 0; ply <= history.size(); ply++) {
+            assertEquals(fens.get(ply), loaded.positionAt(ply).toFen());
+        }
+    }
+
+    @Test
+    void testReadRejectsDamagedChecksum() throws IOException {
+        Path file = Files.createTempFile("game", ".sav");
+        try {
+            new GameFile(null, playGame(new Board(), 20, new ArrayList<>())).write(file);
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1; // One bit flipped among the moves
+            Files.write(file, bytes);
+
+            IOException e = assertThrows(IOException.class, () -> GameFile.read(file));
+            assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testLegacySaveIsMigrated() throws IOException {
+        List<String> fens = new ArrayList<>();
+        List<Move> history = playGame(new Board(), 40, fens);
+        Path file = Files.createTempFile("game", ".sav");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+                out.writeObject(new ArrayList<>(history)); // As earlier versions saved a game
+                out.writeObject("White");
+            }
+            assertTrue(GameFile.isLegacy(file));
+
+            GameFile.readLegacy(file).write(file); // The migration the controller does on load
+            assertFalse(GameFile.isLegacy(file));
+            GameFile migrated = GameFile.read(file);
+            assertEquals(history.size(), migrated.getMoveCount());
+            for (int ply = 0; ply <= history.size(); ply++) {
+                assertEquals(fens.get(ply), migrated.positionAt(ply).toFen());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import board.Board;
+import board.Move;
+import board.Position;
+import store.GameStore;
+import store.GameStoreWriter;
+import store.StoredGame;
+
+class GameStoreTest {
+
+    @Test
+    void testGameStoreAppendsAndReadsBack() throws IOException {
+        Path directory = Files.createTempDirectory("archive");
+        Move opening = new Board().parseUCIMove("e2e4");
+        try {
+            try (GameStoreWriter writer = new GameStoreWriter(directory)) {
+                for (int i = 0; i < 1000; i++) {
+                    short[] moves = new short[i % 50];
+                    Arrays.fill(moves, StoredGame.encode(opening));
+                    assertEquals(i, writer.append(moves, moves.length, i % 4));
+                }
+            }
+            try (GameStore store = new GameStore(directory)) {
+                assertEquals(1000, store.size());
+                StoredGame game = store.get(123);
+                assertEquals(123 % 50, game.getPlyCount());
+                assertEquals(StoredGame.DRAW, game.getResult());
+                assertEquals(opening.getPacked(), game.getMove(0, Position.fromFen(Position.START_FEN)));
+
+                int[] next = {0};
+                store.scan(scanned -> {
+                    assertEquals(next[0], scanned.getId());
+                    assertEquals(next[0] % 50, scanned.getPlyCount());
+                    next[0]++;
+                });
+                assertEquals(1000, next[0]);
+
+                try (GameStoreWriter writer = new GameStoreWriter(directory)) {
+                    assertThrows(IOException.class, () -> new GameStoreWriter(directory)); // One writer at a time
+                    assertEquals(1000, writer.append(new short[0], 0, StoredGame.UNKNOWN));
+                }
+                assertEquals(1001, store.refresh());
+                assertEquals(0, store.get(1000).getPlyCount());
+            }
+        } finally {
+            Files.deleteIfExists(directory.resolve("games.dat"));
+            Files.deleteIfExists(directory.resolve("games.idx"));
+            Files.delete(directory);
+        }
+    }
+}
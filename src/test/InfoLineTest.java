@@ -0,0 +1,44 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import ai.InfoLine;
+
+class InfoLineTest {
+
+    @Test
+    void testParsesMateScoreForSideGettingMated() {
+        InfoLine line = InfoLine.parse("info depth 12 score mate -3 nodes 5000 pv e1d1 d8d2 d1c1");
+        assertTrue(line.isMate());
+        assertEquals(-3, line.getScore()); // Mated in three
+        assertEquals(12, line.getDepth());
+        assertEquals(List.of("e1d1", "d8d2", "d1c1"), line.getPv());
+    }
+
+    @Test
+    void testParsesSecondMultiPvLine() {
+        InfoLine line = InfoLine.parse("info depth 18 seldepth 24 multipv 2 score cp -15 nodes 91234 nps 456170"
+                + " hashfull 12 time 200 pv d2d4 d7d5");
+        assertEquals(2, line.getMultiPv());
+        assertFalse(line.isMate());
+        assertEquals(-15, line.getScore());
+        assertEquals(91234, line.getNodes());
+        assertEquals(456170, line.getNodesPerSecond());
+        assertEquals(200, line.getTime());
+        assertEquals(List.of("d2d4", "d7d5"), line.getPv());
+    }
+
+    @Test
+    void testSkipsBoundFlagAfterScore() {
+        InfoLine line = InfoLine.parse("info depth 20 score cp 35 lowerbound nodes 100000 time 80 pv e2e4");
+        assertEquals(35, line.getScore());
+        assertEquals(100000, line.getNodes()); // Fields after the flag are still read
+        assertEquals(80, line.getTime());
+        assertEquals(List.of("e2e4"), line.getPv());
+        assertEquals(1, line.getMultiPv()); // A single line unless told otherwise
+    }
+}
@@ -0,0 +1,75 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import ai.OpeningBook;
+import ai.PolyglotKey;
+import board.Perft;
+import board.Position;
+
+class OpeningBookTest {
+
+    @Test
+    void testOpeningBookChoosesOnlyBookMoves() throws IOException {
+        // Any key table works for a book built with the same table
+        long[] table = new long[PolyglotKey.TABLE_SIZE];
+        SplittableRandom seeded = new SplittableRandom(7);
+        for (int i = 0; i < table.length; i++) {
+            table[i] = seeded.nextLong();
+        }
+        PolyglotKey keys = new PolyglotKey(table);
+        long startKey = keys.of(Position.fromFen(Position.START_FEN));
+        long castleKey = keys.of(Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1"));
+
+        // Entries sorted by unsigned key: e2e4 and d2d4 from the start, castling stored as e1h1
+        long[][] entries = { { startKey, 12 << 6 | 28, 3 }, { startKey, 11 << 6 | 27, 1 }, { castleKey, 4 << 6 | 7, 1 } };
+        Arrays.sort(entries, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit(); // A mapped file cannot be deleted on every platform while in use
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            for (long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeShort((int) entry[1]);
+                out.writeShort((int) entry[2]);
+                out.writeInt(0);
+            }
+        }
+
+        OpeningBook book = new OpeningBook(file, keys, new Random(1));
+        for (int i = 0; i < 20; i++) {
+            String move = book.probe(Position.fromFen(Position.START_FEN));
+            assertTrue(move.equals("e2e4") || move.equals("d2d4"), move);
+        }
+        assertEquals("e1g1", book.probe(Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1")));
+        assertNull(book.probe(Position.fromFen(Perft.KIWIPETE)));
+        assertEquals(21, book.getHits());
+        assertEquals(1, book.getMisses());
+    }
+
+    @Test
+    void testPolyglotKeyMatchesReferenceKeys() {
+        // Keys published with the Polyglot book format, each after the moves before it
+        String[] moves = { "", "e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7" };
+        long[] expected = { 0x463b96181691fc9cL, 0x823c9b50fd114196L, 0x0756b94461c50fb0L, 0x662fafb965db29d4L,
+                0x22a48b5a8e47ff78L, 0x652a607ca3f242c1L, 0x00fdd303c946bdd9L };
+        PolyglotKey keys = PolyglotKey.standard();
+        Position position = Position.fromFen(Position.START_FEN);
+
+        for (int i = 0; i < moves.length; i++) {
+            if (!moves[i].isEmpty()) {
+                position.makeMove(position.parseUCIMove(moves[i]));
+            }
+            assertEquals(expected[i], keys.of(position), "after " + moves[i]); // e3 and d6 are not counted, f6 is
+        }
+    }
+}
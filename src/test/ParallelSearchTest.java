@@ -0,0 +1,32 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ai.ParallelSearch;
+import ai.Search;
+import ai.TranspositionTable;
+import board.PackedMove;
+import board.Position;
+
+class ParallelSearchTest {
+    private static final int THREADS = 4;
+    private static final long NODE_LIMIT = 200_000;
+    private static final long CHECK_INTERVAL = 2048; // Nodes each thread may search between checks
+
+    @Test
+    void testNodeLimitCountsEveryThread() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(), THREADS);
+        search.setReporting(false);
+        try {
+            int bestMove = search.think(Position.fromFen(Position.START_FEN), Search.MAX_PLY, 0, NODE_LIMIT);
+            assertNotEquals(PackedMove.NONE, bestMove);
+            long nodes = search.getNodes();
+            assertTrue(nodes >= NODE_LIMIT && nodes <= NODE_LIMIT + 2 * THREADS * CHECK_INTERVAL,
+                    nodes + " nodes on " + THREADS + " threads");
+        } finally {
+            search.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import board.PackedMove;
+import pgn.PgnGame;
+import pgn.PgnReader;
+import pgn.PgnWriter;
+
+class PgnTest {
+
+    @Test
+    void testPgnReaderSkipsAnnotationsAndWriterRoundTrips() throws IOException {
+        String text = "\uFEFF[Event \"Test \\\"quoted\\\"\"]\n[Result \"1-0\"]\n\n"
+                + "1. e4 {best by test} e5 2. Nf3 (2. f4 exf4 (2... d5)) Nc6 $1 3. Bb5 a6?! ; Morphy\n"
+                + "4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 0-0 1-0\n\n"
+                + "[Event \"Broken\"]\n\n1. e4 e5 2. Ke3 Kxe3 *\n\n"
+                + "[Event \"Promotion\"]\n[SetUp \"1\"]\n[FEN \"8/1P6/8/8/8/8/6k1/4K3 b - - 0 1\"]\n\n"
+                + "1... Kf3 2. b8=Q Ke3 3. Qe5+ 1/2-1/2\n";
+        List<PgnGame> games = new ArrayList<>();
+        try (PgnReader reader = new PgnReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+            reader.forEach(ForkJoinPool.commonPool(), games::add);
+            assertEquals(3, reader.getGamesRead());
+            assertEquals(1, reader.getSkipped()); // The king cannot go to e3
+            assertTrue(reader.getLastError().startsWith("Game 2:"), reader.getLastError());
+        }
+        assertEquals(2, games.size());
+
+        PgnGame ruy = games.get(0);
+        assertEquals("Test \"quoted\"", ruy.getTag("Event"));
+        assertEquals(PgnGame.WHITE_WINS, ruy.getResult());
+        assertEquals(16, ruy.getMoveCount());
+        assertEquals("e1g1", PackedMove.toUCI(ruy.getMove(8)));
+        assertEquals("e8g8", PackedMove.toUCI(ruy.getMove(15)));
+        PgnGame promotion = games.get(1);
+        assertEquals("b7b8q", PackedMove.toUCI(promotion.getMove(1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PgnWriter writer = new PgnWriter(out)) {
+            for (PgnGame game : games) {
+                writer.write(game);
+            }
+        }
+        String written = out.toString(StandardCharsets.UTF_8.name()).replace('\n', ' '); // Ignoring line wraps
+        assertTrue(written.contains("1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O 1-0"));
+        assertTrue(written.contains("1... Kf3 2. b8=Q Ke3 3. Qe5+ 1/2-1/2"));
+        try (PgnReader reader = new PgnReader(new ByteArrayInputStream(out.toByteArray()))) {
+            for (PgnGame game : games) {
+                PgnGame reread = reader.read();
+                assertEquals(game.getTags().get("Event"), reread.getTag("Event"));
+                assertEquals(game.getResult(), reread.getResult());
+                assertEquals(game.getMoveCount(), reread.getMoveCount());
+                for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                    assertEquals(game.getMove(ply), reread.getMove(ply));
+                }
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    void testPgnReaderSkipsGameWithBadFen() throws IOException {
+        String text = "[Event \"Bad FEN\"]\n[FEN \"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e 0 1\"]\n\n"
+                + "1... e5 *\n\n[Event \"King en prise\"]\n[FEN \"4k3/4R3/8/8/8/8/8/4K3 w - - 0 1\"]\n\n1. Rxe8 *\n\n"
+                + "[Event \"Valid\"]\n\n1. d4 d5 1/2-1/2\n";
+        for (boolean parallel : new boolean[] { false, true }) {
+            List<PgnGame> games = new ArrayList<>();
+            try (PgnReader reader = new PgnReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+                if (parallel) {
+                    reader.forEach(ForkJoinPool.commonPool(), games::add);
+                } else {
+                    for (PgnGame game; (game = reader.read()) != null;) {
+                        games.add(game);
+                    }
+                }
+                assertEquals(2, reader.getSkipped());
+                assertTrue(reader.getLastError().matches("Game [12]: Bad FEN tag.*"), reader.getLastError());
+            }
+            assertEquals(1, games.size());
+            assertEquals("Valid", games.get(0).getTag("Event"));
+            assertEquals(2, games.get(0).getMoveCount());
+        }
+    }
+}
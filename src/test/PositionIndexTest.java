@@ -0,0 +1,109 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import board.MoveGenerator;
+import board.MoveList;
+import board.PackedMove;
+import board.Position;
+import store.GameStore;
+import store.GameStoreWriter;
+import store.MoveStatistics;
+import store.PositionIndex;
+import store.PositionIndexWriter;
+import store.StoredGame;
+
+class PositionIndexTest {
+
+    @Test
+    void testPositionIndexCountsMovesFromPosition() throws IOException {
+        Path directory = Files.createTempDirectory("archive");
+        SplittableRandom random = new SplittableRandom(11);
+        MoveList legal = new MoveList();
+        int plies = 0;
+        try {
+            for (int batch = 0; batch < 2; batch++) { // Two updates, so two runs that are then merged
+                try (GameStoreWriter writer = new GameStoreWriter(directory)) {
+                    for (int game = 0; game < 100; game++) {
+                        Position position = Position.fromFen(Position.START_FEN);
+                        short[] moves = new short[30];
+                        int ply = 0;
+                        for (; ply < moves.length; ply++) {
+                            legal.clear();
+                            MoveGenerator.generateLegal(position, legal);
+                            if (legal.size() == 0) {
+                                break; // Mate or stalemate
+                            }
+                            int move = legal.get(random.nextInt(ply < 2 ? 2 : legal.size()));
+                            moves[ply] = StoredGame.encode(move);
+                            position.makeMove(move);
+                        }
+                        writer.append(moves, ply, random.nextInt(4));
+                        plies += ply;
+                    }
+                }
+                try (GameStore store = new GameStore(directory);
+                        PositionIndexWriter writer = new PositionIndexWriter(directory)) {
+                    assertEquals(100, writer.update(store));
+                }
+            }
+
+            PositionIndex index = new PositionIndex(directory);
+            assertEquals(200, index.getGameCount());
+            assertEquals(plies, index.size());
+            try (GameStore store = new GameStore(directory)) {
+                // The start position is summarised in the index; the rarer one three plies in is not
+                Position start = Position.fromFen(Position.START_FEN);
+                Position deeper = Position.fromFen(Position.START_FEN);
+                StoredGame first = store.get(0);
+                for (int ply = 0; ply < 3; ply++) {
+                    deeper.makeMove(first.getMove(ply, deeper));
+                }
+                for (Position position : Arrays.asList(start, deeper)) {
+                    List<MoveStatistics> moves = index.explore(position);
+                    int[] games = index.findGames(position, Integer.MAX_VALUE);
+                    int total = 0;
+                    for (MoveStatistics move : moves) {
+                        int[] expected = new int[4];
+                        for (int id : games) {
+                            StoredGame game = store.get(id);
+                            Position replay = Position.fromFen(Position.START_FEN);
+                            int ply = 0;
+                            while (replay.getKey() != position.getKey()) {
+                                replay.makeMove(game.getMove(ply++, replay));
+                            }
+                            if (PackedMove.toUCI(game.getMove(ply, replay)).equals(move.getMove())) {
+                                expected[game.getResult()]++;
+                            }
+                        }
+                        assertEquals(expected[StoredGame.WHITE_WINS], move.getWhiteWins());
+                        assertEquals(expected[StoredGame.DRAW], move.getDraws());
+                        assertEquals(expected[StoredGame.BLACK_WINS], move.getBlackWins());
+                        assertEquals(Arrays.stream(expected).sum(), move.getGames());
+                        total += move.getGames();
+                    }
+                    assertEquals(games.length, total);
+                }
+                assertEquals(200, index.findGames(start, Integer.MAX_VALUE).length);
+                assertEquals(2, index.explore(start).size());
+            }
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ai.PositionTracker;
+import board.Position;
+
+class PositionTrackerTest {
+    private static final String SHUFFLE = "g1f3 g8f6 f3g1 f6g8"; // Knights out and back, no pawn moves
+
+    @Test
+    void testSendsOnlyNewMovesFromStart() {
+        PositionTracker tracker = new PositionTracker();
+        assertEquals("position startpos", tracker.positionCommand().toString());
+
+        Position position = tracker.update("e2e4 e7e5");
+        assertEquals("position startpos moves e2e4 e7e5", tracker.positionCommand().toString());
+        assertSame(position, tracker.update("e2e4 e7e5 g1f3")); // Played on, not replayed from the start
+        assertEquals("position startpos moves e2e4 e7e5 g1f3", tracker.positionCommand().toString());
+        assertEquals(Position.BLACK, position.getSideToMove());
+    }
+
+    @Test
+    void testSnapshotsLongGamesAtPawnMoves() {
+        PositionTracker tracker = new PositionTracker();
+        String shuffled = String.join(" ", SHUFFLE, SHUFFLE, SHUFFLE, SHUFFLE); // 16 moves, all reversible
+        tracker.update(shuffled);
+        assertEquals("position startpos moves " + shuffled, tracker.positionCommand().toString());
+
+        tracker.update(shuffled + " e2e4"); // Nothing before a pawn move can repeat
+        String snapshot = "position fen rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 9";
+        assertEquals(snapshot, tracker.positionCommand().toString());
+        tracker.update(shuffled + " e2e4 e7e5 g1f3");
+        assertEquals(snapshot + " moves e7e5 g1f3", tracker.positionCommand().toString());
+    }
+
+    @Test
+    void testResendsFromStartAfterUndo() {
+        PositionTracker tracker = new PositionTracker();
+        Position before = tracker.update("e2e4 e7e5 g1f3");
+
+        Position after = tracker.update("e2e4 e7e5");
+        assertNotSame(before, after); // Taken back, so rebuilt from the start
+        assertEquals("position startpos moves e2e4 e7e5", tracker.positionCommand().toString());
+        tracker.update("e2e4 c7c5"); // An earlier move changed
+        assertEquals("position startpos moves e2e4 c7c5", tracker.positionCommand().toString());
+
+        String shuffled = String.join(" ", SHUFFLE, SHUFFLE, SHUFFLE, SHUFFLE);
+        tracker.update(shuffled + " e2e4 e7e5");
+        tracker.update(shuffled); // Back before the snapshot
+        assertEquals("position startpos moves " + shuffled, tracker.positionCommand().toString());
+
+        assertThrows(IllegalArgumentException.class, () -> tracker.update("e2e4 e2e4"));
+        assertEquals("position startpos", tracker.positionCommand().toString()); // Not left halfway
+    }
+}
@@ -0,0 +1,160 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import ai.CachingEngine;
+import ai.ChessEngine;
+import ai.InfoLine;
+import ai.ReplyCache;
+import ai.SearchLimits;
+import board.Position;
+
+class ReplyCacheTest {
+    private static final String SETTINGS = "stub movetime 750";
+    private static final long START_KEY = Position.fromFen(Position.START_FEN).getKey();
+
+    @Test
+    void testEvictsLeastRecentlyUsedEntry() {
+        ReplyCache cache = new ReplyCache(2);
+        cache.put(1, SETTINGS, InfoLine.parse("info depth 10 score cp 20 pv e2e4 e7e5"));
+        cache.put(2, SETTINGS, InfoLine.parse("info depth 10 score cp 15 pv d2d4 d7d5"));
+        assertNotNull(cache.get(1, SETTINGS)); // Now used more recently than 2
+        cache.put(3, SETTINGS, InfoLine.parse("info depth 10 score cp 10 pv c2c4 e7e5"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(2, SETTINGS));
+        assertEquals("e2e4", cache.get(1, SETTINGS).getMove());
+        assertEquals("c2c4", cache.get(3, SETTINGS).getMove());
+        assertNull(cache.get(1, "stub depth 12")); // Same position, other settings
+    }
+
+    @Test
+    void testDropsEntriesOlderThanMaxAge() throws InterruptedException {
+        ReplyCache cache = new ReplyCache(4, 50, 0);
+        cache.put(1, SETTINGS, InfoLine.parse("info depth 10 score cp 20 pv e2e4 e7e5"));
+        assertNotNull(cache.get(1, SETTINGS));
+        Thread.sleep(100);
+        assertNull(cache.get(1, SETTINGS));
+        assertEquals(0, cache.size()); // Removed, not just hidden
+    }
+
+    @Test
+    void testServesOnlySearchesAtMinDepth() {
+        ReplyCache cache = new ReplyCache(4, 0, 10);
+        cache.put(1, SETTINGS, InfoLine.parse("info depth 8 score cp 20 pv e2e4 e7e5"));
+        assertNull(cache.get(1, SETTINGS));
+        cache.put(1, SETTINGS, InfoLine.parse("info depth 12 score cp 25 pv d2d4 d7d5"));
+        assertEquals("d2d4", cache.get(1, SETTINGS).getMove());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testSaveAndLoadKeepEntriesAndOrderOfUse() throws IOException {
+        Path file = Files.createTempFile("replies", ".cache");
+        try {
+            ReplyCache cache = new ReplyCache(2);
+            cache.put(1, SETTINGS, InfoLine.parse("info depth 14 score mate -3 pv e1d1 d8d2"));
+            cache.put(2, SETTINGS, InfoLine.parse("info depth 10 score cp 15 pv d2d4 d7d5"));
+            ReplyCache.Entry saved = cache.get(1, SETTINGS); // Now used more recently than 2
+            cache.save(file);
+
+            ReplyCache loaded = new ReplyCache(2);
+            loaded.load(file);
+            assertEquals(2, loaded.size());
+            loaded.put(3, SETTINGS, InfoLine.parse("info depth 10 score cp 10 pv c2c4 e7e5"));
+            assertNull(loaded.get(2, SETTINGS)); // Still the least recently used
+            ReplyCache.Entry entry = loaded.get(1, SETTINGS);
+            assertEquals(14, entry.getLine().getDepth());
+            assertEquals(-3, entry.getLine().getScore());
+            assertTrue(entry.getLine().isMate());
+            assertEquals(List.of("e1d1", "d8d2"), entry.getLine().getPv());
+            assertEquals(saved.getCreated(), entry.getCreated());
+
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+            assertThrows(IOException.class, () -> new ReplyCache(2).load(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testCachingEngineServesLegalFreshEntry() throws IOException {
+        ReplyCache cache = new ReplyCache(4);
+        cache.put(START_KEY, "stub movetime 100", InfoLine.parse("info depth 10 score cp 20 pv d2d4 d7d5"));
+        FixedEngine engine = new FixedEngine();
+        CachingEngine caching = new CachingEngine(engine, "stub", cache, null);
+        caching.setLimits(SearchLimits.moveTime(100));
+
+        assertEquals("d2d4", caching.getBestMove(""));
+        assertEquals(0, engine.searches);
+        assertEquals("d7d5", engine.expectedReply);
+    }
+
+    @Test
+    void testCachingEngineAsksEngineInsteadOfIllegalEntry() throws IOException {
+        ReplyCache cache = new ReplyCache(4);
+        cache.put(START_KEY, "stub movetime 100", InfoLine.parse("info depth 10 score cp 20 pv e2e5 e7e5"));
+        FixedEngine engine = new FixedEngine();
+        CachingEngine caching = new CachingEngine(engine, "stub", cache, null);
+        caching.setLimits(SearchLimits.moveTime(100));
+
+        assertEquals("e2e4", caching.getBestMove(""));
+        assertEquals(1, engine.searches);
+        assertEquals("e2e4", cache.get(START_KEY, "stub movetime 100").getMove()); // Replaced by the engine's answer
+    }
+
+    @Test
+    void testCachingEngineAsksEngineInsteadOfStaleEntry() throws Exception {
+        ReplyCache cache = new ReplyCache(4, 50, 0);
+        cache.put(START_KEY, "stub movetime 100", InfoLine.parse("info depth 10 score cp 20 pv d2d4 d7d5"));
+        FixedEngine engine = new FixedEngine();
+        CachingEngine caching = new CachingEngine(engine, "stub", cache, null);
+        caching.setLimits(SearchLimits.moveTime(100));
+        Thread.sleep(100);
+
+        assertEquals("e2e4", caching.getBestMove(""));
+        assertEquals(1, engine.searches);
+    }
+
+    /**
+     * An engine that always plays e2e4, reporting it as its best line first.
+     */
+    private static final class FixedEngine implements ChessEngine {
+        private Consumer<InfoLine> infoListener;
+        private int searches;
+        private String expectedReply;
+
+        @Override
+        public String getBestMove(String moveList) {
+            searches++;
+            infoListener.accept(InfoLine.parse("info depth 12 score cp 30 pv e2e4 e7e5"));
+            return "e2e4";
+        }
+
+        @Override
+        public void setLimits(SearchLimits limits) {
+        }
+
+        @Override
+        public void setInfoListener(Consumer<InfoLine> infoListener) {
+            this.infoListener = infoListener;
+        }
+
+        @Override
+        public void setExpectedReply(String reply) {
+            expectedReply = reply;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
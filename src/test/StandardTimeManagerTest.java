@@ -0,0 +1,47 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ai.SearchLimits;
+import ai.StandardTimeManager;
+import board.Position;
+
+class StandardTimeManagerTest {
+    private final StandardTimeManager timeManager = new StandardTimeManager();
+
+    @Test
+    void testFixedLimitsAreNotRationed() {
+        assertEquals(300, timeManager.allocate(SearchLimits.moveTime(300), Position.WHITE));
+        assertEquals(0, timeManager.allocate(SearchLimits.depth(8), Position.WHITE)); // Not timed
+        assertEquals(0, timeManager.allocate(SearchLimits.nodes(100_000), Position.BLACK));
+    }
+
+    @Test
+    void testSpreadsClockOverMovesToGo() {
+        SearchLimits limits = SearchLimits.clock(60_000, 30_000, 0, 0, 20);
+        assertEquals(3000, timeManager.allocate(limits, Position.WHITE));
+        assertEquals(1500, timeManager.allocate(limits, Position.BLACK)); // Each side's own clock
+    }
+
+    @Test
+    void testAssumesExpectedMovesInSuddenDeath() {
+        SearchLimits limits = SearchLimits.clock(60_000, 60_000, 0, 0, 0);
+        assertEquals(60_000 / StandardTimeManager.EXPECTED_MOVES, timeManager.allocate(limits, Position.WHITE));
+    }
+
+    @Test
+    void testSpendsThreeQuartersOfIncrement() {
+        SearchLimits limits = SearchLimits.clock(60_000, 60_000, 2000, 0, 0);
+        assertEquals(2000 + 1500, timeManager.allocate(limits, Position.WHITE));
+        assertEquals(2000, timeManager.allocate(limits, Position.BLACK)); // No increment of its own
+    }
+
+    @Test
+    void testKeepsSafetyMarginWhenLowOnTime() {
+        SearchLimits limits = SearchLimits.clock(200, 30, 1000, 1000, 0);
+        assertEquals(200 - StandardTimeManager.MOVE_OVERHEAD, timeManager.allocate(limits, Position.WHITE));
+        assertEquals(1, timeManager.allocate(limits, Position.BLACK)); // Less than the margin left: move at once
+    }
+}
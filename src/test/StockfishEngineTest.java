@@ -0,0 +1,147 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ai.BestMove;
+import ai.InfoLine;
+import ai.SearchLimits;
+import ai.StockfishEngine;
+import bench.StubEngine;
+
+class StockfishEngineTest {
+    private static final long MOVE_TIME = 100;
+    private static final long DEADLINE = MOVE_TIME + StockfishEngine.RESPONSE_TIMEOUT;
+
+    /**
+     * Builds the command line of the stub engine, run by this JVM's java with
+     * this test's class path.
+     */
+    static String[] stubCommand(String... options) {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), StubEngine.class.getName()));
+        command.addAll(List.of(options));
+        return command.toArray(new String[0]);
+    }
+
+    private static StockfishEngine stub(String... options) throws IOException {
+        return new StockfishEngine(stubCommand(options));
+    }
+
+    @Test
+    void testSearchAnswersThroughFuture() throws Exception {
+        List<InfoLine> info = new ArrayList<>();
+        StockfishEngine engine = stub();
+        try {
+            engine.setInfoListener(info::add);
+            BestMove bestMove = engine.search("e2e4", MOVE_TIME).get(DEADLINE, TimeUnit.MILLISECONDS);
+            assertEquals("e7e5", bestMove.getMove());
+            assertEquals("g1f3", bestMove.getPonder());
+            assertEquals(1, info.size()); // Delivered before the bestmove that follows it
+            assertEquals(List.of("e7e5", "g1f3"), info.get(0).getPv());
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void testHungEngineTimesOutAndIsRestarted() throws Exception {
+        Path marker = Files.createTempDirectory("stub").resolve("hung");
+        StockfishEngine engine = stub("--hang-once", marker.toString());
+        try {
+            engine.setLimits(SearchLimits.moveTime(MOVE_TIME));
+            long start = System.currentTimeMillis();
+            assertThrows(IOException.class, () -> engine.getBestMove("e2e4"));
+            long waited = System.currentTimeMillis() - start;
+            assertTrue(waited >= DEADLINE && waited < DEADLINE + 2000, "waited " + waited + " ms");
+            assertEquals(0, engine.getRestartCount());
+
+            assertEquals("e7e5", engine.getBestMove("e2e4")); // Fails isready, so runs on a new process
+            assertEquals(1, engine.getRestartCount());
+            assertTrue(engine.isAlive());
+        } finally {
+            engine.close();
+            Files.deleteIfExists(marker);
+            Files.deleteIfExists(marker.getParent());
+        }
+    }
+
+    @Test
+    void testLateAnswerIsDroppedAfterTimeout() throws Exception {
+        Path marker = Files.createTempDirectory("stub").resolve("late");
+        StockfishEngine engine = stub("--late-once", marker.toString());
+        try {
+            engine.setLimits(SearchLimits.moveTime(MOVE_TIME));
+            assertThrows(IOException.class, () -> engine.getBestMove("e2e4"));
+
+            // The stub's late a7a6 arrives while the engine is checked with isready,
+            // and must not be taken as the answer to the next search
+            assertEquals("e7e5", engine.getBestMove("e2e4"));
+            assertEquals(0, engine.getRestartCount());
+        } finally {
+            engine.close();
+            Files.deleteIfExists(marker);
+            Files.deleteIfExists(marker.getParent());
+        }
+    }
+
+    @Test
+    void testPonderHitAnswersWithoutSecondGo() throws Exception {
+        Path log = Files.createTempFile("stub", ".log");
+        StockfishEngine engine = stub("--log", log.toString());
+        try {
+            engine.setLimits(SearchLimits.moveTime(MOVE_TIME));
+            engine.setPondering(true);
+            assertEquals("e7e5", engine.getBestMove("e2e4")); // Predicts g1f3 as the reply
+            engine.startPondering("e2e4 e7e5");
+            engine.getBestMove("e2e4 e7e5 g1f3");
+
+            assertEquals(List.of("go ponder movetime 100", "ponderhit"), sinceLastPonder(log));
+        } finally {
+            engine.close();
+            Files.deleteIfExists(log);
+        }
+    }
+
+    @Test
+    void testPonderMissStopsAndSearchesActualPosition() throws Exception {
+        Path log = Files.createTempFile("stub", ".log");
+        StockfishEngine engine = stub("--log", log.toString());
+        try {
+            engine.setLimits(SearchLimits.moveTime(MOVE_TIME));
+            engine.setPondering(true);
+            engine.getBestMove("e2e4");
+            engine.startPondering("e2e4 e7e5");
+            assertEquals("e7e5", engine.getBestMove("e2e4 e7e5 b1c3")); // Not the ponder search's answer
+
+            assertEquals(List.of("go ponder movetime 100", "stop", "position startpos moves e2e4 e7e5 b1c3",
+                    "go movetime 100"), sinceLastPonder(log));
+        } finally {
+            engine.close();
+            Files.deleteIfExists(log);
+        }
+    }
+
+    /**
+     * Reads the commands the stub received from the last ponder search on.
+     */
+    private static List<String> sinceLastPonder(Path log) throws IOException {
+        List<String> commands = Files.readAllLines(log);
+        int last = 0;
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i).startsWith("go ponder")) {
+                last = i;
+            }
+        }
+        return commands.subList(last, commands.size());
+    }
+}
@@ -0,0 +1,86 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ai.Search;
+import ai.TranspositionTable;
+
+class TranspositionTableTest {
+
+    @Test
+    void testDepthPreferredKeepsDeeperEntryUntilNextSearch() {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+        long deep = 0x1234_5678_0000_0005L;
+        long shallow = deep + table.capacity(); // Same slot, different position
+        table.newSearch();
+
+        table.store(deep, 0, 8, TranspositionTable.EXACT, 50);
+        table.store(shallow, 0, 3, TranspositionTable.EXACT, -20);
+        assertEquals(8, TranspositionTable.depth(table.probe(deep)));
+        assertEquals(0, table.probe(shallow));
+
+        table.newSearch(); // The deep entry is now left over from an older search
+        table.store(shallow, 0, 3, TranspositionTable.LOWER, -20);
+        assertEquals(0, table.probe(deep));
+        long data = table.probe(shallow);
+        assertEquals(3, TranspositionTable.depth(data));
+        assertEquals(-20, TranspositionTable.score(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+    }
+
+    @Test
+    void testAlwaysReplacesDeeperEntry() {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.ALWAYS);
+        long deep = 7;
+        long shallow = deep + table.capacity();
+
+        table.store(deep, 0, 8, TranspositionTable.EXACT, 50);
+        table.store(shallow, 0, 3, TranspositionTable.EXACT, -20);
+        assertEquals(0, table.probe(deep));
+        assertEquals(3, TranspositionTable.depth(table.probe(shallow)));
+    }
+
+    @Test
+    void testMismatchedKeyReadsAsMiss() {
+        TranspositionTable table = new TranspositionTable();
+        long key = 0x0F0F_0F0F_1234_5678L;
+        table.store(key, 0x1C4, 5, TranspositionTable.EXACT, 17);
+
+        assertEquals(0x1C4, TranspositionTable.move(table.probe(key)));
+        assertEquals(0, table.probe(key ^ 1L << 50)); // Same slot, other upper bits
+        assertEquals(0, table.probe(key + 1)); // Empty slot
+    }
+
+    @Test
+    void testMateScoresAreStoredRelativeToNode() {
+        int mateInFive = Search.MATE - 5; // Mate five plies from the root
+        int stored = TranspositionTable.scoreToTable(mateInFive, 2);
+
+        assertEquals(Search.MATE - 3, stored); // Three plies from the node
+        assertEquals(Search.MATE - 7, TranspositionTable.scoreFromTable(stored, 4)); // Same node, two plies deeper
+        assertEquals(-mateInFive, TranspositionTable.scoreFromTable(TranspositionTable.scoreToTable(-mateInFive, 2), 2));
+        assertEquals(150, TranspositionTable.scoreToTable(150, 9)); // Ordinary scores are unchanged
+        assertEquals(-150, TranspositionTable.scoreFromTable(-150, 9));
+    }
+
+    @Test
+    void testReportsHitRateAndHashFull() {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.Replacement.DEPTH_PREFERRED);
+        table.newSearch();
+        for (long key = 1; key <= 250; key++) {
+            table.store(key, 0, 1, TranspositionTable.EXACT, 0);
+        }
+
+        assertEquals(250, table.getHashFull()); // Per mille of the first thousand slots
+        assertNotEquals(0, table.probe(1));
+        assertEquals(0, table.probe(2000));
+        assertEquals(0.5, table.getHitRate(), 1e-9);
+
+        table.newSearch();
+        assertEquals(0, table.getHashFull()); // Entries of older searches do not count
+        table.clear();
+        assertEquals(0.0, table.getHitRate(), 1e-9);
+    }
+}
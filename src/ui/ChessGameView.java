@@ -1,5 +1,6 @@
 package ui;
 
+import ai.InfoLine;
 import board.Board;
 import controller.ChessGameController;
 import pieces.Piece;
@@ -8,6 +9,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
@@ -20,9 +22,17 @@ public class ChessGameView {
 	private JLabel statusLabel;
 	private JButton saveButton;
 	private JButton loadButton;
+	private JButton undoButton;
+	private JToggleButton analyzeButton;
+	private JButton exploreButton;
+	private JProgressBar evaluationBar;
+	private JLabel analysisLabel;
 	private ChessGameController controller;
 	private Map<String, ImageIcon> pieceImages;
 
+	/** The evaluation in centipawns at which the bar is full. */
+	private static final int EVALUATION_RANGE = 1000;
+
 	/**
 	 * Constructs a new ChessGameView and initializes the UI components.
 	 */
@@ -31,6 +41,7 @@ public class ChessGameView {
 		loadPieceImages();
 		initializeBoard();
 		initializeStatusLabel();
+		initializeAnalysisPanel();
 		initializeControlPanel();
 		finalizeFrame();
 	}
@@ -83,22 +94,48 @@ public class ChessGameView {
 	}
 
 	/**
-	 * Initializes the turn status label.
+	 * Initializes the turn status label and the analysis lines below it.
 	 */
 	private void initializeStatusLabel() {
+		JPanel southPanel = new JPanel(new GridLayout(2, 1));
 		statusLabel = new JLabel("Current turn: White");
-		frame.add(statusLabel, BorderLayout.SOUTH);
+		analysisLabel = new JLabel(" ");
+		southPanel.add(statusLabel);
+		southPanel.add(analysisLabel);
+		frame.add(southPanel, BorderLayout.SOUTH);
+	}
+
+	/**
+	 * Initializes the evaluation bar beside the board. It fills from the bottom
+	 * as White's advantage grows.
+	 */
+	private void initializeAnalysisPanel() {
+		evaluationBar = new JProgressBar(SwingConstants.VERTICAL, -EVALUATION_RANGE, EVALUATION_RANGE);
+		evaluationBar.setValue(0);
+		evaluationBar.setStringPainted(true);
+		evaluationBar.setString("");
+		evaluationBar.setForeground(Color.WHITE);
+		evaluationBar.setBackground(Color.DARK_GRAY);
+		evaluationBar.setVisible(false); // Shown only while analysing
+		frame.add(evaluationBar, BorderLayout.WEST);
 	}
 
 	/**
-	 * Initializes the control panel with save and load buttons.
+	 * Initializes the control panel with save, load, undo, analyze and explore
+	 * buttons.
 	 */
 	private void initializeControlPanel() {
 		JPanel controlPanel = new JPanel();
 		saveButton = new JButton("Save Game");
 		loadButton = new JButton("Load Game");
+		undoButton = new JButton("Undo Move");
+		analyzeButton = new JToggleButton("Analyze");
+		exploreButton = new JButton("Explore");
 		controlPanel.add(saveButton);
 		controlPanel.add(loadButton);
+		controlPanel.add(undoButton);
+		controlPanel.add(analyzeButton);
+		controlPanel.add(exploreButton);
 		frame.add(controlPanel, BorderLayout.NORTH);
 	}
 
@@ -145,6 +182,72 @@ public class ChessGameView {
 		statusLabel.setText(text);
 	}
 
+	/**
+	 * Shows engine analysis on the evaluation bar and lists each line below the
+	 * board. It must be called on the event dispatch thread; an empty list
+	 * clears the display.
+	 *
+	 * @param lines       The latest line for each MultiPV index, best first.
+	 * @param whiteToMove Whether the scores are from White's point of view, as
+	 *                    engines score for the side to move.
+	 */
+	public void updateAnalysis(List<InfoLine> lines, boolean whiteToMove) {
+		if (lines.isEmpty()) {
+			evaluationBar.setValue(0);
+			evaluationBar.setString("");
+			analysisLabel.setText(" ");
+			return;
+		}
+		StringBuilder text = new StringBuilder("<html>");
+		for (InfoLine line : lines) {
+			if (text.length() > 6) {
+				text.append("<br>");
+			}
+			text.append(formatScore(line, whiteToMove)).append(" (depth ").append(line.getDepth()).append(") ")
+					.append(String.join(" ", line.getPv()));
+		}
+		analysisLabel.setText(text.append("</html>").toString());
+
+		InfoLine best = lines.get(0);
+		int score = whiteToMove ? best.getScore() : -best.getScore();
+		if (best.isMate()) {
+			score = score > 0 ? EVALUATION_RANGE : -EVALUATION_RANGE; // A forced mate fills the bar
+		}
+		evaluationBar.setValue(Math.max(-EVALUATION_RANGE, Math.min(EVALUATION_RANGE, score)));
+		evaluationBar.setString(formatScore(best, whiteToMove));
+	}
+
+	/**
+	 * Formats a line's score from White's point of view, as "+0.35" in pawns or
+	 * "M3" for a mate in three.
+	 */
+	private static String formatScore(InfoLine line, boolean whiteToMove) {
+		int score = whiteToMove ? line.getScore() : -line.getScore();
+		if (line.isMate()) {
+			return (score < 0 ? "-M" : "M") + Math.abs(score);
+		}
+		return String.format("%+.2f", score / 100.0);
+	}
+
+	/**
+	 * Shows or hides the evaluation bar.
+	 *
+	 * @param visible true to show the bar.
+	 */
+	public void setAnalysisVisible(boolean visible) {
+		evaluationBar.setVisible(visible);
+		frame.revalidate();
+	}
+
+	/**
+	 * Checks if the analyze button is pressed.
+	 *
+	 * @return true if analysis is switched on.
+	 */
+	public boolean isAnalysisSelected() {
+		return analyzeButton.isSelected();
+	}
+
 	/**
 	 * Updates the chessboard to reflect the current state of the game.
 	 *
@@ -200,4 +303,43 @@ public class ChessGameView {
 	public void setLoadButtonListener(ActionListener listener) {
 		loadButton.addActionListener(listener);
 	}
+
+	/**
+	 * Sets the listener for the undo button.
+	 *
+	 * @param listener The listener to set for the undo button.
+	 */
+	public void setUndoButtonListener(ActionListener listener) {
+		// Remove any existing listener so a repeated initView does not undo twice
+		for (ActionListener al : undoButton.getActionListeners()) {
+			undoButton.removeActionListener(al);
+		}
+		undoButton.addActionListener(listener);
+	}
+
+	/**
+	 * Sets the listener for the analyze button.
+	 *
+	 * @param listener The listener to set for the analyze button.
+	 */
+	public void setAnalyzeButtonListener(ActionListener listener) {
+		// Remove any existing listener so a repeated initView does not toggle twice
+		for (ActionListener al : analyzeButton.getActionListeners()) {
+			analyzeButton.removeActionListener(al);
+		}
+		analyzeButton.addActionListener(listener);
+	}
+
+	/**
+	 * Sets the listener for the explore button.
+	 *
+	 * @param listener The listener to set for the explore button.
+	 */
+	public void setExploreButtonListener(ActionListener listener) {
+		// Remove any existing listener so a repeated initView does not open the explorer twice
+		for (ActionListener al : exploreButton.getActionListeners()) {
+			exploreButton.removeActionListener(al);
+		}
+		exploreButton.addActionListener(listener);
+	}
 }